@@ -1,9 +1,8 @@
 package ataxx;
 
+import java.io.File;
 import java.util.Stack;
-import static ataxx.PieceColor.*;
-import static java.lang.Math.min;
-import static java.lang.Math.max;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A Player that computes its own moves.
@@ -16,16 +15,6 @@ class AI extends Player {
      * Maximum minimax search depth before going to static evaluation.
      */
     private static final int MAX_DEPTH = 4;
-    /**
-     * A position magnitude indicating a win (for red if positive, blue
-     * if negative).
-     */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 1;
-    /**
-     * A magnitude greater than a normal value.
-     */
-    private static final int INFTY = Integer.MAX_VALUE;
-
     /**
      * A new AI for GAME that will play MYCOLOR.
      */
@@ -35,20 +24,11 @@ class AI extends Player {
 
     @Override
     Move myMove() {
-        if (!board().canMove(myColor())) {
-            return Move.pass();
-        }
         Move move = findMove();
-        if (move.isExtend() || move.isJump()) {
-            System.out.println(myColor().toString() + " moves "
-                    + Character.toString(move.col0())
-                    + Character.toString(move.row0())
-                    + "-" + Character.toString(move.col1())
-                    + Character.toString(move.row1()) + ".");
-            return move;
-        } else if (move.isPass()) {
-            System.out.println(myColor().toString() + "passes");
-            return move;
+        if (move.isPass()) {
+            game().reportMove("%s passes.", myColor());
+        } else {
+            game().reportMove("%s moves %s.", myColor(), move);
         }
         return move;
     }
@@ -56,29 +36,36 @@ class AI extends Player {
 
     /**
      * Return a move for me from the current position, assuming there
-     * is a move.
+     * is a move.  The search is done by my game's long-lived engine for
+     * my color, so that what it learned on earlier moves is reused, and
+     * can be cut short by a 'stop' command.  If traceDirectory() is not
+     * null, the moves searched are recorded and written to a new file
+     * there (see SearchTrace).
      */
     private Move findMove() {
-        Board b = new Board(board());
-        if (myColor() == RED) {
-            findMove(b, MAX_DEPTH, true, 1, -INFTY, INFTY);
-        } else {
-            findMove(b, MAX_DEPTH, true, -1, -INFTY, INFTY);
+        Engine engine = game().engine(myColor());
+        String directory = _traceDirectory;
+        if (directory != null && engine.trace() == null) {
+            engine.setTrace(new SearchTrace(SearchTrace.DEFAULT_CAPACITY));
         }
-        return _lastFoundMove;
+        Move move = game().searchMove(engine, MAX_DEPTH);
+        if (directory != null) {
+            String name =
+                String.format("%05d-%s.trace", TRACE_NUMBER.incrementAndGet(),
+                              myColor());
+            try {
+                engine.trace().save(new File(directory, name).getPath());
+            } catch (GameException excp) {
+                game().reportError(excp.getMessage());
+            }
+        }
+        return move;
     }
 
     /**
-     * Used to communicate best moves found by findMove, when asked for.
-     */
-    private Move _lastFoundMove;
-
-    /**
-     * Find a move from position BOARD and return its value, recording
-     * the move found in _lastFoundMove iff SAVEMOVE. The move
-     * should have maximal value or have value >= BETA if SENSE==1,
-     * and minimal value or value <= ALPHA if SENSE==-1. Searches up to
-     * DEPTH levels before using a static estimate.
+     * Return every move within two squares of a piece belonging to the
+     * side to move on BOARD.  Some entries may be illegal or null;
+     * callers filter them with Board.legalMove.
      */
     Stack<Move> possibleMoves(Board board) {
         Stack<Move> allpossible = new Stack<Move>();
@@ -98,70 +85,47 @@ class AI extends Player {
         return allpossible;
     }
     /**
-     * Find a move from position BOARD and return its value, recording
-     * the move found in _lastFoundMove iff SAVEMOVE. The move
-     * should have maximal value or have value >= BETA if SENSE==1,
-     * and minimal value or value <= ALPHA if SENSE==-1. Searches up to
-     * DEPTH levels before using a static estimate.
+     * Return a heuristic value for BOARD.
      */
-    private int findMove(Board board, int depth, boolean saveMove,
-                         int sense, int alpha, int beta) {
-        int bestsofar;
-        if (depth == 0 || board.gameOver()) {
-            return staticScore(board);
-        }
-        if (sense == 1) {
-            Stack<Move> allmoves = possibleMoves(board);
-            bestsofar = -INFTY;
-            while (!allmoves.empty()) {
-                Move m = allmoves.pop();
-                if (board.legalMove(m)) {
-                    board.makeMove(m);
-                    int response = findMove(board, depth - 1, false,
-                            -1, alpha, beta);
-                    board.undo();
-                    bestsofar = max(bestsofar, response);
-                    if (response >= bestsofar) {
-                        alpha = response;
-                        if (saveMove) {
-                            _lastFoundMove = m;
-                        }
-                    }
-                    if (beta <= alpha) {
-                        break;
-                    }
-                }
-            }
-        } else {
-            Stack<Move> allmoves = possibleMoves(board);
-            bestsofar = INFTY;
-            while (!allmoves.empty()) {
-                Move m = allmoves.pop();
-                if (board.legalMove(m)) {
-                    board.makeMove(m);
-                    int response = findMove(board, depth - 1, false,
-                            1, alpha, beta);
-                    board.undo();
-                    bestsofar = min(bestsofar, response);
-                    if (response <= bestsofar) {
-                        beta = response;
-                        if (saveMove) {
-                            _lastFoundMove = m;
-                        }
-                    }
-                    if (beta <= alpha) {
-                        break;
-                    }
-                }
-            }
-        }
-        return bestsofar;
+    static int staticScore(Board board) {
+        return board.redPieces() - board.bluePieces();
     }
 
     /**
-     * Return a heuristic value for BOARD.
+     * Return the Evaluator used by new Engines: Evaluator.MATERIAL
+     * (staticScore) unless setEvaluator has been called.
      */
-    private int staticScore(Board board) {
-        return board.redPieces() - board.bluePieces();
+    static Evaluator evaluator() {
+        return _evaluator;
+    }
+
+    /**
+     * Make EVALUATOR the Evaluator used by Engines created from now on.
+     */
+    static void setEvaluator(Evaluator evaluator) {
+        _evaluator = evaluator;
+    }
+
+    /**
+     * Return the directory to which the searches for AI moves are
+     * traced, or null if they are not (the default).
+     */
+    static String traceDirectory() {
+        return _traceDirectory;
     }
+
+    /**
+     * Trace the searches for AI moves into files in DIRECTORY from now
+     * on, or stop tracing them if DIRECTORY is null.
+     */
+    static void setTraceDirectory(String directory) {
+        _traceDirectory = directory;
+    }
+
+    /** The Evaluator for new Engines. */
+    private static volatile Evaluator _evaluator = Evaluator.MATERIAL;
+    /** Directory receiving search traces, or null. */
+    private static volatile String _traceDirectory;
+    /** Number of the last trace file written. */
+    private static final AtomicInteger TRACE_NUMBER = new AtomicInteger();
 }
@@ -0,0 +1,432 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.BitSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ataxx.GameException.error;
+
+/**
+ * Offline analysis of a file of positions.  Each position is searched
+ * to a fixed depth (or for a fixed time) and its best few moves, with
+ * their scores and principal variations, are written as one line of CSV
+ * or JSON.  Positions are analyzed concurrently by worker threads, each
+ * with its own Engine.  Output lines are written as positions finish,
+ * tagged with their position number, so an interrupted run can be
+ * resumed by analyzing only the positions missing from its output.
+ * <p>
+ * Input is in the text form of Positions, one position per line (blank
+ * lines and lines starting with '#' are ignored), or, for files whose
+ * names end in ".bin", a sequence of binary position records.  A
+ * position that is malformed or whose analysis fails is reported on the
+ * standard error and skipped.
+ *
+ * @author Keith Pacana
+ */
+class BatchAnalyzer {
+
+    /**
+     * An analyzer reading positions from the file named INPUT and
+     * writing results to the file named OUTPUT.
+     */
+    BatchAnalyzer(String input, String output) {
+        _inputName = input;
+        _outputName = output;
+    }
+
+    /**
+     * Search each position to DEPTH plies.  By default, the depth is
+     * DEFAULT_DEPTH, or unlimited if a time is set.
+     */
+    void setDepth(int depth) {
+        _depth = depth;
+    }
+
+    /**
+     * Stop searching each position after MILLIS milliseconds, if
+     * MILLIS > 0.
+     */
+    void setTime(long millis) {
+        _millis = millis;
+    }
+
+    /**
+     * Report the best NUMLINES moves of each position.
+     */
+    void setLines(int numLines) {
+        _numLines = numLines;
+    }
+
+    /**
+     * Use NUMTHREADS worker threads.
+     */
+    void setThreads(int numThreads) {
+        _numThreads = numThreads;
+    }
+
+    /**
+     * Write JSON lines iff JSON; otherwise CSV.
+     */
+    void setJson(boolean json) {
+        _json = json;
+    }
+
+    /**
+     * Iff RESUME, keep the results already in the output file and
+     * analyze only the positions they do not cover.
+     */
+    void setResume(boolean resume) {
+        _resume = resume;
+    }
+
+    /**
+     * Analyze all positions, reporting progress and throughput on the
+     * standard error.
+     */
+    void run() {
+        BitSet done = new BitSet();
+        try {
+            boolean append = _resume && readDone(done);
+            _output = new BufferedWriter(new FileWriter(_outputName, append));
+            if (!append && !_json) {
+                _output.write("index,position,depth,nodes,moves,scores,pvs\n");
+            }
+        } catch (IOException excp) {
+            throw error("could not open %s", _outputName);
+        }
+
+        Thread[] workers = new Thread[_numThreads];
+        _working.set(workers.length);
+        for (int i = 0; i < workers.length; i += 1) {
+            workers[i] = new Thread(this::work, "analyzer-" + i);
+            workers[i].start();
+        }
+        long start = System.nanoTime();
+        try {
+            if (_inputName.endsWith(".bin")) {
+                readBinary(done);
+            } else {
+                readText(done);
+            }
+            for (int i = 0; i < workers.length; i += 1) {
+                queue(DONE);
+            }
+            for (Thread worker : workers) {
+                while (worker.isAlive()) {
+                    worker.join(PROGRESS_MILLIS);
+                    if (worker.isAlive()) {
+                        report(start, "progress");
+                    }
+                }
+            }
+            _output.close();
+        } catch (IOException excp) {
+            throw error("error reading %s", _inputName);
+        } catch (InterruptedException excp) {
+            throw error("analysis interrupted");
+        }
+        report(start, "done");
+    }
+
+    /**
+     * Add the position numbers already in the output file to DONE,
+     * discarding any incomplete last line.  Returns false if there is no
+     * output file to resume.
+     */
+    private boolean readDone(BitSet done) throws IOException {
+        File out = new File(_outputName);
+        if (!out.exists()) {
+            return false;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(out, "rw")) {
+            long end = file.length();
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() == '\n') {
+                    break;
+                }
+                end -= 1;
+            }
+            file.setLength(end);
+        }
+        try (BufferedReader in = new BufferedReader(new FileReader(out))) {
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                int i = _json ? line.indexOf(':') + 1 : 0;
+                int k = i;
+                while (k < line.length()
+                       && Character.isDigit(line.charAt(k))) {
+                    k += 1;
+                }
+                if (k > i) {
+                    done.set(Integer.parseInt(line.substring(i, k)));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Queue the text positions from the input file not in DONE.
+     */
+    private void readText(BitSet done)
+        throws IOException, InterruptedException {
+        try (BufferedReader in =
+             new BufferedReader(new FileReader(_inputName))) {
+            int index = 0;
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (!done.get(index)) {
+                    queue(new Job(index, line, null));
+                }
+                index += 1;
+            }
+        }
+    }
+
+    /**
+     * Queue the binary positions from the input file not in DONE.
+     */
+    private void readBinary(BitSet done)
+        throws IOException, InterruptedException {
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(_inputName)))) {
+            for (int index = 0; true; index += 1) {
+                byte[] record = new byte[Positions.RECORD_SIZE];
+                try {
+                    in.readFully(record);
+                } catch (EOFException excp) {
+                    return;
+                }
+                if (!done.get(index)) {
+                    queue(new Job(index, null, record));
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the depth to which each position is searched.
+     */
+    private int depth() {
+        if (_depth > 0) {
+            return _depth;
+        }
+        return _millis > 0 ? Engine.MAX_PLY - 1 : DEFAULT_DEPTH;
+    }
+
+    /**
+     * Add JOB to the queue of positions waiting for workers, waiting for
+     * room as long as some worker is still running.
+     */
+    private void queue(Job job) throws InterruptedException {
+        while (!_jobs.offer(job, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (_working.get() == 0) {
+                throw error("all analyzer threads have stopped");
+            }
+        }
+    }
+
+    /**
+     * Body of a worker thread: analyze queued positions until told to
+     * stop.
+     */
+    private void work() {
+        Engine engine = new Engine();
+        Board board = new Board();
+        StringBuilder line = new StringBuilder();
+        try {
+            while (true) {
+                Job job = _jobs.take();
+                if (job == DONE) {
+                    return;
+                }
+                int n;
+                try {
+                    if (job._text != null) {
+                        Positions.parse(job._text, board);
+                    } else {
+                        Positions.decode(job._record, 0, board);
+                    }
+                    engine.newGame();
+                    n = engine.analyze(board, depth(), _millis, _numLines);
+                } catch (GameException excp) {
+                    System.err.printf("position %d: %s%n", job._index,
+                                      excp.getMessage());
+                    continue;
+                } catch (RuntimeException excp) {
+                    System.err.printf("position %d: %s%n", job._index,
+                                      excp);
+                    engine = new Engine();
+                    continue;
+                }
+                line.setLength(0);
+                formatResult(line, job._index, Positions.format(board),
+                             engine, n);
+                synchronized (_output) {
+                    _output.write(line.toString());
+                    _output.flush();
+                }
+                _positions.incrementAndGet();
+                _nodes.addAndGet(engine.nodes());
+            }
+        } catch (InterruptedException | IOException excp) {
+            System.err.printf("%s: %s%n", Thread.currentThread().getName(),
+                              excp);
+        } finally {
+            _working.decrementAndGet();
+        }
+    }
+
+    /**
+     * Append to OUT the output line for position number INDEX, whose
+     * text form is POSITION, from the N lines found by ENGINE.
+     */
+    private void formatResult(StringBuilder out, int index, String position,
+                              Engine engine, int n) {
+        if (_json) {
+            out.append("{\"index\":").append(index)
+                .append(",\"position\":\"").append(position)
+                .append("\",\"depth\":").append(engine.completedDepth())
+                .append(",\"nodes\":").append(engine.nodes())
+                .append(",\"lines\":[");
+            for (int k = 0; k < n; k += 1) {
+                out.append(k == 0 ? "" : ",")
+                    .append("{\"move\":\"").append(engine.lineMove(k))
+                    .append("\",\"score\":").append(engine.lineScore(k))
+                    .append(",\"pv\":[");
+                Move[] pv = engine.linePrincipalVariation(k);
+                for (int i = 0; i < pv.length; i += 1) {
+                    out.append(i == 0 ? "\"" : ",\"").append(pv[i])
+                        .append('"');
+                }
+                out.append("]}");
+            }
+            out.append("]}\n");
+        } else {
+            out.append(index).append(',').append(position).append(',')
+                .append(engine.completedDepth()).append(',')
+                .append(engine.nodes()).append(',');
+            for (int k = 0; k < n; k += 1) {
+                out.append(k == 0 ? "" : ";").append(engine.lineMove(k));
+            }
+            out.append(',');
+            for (int k = 0; k < n; k += 1) {
+                out.append(k == 0 ? "" : ";").append(engine.lineScore(k));
+            }
+            out.append(',');
+            for (int k = 0; k < n; k += 1) {
+                Move[] pv = engine.linePrincipalVariation(k);
+                for (int i = 0; i < pv.length; i += 1) {
+                    out.append(i == 0 ? (k == 0 ? "" : ";") : " ")
+                        .append(pv[i]);
+                }
+            }
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Print a throughput report labeled WHAT for the run that began at
+     * System.nanoTime() START.
+     */
+    private void report(long start, String what) {
+        double secs = (System.nanoTime() - start) / 1e9;
+        long positions = _positions.get();
+        long nodes = _nodes.get();
+        System.err.printf("%s: %d positions, %d nodes in %.1f s"
+                          + " (%.1f positions/s, %.0f nodes/s)%n",
+                          what, positions, nodes, secs,
+                          positions / Math.max(secs, 1e-9),
+                          nodes / Math.max(secs, 1e-9));
+    }
+
+    /**
+     * A position waiting to be analyzed.
+     */
+    private static class Job {
+        /**
+         * Position number INDEX, in text form TEXT or binary form
+         * RECORD (the other being null).
+         */
+        Job(int index, String text, byte[] record) {
+            _index = index;
+            _text = text;
+            _record = record;
+        }
+
+        /** Position number within the input. */
+        private final int _index;
+        /** Text form, or null. */
+        private final String _text;
+        /** Binary form, or null. */
+        private final byte[] _record;
+    }
+
+    /**
+     * Marker job telling a worker to stop.
+     */
+    private static final Job DONE = new Job(-1, null, null);
+
+    /**
+     * Search depth when neither a depth nor a time is given.
+     */
+    static final int DEFAULT_DEPTH = 4;
+
+    /**
+     * Milliseconds between progress reports.
+     */
+    private static final long PROGRESS_MILLIS = 10_000;
+    /**
+     * Milliseconds between checks that some worker is running while
+     * waiting to queue a position.
+     */
+    private static final long POLL_MILLIS = 100;
+
+    /** Name of the input file. */
+    private final String _inputName;
+    /** Name of the output file. */
+    private final String _outputName;
+    /** Search depth, or 0 for the default. */
+    private int _depth;
+    /** Time limit per position in milliseconds, or 0. */
+    private long _millis;
+    /** Number of lines to report per position. */
+    private int _numLines = 1;
+    /** Number of worker threads. */
+    private int _numThreads = Runtime.getRuntime().availableProcessors();
+    /** True iff writing JSON. */
+    private boolean _json;
+    /** True iff resuming an earlier run. */
+    private boolean _resume;
+    /** Output file. */
+    private Writer _output;
+    /** Positions waiting for workers. */
+    private final BlockingQueue<Job> _jobs = new ArrayBlockingQueue<>(1024);
+    /** Number of worker threads still running. */
+    private final AtomicInteger _working = new AtomicInteger();
+    /** Number of positions analyzed. */
+    private final AtomicLong _positions = new AtomicLong();
+    /** Number of nodes searched. */
+    private final AtomicLong _nodes = new AtomicLong();
+
+}
@@ -0,0 +1,207 @@
+package ataxx;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of BatchAnalyzer.
+ *
+ * @author Keith Pacana
+ */
+public class BatchAnalyzerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(60);
+
+    /** Positions analyzed. */
+    private static final String[] POSITIONS = {
+        "r5b/7/7/7/7/7/b5r r 0",
+        "r5b/1X3X1/7/7/7/1X3X1/b5r b 0",
+        "rr4b/r6/7/3b3/7/6r/b4bb r 3",
+        "rr4b/rr3b1/rr3bb/b6/b6/7/1bb3r r 20",
+    };
+
+    /** Return a new temporary file whose name ends in SUFFIX, deleted
+     *  when the tests end. */
+    private static File tempFile(String suffix) throws IOException {
+        File file = File.createTempFile("batch", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    /** Return a text input file holding LINES. */
+    private static File textInput(String... lines) throws IOException {
+        File file = tempFile(".txt");
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("# positions");
+            for (String line : lines) {
+                out.println(line);
+                out.println();
+            }
+        }
+        return file;
+    }
+
+    /** Return a binary input file holding the records of POSITIONS. */
+    private static File binaryInput(String... positions)
+        throws IOException {
+        File file = tempFile(".bin");
+        Board b = new Board();
+        byte[] record = new byte[Positions.RECORD_SIZE];
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (String pos : positions) {
+                Positions.parse(pos, b);
+                Positions.encode(b, record, 0);
+                out.write(record);
+            }
+        }
+        return file;
+    }
+
+    /** Analyze INPUT into OUTPUT to depth 2 with THREADS workers,
+     *  reporting LINES lines per position, and resuming iff RESUME.
+     *  Returns the CSV lines of OUTPUT after its header, in order of
+     *  position number. */
+    private static List<String[]> analyze(File input, File output,
+                                          int threads, int lines,
+                                          boolean resume)
+        throws IOException {
+        BatchAnalyzer batch =
+            new BatchAnalyzer(input.getPath(), output.getPath());
+        batch.setDepth(2);
+        batch.setThreads(threads);
+        batch.setLines(lines);
+        batch.setResume(resume);
+        batch.run();
+        List<String> text = Files.readAllLines(output.toPath());
+        assertEquals("index,position,depth,nodes,moves,scores,pvs",
+                     text.get(0));
+        List<String[]> result = new ArrayList<>();
+        for (String line : text.subList(1, text.size())) {
+            result.add(line.split(",", -1));
+        }
+        result.sort((x, y) -> Integer.parseInt(x[0])
+                    - Integer.parseInt(y[0]));
+        return result;
+    }
+
+    /** Check that RESULT has one line for each of the positions in
+     *  POSITIONS numbered by INDICES, with the lines and scores found
+     *  by an Engine reporting LINES lines. */
+    private static void checkResult(List<String[]> result, int lines,
+                                    int... indices) {
+        assertEquals(indices.length, result.size());
+        Board b = new Board();
+        for (int k = 0; k < indices.length; k += 1) {
+            String[] fields = result.get(k);
+            assertEquals(Integer.toString(indices[k]), fields[0]);
+            assertEquals(POSITIONS[indices[k]], fields[1]);
+            assertEquals("2", fields[2]);
+            Positions.parse(POSITIONS[indices[k]], b);
+            Engine engine = new Engine();
+            int n = engine.analyze(b, 2, 0, lines);
+            String[] moves = fields[4].split(";");
+            String[] scores = fields[5].split(";");
+            String[] pvs = fields[6].split(";");
+            assertEquals(n, moves.length);
+            assertEquals(n, scores.length);
+            assertEquals(n, pvs.length);
+            for (int i = 0; i < n; i += 1) {
+                assertEquals(engine.lineMove(i).toString(), moves[i]);
+                assertEquals(Integer.toString(engine.lineScore(i)),
+                             scores[i]);
+                assertTrue(pvs[i].startsWith(moves[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testText() throws IOException {
+        File output = tempFile(".csv");
+        checkResult(analyze(textInput(POSITIONS), output, 2, 1, false), 1,
+                    0, 1, 2, 3);
+    }
+
+    @Test
+    public void testBinary() throws IOException {
+        File output = tempFile(".csv");
+        checkResult(analyze(binaryInput(POSITIONS), output, 2, 1, false), 1,
+                    0, 1, 2, 3);
+    }
+
+    @Test
+    public void testMultiPv() throws IOException {
+        File output = tempFile(".csv");
+        checkResult(analyze(textInput(POSITIONS), output, 1, 3, false), 3,
+                    0, 1, 2, 3);
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        File input = textInput(POSITIONS);
+        File output = tempFile(".csv");
+        List<String[]> first = analyze(input, output, 1, 1, false);
+        List<String> text = Files.readAllLines(output.toPath());
+        String kept = text.get(0) + "\n" + text.get(2) + "\n"
+            + text.get(3).substring(0, 10);
+        Files.write(output.toPath(), kept.getBytes());
+        List<String[]> resumed = analyze(input, output, 1, 1, true);
+        checkResult(resumed, 1, 0, 1, 2, 3);
+        for (int k = 0; k < first.size(); k += 1) {
+            assertArrayEquals(first.get(k), resumed.get(k));
+        }
+        assertEquals(resumed.size(), analyze(input, output, 1, 1, true)
+                     .size());
+    }
+
+    @Test
+    public void testFailures() throws IOException {
+        Evaluator evaluator = AI.evaluator();
+        AI.setEvaluator(board -> {
+            if (board.get('b', '6') == PieceColor.BLOCKED) {
+                throw new IllegalStateException("evaluator failed");
+            }
+            return evaluator.score(board);
+        });
+        try {
+            File output = tempFile(".csv");
+            List<String[]> result =
+                analyze(textInput(POSITIONS[1], "r5b/7 r", POSITIONS[0]),
+                        output, 1, 1, false);
+            assertEquals(1, result.size());
+            assertEquals("2", result.get(0)[0]);
+            assertEquals(POSITIONS[0], result.get(0)[1]);
+        } finally {
+            AI.setEvaluator(evaluator);
+        }
+    }
+
+    @Test
+    public void testTimeOnly() throws IOException {
+        File output = tempFile(".csv");
+        BatchAnalyzer batch =
+            new BatchAnalyzer(textInput(POSITIONS[0]).getPath(),
+                              output.getPath());
+        batch.setTime(500);
+        batch.setThreads(1);
+        batch.run();
+        String[] fields =
+            Files.readAllLines(output.toPath()).get(1).split(",");
+        assertTrue("stopped at depth " + fields[2],
+                   Integer.parseInt(fields[2])
+                   > BatchAnalyzer.DEFAULT_DEPTH);
+    }
+
+}
@@ -0,0 +1,215 @@
+package ataxx;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ataxx.GameException.error;
+
+/**
+ * A reproducible search benchmark.  Each position of a fixed suite is
+ * searched to a fixed depth by a fresh Engine, one position after
+ * another on a single thread, and the total number of nodes searched
+ * is reported as a signature: any change to move generation, move
+ * ordering or pruning changes it, while a change that only affects
+ * speed does not.  The total time and nodes per second show how fast
+ * the build is on this machine.  Optionally, the suite is then
+ * searched again by several threads at once, which must give the same
+ * signature, to measure throughput when all processors are busy.
+ *
+ * @author Keith Pacana
+ */
+class Bench {
+
+    /**
+     * Default search depth.
+     */
+    static final int DEFAULT_DEPTH = 5;
+
+    /**
+     * The suite, in the text form of Positions: the initial position
+     * followed by mid-game and late positions, some with blocks.
+     */
+    static final String[] POSITIONS = {
+        "r5b/7/7/7/7/7/b5r r 0",
+        "r5b/r1X1X2/7/7/2brr2/2XrX2/b5r b 4",
+        "b4r1/rrX1X2/rrrrr2/1bbrrr1/3bbbb/2X1Xb1/b3b1b r 1",
+        "brbbrr1/brXbXrr/rrr1bbb/rrbrbbb/rrrrbbb/rrXrXbb/5b1 b 3",
+        "r5b/rr2bb1/r6/7/7/b6/bb3bb r 1",
+        "rrbb2b/rrbb1b1/bb5/rr1r3/bb5/rr3rr/rr1r1rr b 1",
+        "rrrrr2/brrbbb1/brrbbb1/brr1b2/rr1r3/r2bbb1/1rbbbbb r 1",
+        "rrrrrrr/brrrrb1/brbrrbb/bbbbrrr/rrrbbbr/bbrbbrr/bbrbbrr b 0",
+        "rrrbbbb/bXXbXXb/rbX1X2/bb5/rrX1Xrr/rXX1XXr/2b2rr b 2",
+        "rbbbbbb/bXXbXXr/rbXrXbb/bbbbbbb/bbXbXb1/bXXbXX1/3rrrb r 3",
+        "rbbb2b/rbb2b1/rr4b/rrrr3/1rrr1b1/7/2b3r r 1",
+        "rrrrb2/rrr1rr1/bb4r/bbb2r1/rrrbb1r/1rrbb2/2r1r2 b 8",
+        "rrbrr2/rrbbbb1/rrrrbrr/rbbbbbr/rbbbbrr/2bbbrb/1brrrrb r 1",
+        "2r3b/rr5/2X1X2/rrrr3/rrXbX2/rrbbb2/1rbb2r r 0",
+        "bbr3r/bbr2r1/brXrX2/brrrr2/rrXrXrr/rrrrrrr/1rrrrr1 b 1",
+        "brrrrbb/bbbrrbb/brXrXb1/brrrrbb/rrXrXrr/rrrrrrr/rrrrrrr r 3",
+        "1rr3b/rr5/rX3Xb/r4bb/rX3Xb/rrr3b/rr3bb b 1",
+        "4rbb/rb1brbb/bXbb1Xb/bbb2rb/bX2rXb/rrr1bbr/1r2bb1 r 3",
+        "brrrbbb/bbrrrrb/bXrrrXb/bbrrbbb/rXrrrXb/1rrrbbr/rrr1bbr b 1",
+        "r3brr/rr1bbrr/rX3X1/6b/1XbbbX1/b1brbb1/2brb2 r 0",
+        "rrbbbbr/rrrrrrb/1X1rrX1/3rr2/1XbbbX1/bbrrrr1/bb1rr2 b 0",
+        "r5b/1r5/7/2rr3/2r4/bb5/bb4r b 1",
+        "brrr2b/b1rrr2/bbb1b2/7/2b4/1b5/b1b3r r 4",
+        "1rrrb2/bbrrbb1/rrrbbb1/1bbbb2/2bb3/r1r4/1rr3r b 0",
+        "1rrrbrr/rrrrbrr/rrrrrbb/bbrrrbb/bbrrrb1/bbrbb2/rbrbb1r r 0",
+        "r3b1b/r1XrXrb/r3b2/r4b1/rr2bb1/r1X1Xbr/rr4b r 0",
+        "brbbbbr/rrXrXrb/rr1rrrb/rr2rrb/1rr4/rrX1Xrr/rr2rrr b 0",
+        "bbbbbbr/rrXbXrb/rrbbrrb/rbbbbbb/bbbbbbb/rbXbXbb/r1rrrbb r 3",
+        "rrr1b1b/bb3b1/bX3X1/rrb4/1Xbb1X1/1rrr1r1/b1rr2r b 4",
+        "rbr3b/rbr3b/1Xrr1Xr/1bbrrr1/bXbrrX1/bbbbbb1/rbb1bbb r 0",
+    };
+
+    /**
+     * Search each position to DEPTH plies.
+     */
+    void setDepth(int depth) {
+        _depth = depth;
+    }
+
+    /**
+     * Also search the suite with NUMTHREADS threads, if NUMTHREADS > 1.
+     */
+    void setThreads(int numThreads) {
+        _numThreads = numThreads;
+    }
+
+    /**
+     * Append a line of results to the CSV file named CSV, creating it
+     * (with a header line) if necessary.
+     */
+    void setCsv(String csv) {
+        _csvName = csv;
+    }
+
+    /**
+     * Run the benchmark, reporting on OUT.  Returns the signature.
+     */
+    long run(PrintStream out) {
+        Board board = new Board();
+        long nodes = 0, nanos = 0;
+        for (int k = 0; k < POSITIONS.length; k += 1) {
+            Positions.parse(POSITIONS[k], board);
+            Engine engine = new Engine();
+            long start = System.nanoTime();
+            engine.findMove(board, _depth);
+            long time = System.nanoTime() - start;
+            nodes += engine.nodes();
+            nanos += time;
+            out.printf("Position %2d/%d: %10d nodes %9.1f ms  %s%n", k + 1,
+                       POSITIONS.length, engine.nodes(), time / 1e6,
+                       POSITIONS[k]);
+        }
+        out.println("===========================");
+        out.printf("Depth           : %d%n", _depth);
+        out.printf("Total time (ms) : %d%n", nanos / 1_000_000);
+        out.printf("Nodes searched  : %d%n", nodes);
+        out.printf("Nodes/second    : %d%n", nodesPerSecond(nodes, nanos));
+
+        long threadedRate = 0;
+        if (_numThreads > 1) {
+            long[] result = runThreaded();
+            threadedRate = nodesPerSecond(result[0], result[1]);
+            out.printf("Threads         : %d%n", _numThreads);
+            out.printf("Threaded (ms)   : %d%n", result[1] / 1_000_000);
+            out.printf("Threaded nodes/s: %d%n", threadedRate);
+            if (result[0] != nodes) {
+                throw error("threaded node count %d differs from %d",
+                            result[0], nodes);
+            }
+        }
+        if (_csvName != null) {
+            writeCsv(nodes, nanos, threadedRate);
+        }
+        return nodes;
+    }
+
+    /**
+     * Search the suite with _numThreads threads, each taking the next
+     * unsearched position, and return the total number of nodes and the
+     * elapsed time in nanoseconds.
+     */
+    private long[] runThreaded() {
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong nodes = new AtomicLong();
+        Thread[] workers = new Thread[_numThreads];
+        for (int i = 0; i < workers.length; i += 1) {
+            workers[i] = new Thread(() -> {
+                Board board = new Board();
+                for (int k = next.getAndIncrement(); k < POSITIONS.length;
+                     k = next.getAndIncrement()) {
+                    Positions.parse(POSITIONS[k], board);
+                    Engine engine = new Engine();
+                    engine.findMove(board, _depth);
+                    nodes.addAndGet(engine.nodes());
+                }
+            }, "bench-" + i);
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException excp) {
+            throw error("benchmark interrupted");
+        }
+        return new long[] { nodes.get(), System.nanoTime() - start };
+    }
+
+    /**
+     * Append a line to the CSV file for a run that searched NODES nodes
+     * in NANOS nanoseconds on one thread, and THREADEDRATE nodes per
+     * second on several (0 if not measured).
+     */
+    private void writeCsv(long nodes, long nanos, long threadedRate) {
+        boolean exists = new File(_csvName).exists();
+        try (Writer csv = new FileWriter(_csvName, true)) {
+            if (!exists) {
+                csv.write("date,depth,positions,nodes,millis,nps,threads,"
+                          + "threaded_nps\n");
+            }
+            csv.write(String.format("%s,%d,%d,%d,%d,%d,%d,%d%n",
+                                    LocalDateTime.now().withNano(0)
+                                    .format(DATE_FORMAT),
+                                    _depth, POSITIONS.length, nodes,
+                                    nanos / 1_000_000,
+                                    nodesPerSecond(nodes, nanos),
+                                    _numThreads, threadedRate));
+        } catch (IOException excp) {
+            throw error("could not write %s", _csvName);
+        }
+    }
+
+    /**
+     * Return NODES per second, given that they took NANOS nanoseconds.
+     */
+    private static long nodesPerSecond(long nodes, long nanos) {
+        return nodes * 1_000_000_000L / Math.max(nanos, 1);
+    }
+
+    /**
+     * Format of dates in the CSV file.
+     */
+    private static final DateTimeFormatter DATE_FORMAT =
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    /** Search depth. */
+    private int _depth = DEFAULT_DEPTH;
+    /** Number of threads for the threaded section, or 1 for none. */
+    private int _numThreads = 1;
+    /** Name of the CSV file, or null. */
+    private String _csvName;
+
+}
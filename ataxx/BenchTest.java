@@ -0,0 +1,46 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the search benchmark.
+ *
+ * @author Keith Pacana
+ */
+public class BenchTest {
+
+    /**
+     * Return the signature of a run of the benchmark to DEPTH plies with
+     * NUMTHREADS threads, discarding its report.
+     */
+    private long signature(int depth, int numThreads) {
+        Bench bench = new Bench();
+        bench.setDepth(depth);
+        bench.setThreads(numThreads);
+        return bench.run(new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testSuiteParses() {
+        Board b = new Board();
+        for (String pos : Bench.POSITIONS) {
+            Positions.parse(pos, b);
+            assertEquals(pos, Positions.format(b));
+        }
+    }
+
+    @Test
+    public void testDeterministic() {
+        long sig = signature(2, 1);
+        assertTrue(sig > Bench.POSITIONS.length);
+        assertEquals(sig, signature(2, 1));
+        assertEquals(sig, signature(2, 3));
+        assertNotEquals(sig, signature(3, 1));
+    }
+
+}
@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.Stack;
 import java.util.Formatter;
 import java.util.Observable;
+import java.util.Random;
 
 import static ataxx.PieceColor.*;
 import static ataxx.GameException.error;
@@ -48,10 +49,6 @@ class Board extends Observable {
      * Number of non-extending moves before game ends.
      */
     static final int JUMP_LIMIT = 25;
-    /**
-     * copy of board.
-     */
-    private Board copy;
 
     /**
      * A new, cleared board at the start of the game.
@@ -80,7 +77,9 @@ class Board extends Observable {
         this._blue = PieceColor.BLUE;
         this.redpieces = b.redPieces();
         this.bluepieces = b.bluePieces();
+        this.jumps = b.jumps;
         this._whoseMove = b.whoseMove();
+        this._hash = b._hash;
     }
 
     /**
@@ -104,6 +103,11 @@ class Board extends Observable {
      */
     void clear() {
         _whoseMove = RED;
+        redpieces = bluepieces = 2;
+        jumps = 0;
+        posn.clear();
+        oldpiece.clear();
+        saved.clear();
         for (char i = 'a'; i <= 'g'; i = (char) (i + 1)) {
             for (char j = '1'; j <= '7'; j = (char) (j + 1)) {
                 unrecordedSet(i, j, EMPTY);
@@ -118,6 +122,34 @@ class Board extends Observable {
     }
 
 
+    /**
+     * Set me to an arbitrary position, in which the square in column
+     * 'a' + K % SIDE and row '7' - K / SIDE contains SQUARES[K], for
+     * 0 <= K < SIDE * SIDE (that is, rows from the top, each from left
+     * to right), WHO is to move, and NJUMPS moves have been made since
+     * the last extend.  The undo history is discarded.
+     */
+    void setPosition(PieceColor[] squares, PieceColor who, int nJumps) {
+        posn.clear();
+        oldpiece.clear();
+        saved.clear();
+        redpieces = bluepieces = 0;
+        for (int k = 0; k < SIDE * SIDE; k += 1) {
+            PieceColor v = squares[k];
+            unrecordedSet((char) ('a' + k % SIDE), (char) ('7' - k / SIDE),
+                          v);
+            if (v == RED) {
+                redpieces += 1;
+            } else if (v == BLUE) {
+                bluepieces += 1;
+            }
+        }
+        _whoseMove = who;
+        jumps = nJumps;
+        setChanged();
+        notifyObservers();
+    }
+
     /**
      * Return true iff the game is over: i.e., if neither side has
      * any moves, if one side has no pieces, or if there have been
@@ -201,28 +233,67 @@ class Board extends Observable {
     private void set(int sq, PieceColor v) {
         posn.push(sq);
         oldpiece.push(get(sq));
-        _board[sq] = v;
+        unrecordedSet(sq, v);
     }
 
     /**
      * Set square at C R to V (not undoable).
      */
     private void unrecordedSet(char c, char r, PieceColor v) {
-        _board[index(c, r)] = v;
+        unrecordedSet(index(c, r), v);
     }
 
     /**
      * Set square at linearized index SQ to V (not undoable).
      */
     private void unrecordedSet(int sq, PieceColor v) {
+        PieceColor old = _board[sq];
+        if (old != null) {
+            _hash ^= SQUARE_KEYS[old.ordinal()][sq];
+            if (_listener != null) {
+                _listener.squareChanged(sq, old, v);
+            }
+        }
+        _hash ^= SQUARE_KEYS[v.ordinal()][sq];
         _board[sq] = v;
     }
 
+    /**
+     * Receives every change to the contents of a square of a Board,
+     * including those made by undo, clear, setPosition and setBlock.
+     */
+    interface SquareListener {
+        /**
+         * The square with linearized index SQ has changed from OLD to
+         * NOW.
+         */
+        void squareChanged(int sq, PieceColor old, PieceColor now);
+    }
+
+    /**
+     * Report each subsequent change of a square to LISTENER (replacing
+     * any previous listener), or to nobody if LISTENER is null.  The
+     * listener is not copied by Board(Board).
+     */
+    void setSquareListener(SquareListener listener) {
+        _listener = listener;
+    }
+
+    /**
+     * Return my SquareListener, or null if I have none.
+     */
+    SquareListener squareListener() {
+        return _listener;
+    }
+
     /**
      * Return true iff MOVE is legal on the current board.
      */
     boolean legalMove(Move move) {
         try {
+            if (move.isPass()) {
+                return !canMove(_whoseMove);
+            }
             if (move.fromIndex() < 0 || get(move.fromIndex()) != _whoseMove) {
                 return false;
             }
@@ -273,7 +344,7 @@ class Board extends Observable {
      * clear or the creation of the board.
      */
     int numMoves() {
-        return 0;
+        return saved.size() / SAVED_STATE;
     }
     /**
      * Return number of non-pass moves made in the current game since the
@@ -300,45 +371,37 @@ class Board extends Observable {
      */
     void makeMove(Move move) {
         try {
-            copy = new Board(this);
             if (legalMove(move)) {
+                posn.push(LIM_1);
+                oldpiece.push(null);
+                saved.push(redpieces);
+                saved.push(bluepieces);
+                saved.push(jumps);
                 if (move.isPass()) {
-                    pass();
+                    flipWhoseMove();
+                    setChanged();
+                    notifyObservers();
                     return;
                 } else if (move.isExtend()) {
-                    posn.push(LIM_1);
-                    oldpiece.push(null);
                     set(move.toIndex(), _whoseMove);
                     incrPieces(_whoseMove, 1);
-                    for (int i = -1; i <= 1; i++) {
-                        for (int j = -1; j <= 1; j++) {
-                            if (get(neighbor(move.toIndex(), i, j))
-                                    .equals(_whoseMove.opposite())) {
-                                set(neighbor(move.toIndex(), i, j), _whoseMove);
-                                incrPieces(_whoseMove, 1);
-                                incrPieces(_whoseMove.opposite(), -1);
-                                jumps = 0;
-                            }
-                        }
-                    }
+                    jumps = 0;
                 } else {
-                    posn.push(LIM_1);
-                    oldpiece.push(null);
                     set(move.fromIndex(), EMPTY);
                     set(move.toIndex(), _whoseMove);
                     jumps += 1;
-                    for (int i = -1; i <= 1; i++) {
-                        for (int j = -1; j <= 1; j++) {
-                            if (get(neighbor(move.toIndex(), i, j))
-                                    .equals(_whoseMove.opposite())) {
-                                set(neighbor(move.toIndex(), i, j), _whoseMove);
-                                incrPieces(_whoseMove, 1);
-                                incrPieces(_whoseMove.opposite(), -1);
-                            }
+                }
+                for (int i = -1; i <= 1; i++) {
+                    for (int j = -1; j <= 1; j++) {
+                        if (get(neighbor(move.toIndex(), i, j))
+                                .equals(_whoseMove.opposite())) {
+                            set(neighbor(move.toIndex(), i, j), _whoseMove);
+                            incrPieces(_whoseMove, 1);
+                            incrPieces(_whoseMove.opposite(), -1);
                         }
                     }
                 }
-                _whoseMove = _whoseMove.opposite();
+                flipWhoseMove();
                 setChanged();
                 notifyObservers();
             }
@@ -352,16 +415,12 @@ class Board extends Observable {
      * is legal to do so.  The only effect is to change whoseMove().
      */
     void pass() {
-        if (!canMove(_whoseMove)) {
-            makeMove(Move.pass());
-            _whoseMove = _whoseMove.opposite();
-        }
-        setChanged();
-        notifyObservers();
+        makeMove(Move.pass());
     }
 
     /**
-     * Undo the last move.
+     * Undo the last move, restoring the squares, piece counts, jump
+     * count and side to move.
      */
     void undo() {
         while (posn.peek() != LIM_1) {
@@ -369,10 +428,33 @@ class Board extends Observable {
         }
         posn.pop();
         oldpiece.pop();
+        jumps = saved.pop();
+        bluepieces = saved.pop();
+        redpieces = saved.pop();
+        flipWhoseMove();
         setChanged();
         notifyObservers();
     }
 
+    /**
+     * Give the move to the other player.
+     */
+    private void flipWhoseMove() {
+        _whoseMove = _whoseMove.opposite();
+    }
+
+    /**
+     * Return a Zobrist hash of the current position: the contents of
+     * every square, the side to move and the number of jumps since the
+     * last extend (on which gameOver() depends).  Two boards with the
+     * same hash are, with overwhelming probability, in the same
+     * position.
+     */
+    long hash() {
+        long key = _hash ^ JUMP_KEYS[Math.min(jumps, JUMP_LIMIT)];
+        return _whoseMove == RED ? key ^ RED_TO_MOVE_KEY : key;
+    }
+
     /**
      * Return true iff it is legal to place a block at C R.
      */
@@ -519,6 +601,50 @@ class Board extends Observable {
      * stack of positions for undo.
      */
     private Stack<Integer> posn = new Stack<Integer>();
+    /**
+     * Piece counts and jump counts saved by each move, SAVED_STATE
+     * entries per move, for undo.
+     */
+    private Stack<Integer> saved = new Stack<Integer>();
+    /** Number of entries pushed on saved per move. */
+    private static final int SAVED_STATE = 3;
     /** magic num error.*/
     static final int LIM_1 = -100;
+
+    /**
+     * Incrementally maintained hash of the square contents; the side to
+     * move and jump count are folded in by hash().
+     */
+    private long _hash;
+
+    /**
+     * Receiver of square changes, or null.
+     */
+    private SquareListener _listener;
+
+    /**
+     * Zobrist keys, indexed by PieceColor ordinal and linearized square
+     * index.  The seed is fixed so hashes are reproducible between runs.
+     */
+    private static final long[][] SQUARE_KEYS =
+            new long[PieceColor.values().length]
+                    [EXTENDED_SIDE * EXTENDED_SIDE];
+    /** Key xor-ed into the hash while it is red's move. */
+    private static final long RED_TO_MOVE_KEY;
+    /** Keys xor-ed into the hash, indexed by the number of jumps since
+     *  the last extend (counts past JUMP_LIMIT share its key). */
+    private static final long[] JUMP_KEYS = new long[JUMP_LIMIT + 1];
+
+    static {
+        Random keys = new Random(0x5eed_a7a7L);
+        for (long[] row : SQUARE_KEYS) {
+            for (int sq = 0; sq < row.length; sq += 1) {
+                row[sq] = keys.nextLong();
+            }
+        }
+        RED_TO_MOVE_KEY = keys.nextLong();
+        for (int k = 0; k <= JUMP_LIMIT; k += 1) {
+            JUMP_KEYS[k] = keys.nextLong();
+        }
+    }
 }
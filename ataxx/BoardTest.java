@@ -131,4 +131,39 @@ public class BoardTest {
         x.makeMove(g);
     }
 
+    @Test
+    public void testUndoRestoresState() {
+        Board b = new Board();
+        long start = b.hash();
+        makeMoves(b, GAME1);
+        assertNotEquals("hash unchanged by moves", start, b.hash());
+        for (int i = 0; i < GAME1.length; i += 1) {
+            b.undo();
+        }
+        assertEquals("side to move not restored", RED, b.whoseMove());
+        assertEquals("red count not restored", 2, b.redPieces());
+        assertEquals("blue count not restored", 2, b.bluePieces());
+        assertEquals("hash not restored", start, b.hash());
+    }
+
+    @Test
+    public void testHashMatchesCopy() {
+        Board b = new Board();
+        makeMoves(b, GAME1);
+        Board c = new Board();
+        makeMoves(c, GAME1);
+        assertEquals(b.hash(), c.hash());
+        assertEquals(b.hash(), new Board(b).hash());
+    }
+
+    @Test
+    public void testHashIncludesJumps() {
+        Board b = new Board();
+        long start = b.hash();
+        makeMoves(b, new String[] {"a7-a5", "a1-a3", "a5-a7", "a3-a1"});
+        assertEquals(new Board(), b);
+        assertEquals(4, b.numJumps());
+        assertNotEquals(start, b.hash());
+    }
+
 }
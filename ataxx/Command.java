@@ -30,7 +30,7 @@ class Command {
         PIECEMOVE("([a-g])([1-7])\\-([a-g])([1-7])"),
         /* Valid at any time. */
         LOAD("(?i)load\\s+(.*)"),
-        QUIT, CLEAR, DUMP, HELP,
+        QUIT, CLEAR, DUMP, HELP, STOP, STATS,
         /* Special "commands" internally generated. */
         /**
          * Syntax error in command.
@@ -11,4 +11,10 @@ interface CommandSource {
      *  PROMPT suggests a prompt string that might be used, if
      *  appropriate to the input method. */
     String getLine(String prompt);
+
+    /** Return true iff getLine would return at once, without waiting
+     *  for input.  Sources that cannot tell return false. */
+    default boolean ready() {
+        return false;
+    }
 }
@@ -17,10 +17,7 @@ class CommandSources implements CommandSource {
             String line;
             line = _inputs.peek().getLine(prompt);
             if (line != null) {
-                if (line.indexOf('#') != -1) {
-                    line = line.substring(0, line.indexOf('#'));
-                }
-                line = line.trim();
+                line = strip(line);
                 if (line.length() > 0) {
                     return line;
                 }
@@ -31,6 +28,37 @@ class CommandSources implements CommandSource {
         return null;
     }
 
+    /** Return the next line of input, as for getLine, if one can be
+     *  read without waiting, and otherwise null. */
+    String pollLine(String prompt) {
+        while (ready()) {
+            String line = _inputs.peek().getLine(prompt);
+            if (line != null) {
+                line = strip(line);
+                if (line.length() > 0) {
+                    return line;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Return true iff a line is waiting in the most recent source, so
+     *  that getLine would return at once. */
+    @Override
+    public boolean ready() {
+        return !_inputs.isEmpty() && _inputs.peek().ready();
+    }
+
+    /** Return LINE with any comment and leading and trailing whitespace
+     *  removed. */
+    private static String strip(String line) {
+        if (line.indexOf('#') != -1) {
+            line = line.substring(0, line.indexOf('#'));
+        }
+        return line.trim();
+    }
+
     /** Make SOURCE the latest input source from which subsequent input
      *  will be read. */
     void addSource(CommandSource source) {
@@ -5,6 +5,11 @@ package ataxx;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import ataxx.Command.Type;
 import static ataxx.Command.Type.*;
 
@@ -64,6 +69,11 @@ public class CommandTest {
         checkError("quit foo");
     }
 
+    @Test public void testSTOP() {
+        check("stop", STOP);
+        checkError("stop foo");
+    }
+
     @Test public void testCLEAR() {
         check("clear", CLEAR);
         checkError("clear foo");
@@ -79,4 +89,92 @@ public class CommandTest {
         checkError("a7-a8");
     }
 
+    /** A source of LINES, all of which are ready at once. */
+    static class ListSource implements CommandSource {
+        ListSource(String... lines) {
+            _lines = new ArrayDeque<>(Arrays.asList(lines));
+        }
+
+        @Override
+        public String getLine(String prompt) {
+            return _lines.poll();
+        }
+
+        @Override
+        public boolean ready() {
+            return !_lines.isEmpty();
+        }
+
+        /** Lines not yet read. */
+        private final ArrayDeque<String> _lines;
+    }
+
+    /** A Reporter that keeps its messages in REPORTS. */
+    static Reporter reporter(List<String> reports) {
+        return new Reporter() {
+            @Override
+            public void errMsg(String format, Object... args) {
+                reports.add(String.format(format, args));
+            }
+
+            @Override
+            public void outcomeMsg(String format, Object... args) {
+                reports.add(String.format(format, args));
+            }
+
+            @Override
+            public void moveMsg(String format, Object... args) {
+                reports.add(String.format(format, args));
+            }
+        };
+    }
+
+    /** Check that GAME's next input lines are EXPECTED, in order. */
+    void checkRemaining(Game game, String... expected) {
+        for (String line : expected) {
+            assertEquals("Commands out of order", line, game.nextLine(""));
+        }
+        assertNull(game.nextLine(""));
+    }
+
+    @Test public void testDeferredOrder() {
+        List<String> reports = new ArrayList<>();
+        Game game = new Game(new Board(),
+                             new ListSource("g1-f1", "dump", "stop", "quit"),
+                             reporter(reports));
+        assertNotNull(game.searchMove(new Engine(), 3));
+        assertEquals("dump ran before an earlier command", 0, reports.size());
+        checkRemaining(game, "g1-f1", "dump", "stop", "quit");
+    }
+
+    @Test public void testStopFirst() {
+        List<String> reports = new ArrayList<>();
+        Game game = new Game(new Board(),
+                             new ListSource("stop", "g1-f1", "dump"),
+                             reporter(reports));
+        assertNotNull(game.searchMove(new Engine(), 30));
+        List<String> rest = new ArrayList<>();
+        for (String line = game.nextLine(""); line != null;
+             line = game.nextLine("")) {
+            rest.add(line);
+        }
+        assertEquals("dump ran before an earlier command", 0, reports.size());
+        assertEquals(Arrays.asList("g1-f1", "dump"), rest);
+    }
+
+    @Test public void testStatsReported() {
+        List<String> reports = new ArrayList<>();
+        Game game = new Game(new Board(), new ListSource(),
+                             reporter(reports));
+        game.doStats(new String[0]);
+        assertEquals(0, reports.size());
+        game.engine(PieceColor.BLUE).findMove(new Board(), 2);
+        game.doStats(new String[0]);
+        assertEquals(2, reports.size());
+        assertTrue(reports.get(0).startsWith(PieceColor.BLUE
+                                             + " AI, last move: "));
+        assertTrue(reports.get(1).startsWith(PieceColor.BLUE
+                                             + " AI, this game: "));
+    }
+
 }
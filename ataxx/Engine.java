@@ -0,0 +1,981 @@
+package ataxx;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static ataxx.PieceColor.*;
+
+/**
+ * A reusable alpha-beta search engine for Ataxx.  An Engine keeps its
+ * transposition table, history table, killer moves and last principal
+ * variation from one search to the next, so that the work done while
+ * choosing one move is available when choosing the next.  Calling
+ * newGame() forgets what no longer applies without reallocating any of
+ * these tables.
+ * <p>
+ * Besides alpha-beta cutoffs, the search by default reduces the depth
+ * of late quiet moves (late move reductions) and prunes on the static
+ * score near the leaves (futility and reverse futility pruning).  Each
+ * of these can be turned off separately, to measure what it saves and
+ * what it costs.
+ * <p>
+ * An Engine is not thread-safe: each searching thread needs its own.
+ *
+ * @author Keith Pacana
+ */
+class Engine {
+
+    /**
+     * Default base-2 logarithm of the number of transposition-table
+     * entries.
+     */
+    static final int DEFAULT_TABLE_BITS = 18;
+    /**
+     * Largest number of plies searched from the root.
+     */
+    static final int MAX_PLY = 64;
+    /**
+     * Most moves possible in any position: one extend to each of the
+     * 49 squares plus up to 16 jumps to each of them.
+     */
+    static final int MAX_MOVES = 49 + 49 * 16;
+    /**
+     * A position magnitude indicating a win for the side to move (if
+     * positive) or a loss (if negative), less the number of plies
+     * needed to reach it.
+     */
+    static final int WINNING_VALUE = 1 << 20;
+    /**
+     * A magnitude greater than any score.
+     */
+    static final int INFTY = WINNING_VALUE + MAX_PLY + 1;
+
+    /**
+     * A new Engine with a transposition table of 2**DEFAULT_TABLE_BITS
+     * entries.
+     */
+    Engine() {
+        this(DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * A new Engine with a transposition table of 2**TABLEBITS entries.
+     */
+    Engine(int tableBits) {
+        _ttKeys = new long[1 << tableBits];
+        _ttData = new long[1 << tableBits];
+        _ttMask = (1 << tableBits) - 1;
+        newGame();
+    }
+
+    /**
+     * Prepare for a new game.  Transposition-table entries are aged
+     * rather than erased (they remain correct, but are replaced in
+     * preference to entries from the new game); the history table,
+     * killer moves and saved principal variation are cleared.
+     */
+    void newGame() {
+        _generation = (_generation + 1) & GENERATION_MASK;
+        Arrays.fill(_history, 0);
+        for (Move[] killers : _killers) {
+            Arrays.fill(killers, null);
+        }
+        _seedLength = 0;
+        _expectedHash = 0;
+        _score = 0;
+        _nodes = 0;
+        _stats.clear();
+        _gameStats.clear();
+    }
+
+    /**
+     * Return a best move for the side to move in BOARD, searching to
+     * DEPTH plies, or a pass if that side has no moves.  BOARD itself
+     * is not modified.
+     */
+    Move findMove(Board board, int depth) {
+        analyze(board, depth, 0, 1);
+        return _lineCount == 0 ? Move.pass() : _lineMoves[0];
+    }
+
+    /**
+     * Analyze BOARD, finding its best NUMLINES moves (or all its moves,
+     * if there are fewer) together with their scores and principal
+     * variations.  Searches by iterative deepening to DEPTH plies, giving
+     * up after the last complete iteration if MILLIS > 0 and MILLIS
+     * milliseconds have elapsed.  Returns the number of lines found,
+     * which are then available from lineMove, lineScore and
+     * linePrincipalVariation.  BOARD itself is not modified.
+     */
+    int analyze(Board board, int depth, long millis, int numLines) {
+        return analyze(board, depth, millis, 0, numLines);
+    }
+
+    /**
+     * Analyze BOARD as for analyze(BOARD, DEPTH, MILLIS, NUMLINES), but
+     * also giving up after the last complete iteration if MAXNODES > 0
+     * and more than MAXNODES positions have been visited, or if stop()
+     * has been called.
+     */
+    int analyze(Board board, int depth, long millis, long maxNodes,
+                int numLines) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        _start = System.nanoTime();
+        _maxNodes = maxNodes;
+        depth = Math.max(1, Math.min(depth, MAX_PLY - 1));
+        numLines = Math.max(1, Math.min(numLines, MAX_MOVES));
+        if (_lineMoves.length < numLines) {
+            _lineMoves = new Move[numLines];
+            _lineScores = new int[numLines];
+            _linePvs = new Move[numLines][];
+            _newMoves = new Move[numLines];
+            _newScores = new int[numLines];
+            _newPvs = new Move[numLines][];
+        }
+        _board = new Board(board);
+        _evaluator.attach(_board);
+        if (_trace != null) {
+            _trace.start(_board);
+        }
+        _generation = (_generation + 1) & GENERATION_MASK;
+        _nodes = _evaluations = _cutoffs = _firstMoveCutoffs = 0;
+        _expanded = _children = 0;
+        _reductions = _researches = 0;
+        _futilityPrunes = _reverseFutilityPrunes = 0;
+        _stats.clear();
+        _deadline = millis > 0 ? _start + millis * 1_000_000 : 0;
+        _aborted = false;
+        for (int i = 0; i < _history.length; i += 1) {
+            _history[i] >>= 1;
+        }
+        if (_seedLength > 2 && _board.hash() == _expectedHash) {
+            System.arraycopy(_seed, 2, _seed, 0, _seedLength - 2);
+            _seedLength -= 2;
+        } else {
+            _seedLength = 0;
+        }
+
+        _lineCount = 0;
+        _completedDepth = 0;
+        for (int d = 1; d <= depth && !_aborted; d += 1) {
+            if (d > 1 && (_stopRequested
+                          || _deadline != 0 && System.nanoTime() > _deadline)) {
+                break;
+            }
+            int found = searchLines(d, numLines);
+            if (_aborted) {
+                break;
+            }
+            Move[] moves = _lineMoves;
+            _lineMoves = _newMoves;
+            _newMoves = moves;
+            int[] scores = _lineScores;
+            _lineScores = _newScores;
+            _newScores = scores;
+            Move[][] pvs = _linePvs;
+            _linePvs = _newPvs;
+            _newPvs = pvs;
+            _lineCount = found;
+            _completedDepth = d;
+            _stats.recordDepth(d, System.nanoTime() - _start);
+            if (_listener != null) {
+                _listener.accept(this);
+            }
+        }
+        if (_lineCount > 0) {
+            _score = _lineScores[0];
+            _seedLength = _linePvs[0].length;
+            System.arraycopy(_linePvs[0], 0, _seed, 0, _seedLength);
+        } else {
+            _score = 0;
+            _seedLength = 0;
+        }
+        rememberExpectedHash();
+        _stats.recordSearch(System.nanoTime() - _start, _nodes, _evaluations,
+                            _cutoffs, _firstMoveCutoffs, _expanded,
+                            _children);
+        _stats.recordPruning(_reductions, _researches, _futilityPrunes,
+                             _reverseFutilityPrunes);
+        _gameStats.add(_stats);
+        event.end();
+        if (event.shouldCommit()) {
+            event.depth = _completedDepth;
+            event.nodes = _nodes;
+            event.evaluations = _evaluations;
+            event.cutoffs = _cutoffs;
+            event.firstMoveCutoffRate = _stats.firstMoveCutoffRate();
+            event.branchingFactor = _stats.branchingFactor();
+            event.score = _score;
+            event.bestMove = _lineCount == 0 ? "-" : _lineMoves[0].toString();
+            event.commit();
+        }
+        return _lineCount;
+    }
+
+    /**
+     * Search the root to DEPTH plies once for each of up to NUMLINES
+     * lines, excluding the best moves of the lines already found from
+     * each later search, and record the results in _newMoves, _newScores
+     * and _newPvs.  Returns the number of lines found.  The results are
+     * meaningless if the search is aborted.
+     */
+    private int searchLines(int depth, int numLines) {
+        _rootExcluded = 0;
+        for (int k = 0; k < numLines; k += 1) {
+            int score = search(depth, 0, -INFTY, INFTY, k == 0);
+            if (_aborted || _pvLength[0] == 0) {
+                return k;
+            }
+            if (_trace != null) {
+                _trace.record(0, null, depth, -INFTY, INFTY, score, 0);
+            }
+            Move best = _pv[0][0];
+            if (k == 0) {
+                _seedLength = _pvLength[0];
+                System.arraycopy(_pv[0], 0, _seed, 0, _seedLength);
+            }
+            _newMoves[k] = best;
+            _newScores[k] = score;
+            _newPvs[k] = Arrays.copyOf(_pv[0], _pvLength[0]);
+            _excluded[_rootExcluded] = best;
+            _rootExcluded += 1;
+        }
+        return numLines;
+    }
+
+    /**
+     * Ask the current or next search to finish as soon as it has
+     * completed one iteration.  May be called from any thread.  The
+     * request stays in effect until clearStop() is called.
+     */
+    void stop() {
+        _stopRequested = true;
+    }
+
+    /**
+     * Withdraw any request made by stop().
+     */
+    void clearStop() {
+        _stopRequested = false;
+    }
+
+    /**
+     * Use EVALUATOR to score the positions at which searches stop.  By
+     * default, an Engine uses AI.evaluator() as of its creation.
+     */
+    void setEvaluator(Evaluator evaluator) {
+        _evaluator = evaluator;
+    }
+
+    /**
+     * Return the Evaluator I use.
+     */
+    Evaluator evaluator() {
+        return _evaluator;
+    }
+
+    /**
+     * Iff ON, search quiet moves (those that capture nothing) ordered
+     * after the first few at reduced depth, searching them again to
+     * full depth if they turn out better than expected.  On by default.
+     */
+    void setLateMoveReductions(boolean on) {
+        _lateMoveReductions = on;
+    }
+
+    /**
+     * Iff ON, skip the quiet moves from positions near the leaves whose
+     * static scores are far enough below alpha that such moves are
+     * unlikely to reach it.  On by default.
+     */
+    void setFutilityPruning(boolean on) {
+        _futilityPruning = on;
+    }
+
+    /**
+     * Iff ON, cut off positions near the leaves whose static scores are
+     * far enough above beta that a search is unlikely to bring them
+     * below it.  On by default.
+     */
+    void setReverseFutilityPruning(boolean on) {
+        _reverseFutilityPruning = on;
+    }
+
+    /**
+     * Record the moves searched by each analysis in TRACE, if it is not
+     * null, discarding those of the one before.  By default, nothing is
+     * recorded.
+     */
+    void setTrace(SearchTrace trace) {
+        _trace = trace;
+    }
+
+    /**
+     * Return the SearchTrace I record into, or null.
+     */
+    SearchTrace trace() {
+        return _trace;
+    }
+
+    /**
+     * Arrange for LISTENER (if not null) to be called with this Engine
+     * after each iteration of an analysis completes, when lineMove,
+     * completedDepth and so forth describe that iteration.
+     */
+    void setListener(Consumer<Engine> listener) {
+        _listener = listener;
+    }
+
+    /**
+     * Return the number of nanoseconds since the last analysis started.
+     */
+    long elapsedNanos() {
+        return System.nanoTime() - _start;
+    }
+
+    /**
+     * Return the number of lines found by the last analysis.
+     */
+    int lineCount() {
+        return _lineCount;
+    }
+
+    /**
+     * Return the best move of line K (0 is best) from the last analysis.
+     */
+    Move lineMove(int k) {
+        return _lineMoves[k];
+    }
+
+    /**
+     * Return the score of line K from the last analysis, from the point
+     * of view of the side that was to move.
+     */
+    int lineScore(int k) {
+        return _lineScores[k];
+    }
+
+    /**
+     * Return the principal variation of line K from the last analysis.
+     */
+    Move[] linePrincipalVariation(int k) {
+        return _linePvs[k];
+    }
+
+    /**
+     * Return the depth of the last iteration completed by the last
+     * analysis.
+     */
+    int completedDepth() {
+        return _completedDepth;
+    }
+
+    /**
+     * Return the score of the last search, from the point of view of the
+     * side that was to move.
+     */
+    int lastScore() {
+        return _score;
+    }
+
+    /**
+     * Return the number of positions visited by the last search.
+     */
+    long nodes() {
+        return _nodes;
+    }
+
+    /**
+     * Return the statistics of the last analysis.  The result is
+     * overwritten by the next one.
+     */
+    SearchStats stats() {
+        return _stats;
+    }
+
+    /**
+     * Return the statistics of all analyses since the last newGame().
+     */
+    SearchStats gameStats() {
+        return _gameStats;
+    }
+
+    /**
+     * Return the principal variation found by the last search.
+     */
+    Move[] principalVariation() {
+        return Arrays.copyOf(_seed, _seedLength);
+    }
+
+    /**
+     * Record the hash of the position two plies down the principal
+     * variation, so that the next search can tell whether the game went
+     * as predicted and reuse the rest of the variation.
+     */
+    private void rememberExpectedHash() {
+        _expectedHash = 0;
+        if (_seedLength > 2) {
+            _board.makeMove(_seed[0]);
+            _board.makeMove(_seed[1]);
+            _expectedHash = _board.hash();
+            _board.undo();
+            _board.undo();
+        }
+    }
+
+    /**
+     * Return the value of the current position searched to DEPTH more
+     * plies, PLY plies from the root, from the point of view of the side
+     * to move, with a search window of ALPHA..BETA.  FOLLOWPV is true iff
+     * the path from the root so far is the seeded principal variation.
+     */
+    private int search(int depth, int ply, int alpha, int beta,
+                       boolean followPv) {
+        _nodes += 1;
+        _pvLength[ply] = 0;
+        if ((_nodes & CHECK_INTERVAL) == 0 && _completedDepth > 0
+            && (_stopRequested
+                || _maxNodes > 0 && _nodes > _maxNodes
+                || _deadline != 0 && System.nanoTime() > _deadline)) {
+            _aborted = true;
+        }
+        if (_aborted) {
+            return 0;
+        }
+        if (_board.gameOver()) {
+            return terminalScore(ply);
+        }
+        if (depth == 0 || ply >= MAX_PLY - 1) {
+            return evaluate();
+        }
+
+        long key = _board.hash();
+        int slot = (int) key & _ttMask;
+        Move ttMove = null;
+        if (_ttKeys[slot] == key) {
+            long data = _ttData[slot];
+            ttMove = decodeMove((int) (data & MOVE_MASK));
+            int ttDepth = (int) (data >>> DEPTH_SHIFT) & DEPTH_MASK;
+            int ttBound = (int) (data >>> BOUND_SHIFT) & BOUND_MASK;
+            int ttScore = fromTable((int) (data >> SCORE_SHIFT), ply);
+            if (ply > 0 && ttDepth >= depth
+                    && (ttBound == EXACT
+                        || ttBound == LOWER && ttScore >= beta
+                        || ttBound == UPPER && ttScore <= alpha)) {
+                return ttScore;
+            }
+        }
+
+        boolean futile = false;
+        int futileScore = -INFTY;
+        if (ply > 0 && !followPv && depth <= PRUNING_DEPTH
+            && (_futilityPruning || _reverseFutilityPruning)
+            && Math.abs(alpha) < WINNING_VALUE - MAX_PLY
+            && Math.abs(beta) < WINNING_VALUE - MAX_PLY) {
+            int staticScore = evaluate();
+            int pieceValue = _evaluator.pieceValue();
+            if (_reverseFutilityPruning
+                && staticScore - REVERSE_FUTILITY_MARGIN * depth * pieceValue
+                   >= beta) {
+                _reverseFutilityPrunes += 1;
+                return staticScore;
+            }
+            futileScore = staticScore + FUTILITY_MARGINS[depth] * pieceValue;
+            futile = _futilityPruning && futileScore <= alpha;
+        }
+
+        Move[] moves = _moves[ply];
+        int[] order = _order[ply];
+        int n = generateMoves(moves);
+        if (ply == 0 && _rootExcluded > 0) {
+            n = removeExcluded(moves, n);
+            if (n == 0) {
+                return -INFTY;
+            }
+        }
+        if (n == 0) {
+            _board.makeMove(Move.pass());
+            int score = -search(depth - 1, ply + 1, -beta, -alpha, false);
+            _board.undo();
+            if (_trace != null && !_aborted) {
+                _trace.record(ply + 1, Move.pass(), depth, alpha, beta, score,
+                              score >= beta ? SearchTrace.CUTOFF : 0);
+            }
+            _pv[ply][0] = Move.pass();
+            System.arraycopy(_pv[ply + 1], 0, _pv[ply], 1,
+                             _pvLength[ply + 1]);
+            _pvLength[ply] = _pvLength[ply + 1] + 1;
+            return score;
+        }
+        Move seedMove = followPv && ply < _seedLength ? _seed[ply] : null;
+        for (int i = 0; i < n; i += 1) {
+            order[i] = orderScore(moves[i], ply, ttMove, seedMove);
+        }
+
+        int alpha0 = alpha;
+        int best = -INFTY;
+        Move bestMove = null;
+        _expanded += 1;
+        for (int i = 0; i < n; i += 1) {
+            Move m = selectNext(moves, order, i, n);
+            boolean reduce = _lateMoveReductions && depth >= REDUCTION_DEPTH
+                && i >= FULL_DEPTH_MOVES && order[i] < KILLER_PRIORITY - 1;
+            boolean quiet = (futile && i > 0 || reduce)
+                && captures(m.toIndex()) == 0;
+            if (quiet && futile) {
+                _futilityPrunes += 1;
+                // Taken to score at most futileScore, so that the
+                // upper bound stored for this position stays sound.
+                best = Math.max(best, futileScore);
+                if (_trace != null) {
+                    _trace.record(ply + 1, m, depth, alpha, beta, alpha,
+                                  SearchTrace.PRUNED);
+                }
+                continue;
+            }
+            _children += 1;
+            _board.makeMove(m);
+            int score, flags;
+            if (quiet) {
+                _reductions += 1;
+                flags = SearchTrace.REDUCED;
+                score = -search(depth - 1 - REDUCTION, ply + 1,
+                                -alpha - 1, -alpha, false);
+                if (score > alpha && !_aborted) {
+                    _researches += 1;
+                    flags |= SearchTrace.RESEARCHED;
+                    score = -search(depth - 1, ply + 1, -beta, -alpha,
+                                    false);
+                }
+            } else {
+                flags = 0;
+                score = -search(depth - 1, ply + 1, -beta, -alpha,
+                                m == seedMove);
+            }
+            _board.undo();
+            if (_aborted) {
+                return 0;
+            }
+            if (_trace != null) {
+                if (score >= beta) {
+                    flags |= SearchTrace.CUTOFF;
+                }
+                _trace.record(ply + 1, m, depth, alpha, beta, score, flags);
+            }
+            if (score > best) {
+                best = score;
+                bestMove = m;
+                if (score > alpha) {
+                    alpha = score;
+                    _pv[ply][0] = m;
+                    System.arraycopy(_pv[ply + 1], 0, _pv[ply], 1,
+                                     _pvLength[ply + 1]);
+                    _pvLength[ply] = _pvLength[ply + 1] + 1;
+                    if (alpha >= beta) {
+                        _cutoffs += 1;
+                        if (i == 0) {
+                            _firstMoveCutoffs += 1;
+                        }
+                        recordCutoff(m, ply, depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (ply > 0 || _rootExcluded == 0) {
+            int bound = best >= beta ? LOWER : best > alpha0 ? EXACT : UPPER;
+            store(slot, key, bestMove, depth, bound, best, ply);
+        }
+        return best;
+    }
+
+    /**
+     * Remove the first _rootExcluded entries of _excluded from MOVES[0..N-1],
+     * returning the number of moves left.
+     */
+    private int removeExcluded(Move[] moves, int n) {
+        int k = 0;
+        for (int i = 0; i < n; i += 1) {
+            boolean keep = true;
+            for (int j = 0; j < _rootExcluded; j += 1) {
+                if (moves[i] == _excluded[j]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                moves[k] = moves[i];
+                k += 1;
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Return the static value of the current position from the point of
+     * view of the side to move.
+     */
+    private int evaluate() {
+        _evaluations += 1;
+        int score = _evaluator.score(_board);
+        return _board.whoseMove() == RED ? score : -score;
+    }
+
+    /**
+     * Return the value of the finished game on _board, PLY plies from the
+     * root, from the point of view of the side to move.  Quicker wins
+     * and slower losses are preferred.
+     */
+    private int terminalScore(int ply) {
+        int diff = _board.redPieces() - _board.bluePieces();
+        if (_board.whoseMove() != RED) {
+            diff = -diff;
+        }
+        if (diff > 0) {
+            return WINNING_VALUE - ply;
+        } else if (diff < 0) {
+            return -WINNING_VALUE + ply;
+        }
+        return 0;
+    }
+
+    /**
+     * Fill MOVES with the legal moves, other than pass, for the side to
+     * move on _board and return how many there are.  Extends that reach
+     * the same square lead to the same position, so only one of them is
+     * generated.
+     */
+    private int generateMoves(Move[] moves) {
+        PieceColor who = _board.whoseMove();
+        int n = 0;
+        _stamp += 1;
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                int from = Board.index(c, r);
+                if (_board.get(from) != who) {
+                    continue;
+                }
+                for (int dr = -2; dr <= 2; dr += 1) {
+                    for (int dc = -2; dc <= 2; dc += 1) {
+                        int to = Board.neighbor(from, dc, dr);
+                        if (_board.get(to) != EMPTY) {
+                            continue;
+                        }
+                        if (Math.abs(dc) <= 1 && Math.abs(dr) <= 1) {
+                            if (_extended[to] == _stamp) {
+                                continue;
+                            }
+                            _extended[to] = _stamp;
+                        }
+                        moves[n] = Move.move(from, to);
+                        n += 1;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Return the ordering priority of MOVE at PLY, given that TTMOVE and
+     * SEEDMOVE (either possibly null) are the moves suggested by the
+     * transposition table and principal variation.  Larger values are
+     * searched first.
+     */
+    private int orderScore(Move move, int ply, Move ttMove, Move seedMove) {
+        if (move == ttMove) {
+            return TT_PRIORITY;
+        } else if (move == seedMove) {
+            return PV_PRIORITY;
+        } else if (move == _killers[ply][0]) {
+            return KILLER_PRIORITY;
+        } else if (move == _killers[ply][1]) {
+            return KILLER_PRIORITY - 1;
+        }
+        int gain = captures(move.toIndex()) + (move.isExtend() ? 1 : 0);
+        return gain * GAIN_WEIGHT
+            + _history[move.fromIndex() * SQUARES + move.toIndex()];
+    }
+
+    /**
+     * Return the number of pieces the side to move would capture by
+     * moving to square TO.
+     */
+    private int captures(int to) {
+        PieceColor opp = _board.whoseMove().opposite();
+        int k = 0;
+        for (int dr = -1; dr <= 1; dr += 1) {
+            for (int dc = -1; dc <= 1; dc += 1) {
+                if (_board.get(Board.neighbor(to, dc, dr)) == opp) {
+                    k += 1;
+                }
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Move the highest-priority move among MOVES[K..N-1] (priorities in
+     * ORDER) to position K and return it.
+     */
+    private static Move selectNext(Move[] moves, int[] order, int k, int n) {
+        int best = k;
+        for (int i = k + 1; i < n; i += 1) {
+            if (order[i] > order[best]) {
+                best = i;
+            }
+        }
+        Move m = moves[best];
+        moves[best] = moves[k];
+        moves[k] = m;
+        int o = order[best];
+        order[best] = order[k];
+        order[k] = o;
+        return m;
+    }
+
+    /**
+     * Record that MOVE caused a beta cutoff at PLY with DEPTH plies
+     * remaining.
+     */
+    private void recordCutoff(Move move, int ply, int depth) {
+        if (_killers[ply][0] != move) {
+            _killers[ply][1] = _killers[ply][0];
+            _killers[ply][0] = move;
+        }
+        int h = move.fromIndex() * SQUARES + move.toIndex();
+        _history[h] = Math.min(_history[h] + depth * depth, HISTORY_LIMIT);
+    }
+
+    /**
+     * Save SCORE, a BOUND on the value of the position with hash KEY at
+     * PLY searched to DEPTH, and its best MOVE, in table entry SLOT.  An
+     * existing entry for another position is kept only if it was made
+     * during the current search and searched deeper.
+     */
+    private void store(int slot, long key, Move move, int depth, int bound,
+                       int score, int ply) {
+        long old = _ttData[slot];
+        if (_ttKeys[slot] != key
+            && ((old >>> GENERATION_SHIFT) & GENERATION_MASK) == _generation
+            && ((old >>> DEPTH_SHIFT) & DEPTH_MASK) > depth) {
+            return;
+        }
+        _ttKeys[slot] = key;
+        _ttData[slot] = encodeMove(move)
+            | (long) depth << DEPTH_SHIFT
+            | (long) bound << BOUND_SHIFT
+            | (long) _generation << GENERATION_SHIFT
+            | (long) toTable(score, ply) << SCORE_SHIFT;
+    }
+
+    /**
+     * Return SCORE, found PLY plies from the root, adjusted for storage
+     * in the transposition table so that win distances are relative to
+     * the stored position rather than the root.
+     */
+    private static int toTable(int score, int ply) {
+        if (score > WINNING_VALUE - MAX_PLY) {
+            return score + ply;
+        } else if (score < -WINNING_VALUE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Return the inverse of toTable(SCORE, PLY).
+     */
+    private static int fromTable(int score, int ply) {
+        if (score > WINNING_VALUE - MAX_PLY) {
+            return score - ply;
+        } else if (score < -WINNING_VALUE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Return a compact code for MOVE (possibly null) that fits in
+     * MOVE_MASK.
+     */
+    static long encodeMove(Move move) {
+        if (move == null) {
+            return NO_MOVE;
+        } else if (move.isPass()) {
+            return PASS_CODE;
+        }
+        return move.fromIndex() * SQUARES + move.toIndex();
+    }
+
+    /**
+     * Return the Move whose code is CODE, or null for NO_MOVE.
+     */
+    static Move decodeMove(int code) {
+        if (code == NO_MOVE) {
+            return null;
+        } else if (code == PASS_CODE) {
+            return Move.pass();
+        }
+        return Move.move(code / SQUARES, code % SQUARES);
+    }
+
+    /**
+     * Number of squares on the extended board.
+     */
+    private static final int SQUARES =
+        Board.EXTENDED_SIDE * Board.EXTENDED_SIDE;
+
+    /* Layout of a transposition-table data word. */
+    /** Mask for the move code. */
+    private static final long MOVE_MASK = 0xFFFF;
+    /** Move code meaning "no move". */
+    private static final int NO_MOVE = 0;
+    /** Move code for a pass. */
+    private static final int PASS_CODE = 0xFFFF;
+    /** Position and mask of the searched depth. */
+    private static final int DEPTH_SHIFT = 16, DEPTH_MASK = 0xFF;
+    /** Position and mask of the bound type. */
+    private static final int BOUND_SHIFT = 24, BOUND_MASK = 0x3;
+    /** Position and mask of the generation that made the entry. */
+    private static final int GENERATION_SHIFT = 26, GENERATION_MASK = 0x3F;
+    /** Position of the (signed) score. */
+    private static final int SCORE_SHIFT = 32;
+    /** Mask of node counts at which to check the clock and stop flag;
+     *  small enough that a stop takes effect within a millisecond or
+     *  two even before the search code is compiled. */
+    private static final long CHECK_INTERVAL = (1 << 8) - 1;
+    /** Bound types. */
+    private static final int EXACT = 0, LOWER = 1, UPPER = 2;
+
+    /* Move-ordering priorities. */
+    /** Priority of the transposition-table move. */
+    private static final int TT_PRIORITY = Integer.MAX_VALUE;
+    /** Priority of the principal-variation move. */
+    private static final int PV_PRIORITY = TT_PRIORITY - 1;
+    /** Priority of the first killer move. */
+    private static final int KILLER_PRIORITY = PV_PRIORITY - 2;
+    /** Weight of each piece gained by a move. */
+    private static final int GAIN_WEIGHT = 1 << 20;
+    /** Largest history-table entry. */
+    private static final int HISTORY_LIMIT = GAIN_WEIGHT - 1;
+
+    /* Reductions and pruning.  Margins are in pieces. */
+    /** Least remaining depth at which late moves are reduced. */
+    private static final int REDUCTION_DEPTH = 3;
+    /** Number of moves searched at full depth before any is reduced. */
+    private static final int FULL_DEPTH_MOVES = 3;
+    /** Plies by which late moves are reduced. */
+    private static final int REDUCTION = 1;
+    /** Greatest remaining depth at which positions are pruned on their
+     *  static scores. */
+    private static final int PRUNING_DEPTH = 2;
+    /** Futility margin by remaining depth: a quiet move gains at most
+     *  one piece, and the opponent's reply usually regains it. */
+    private static final int[] FUTILITY_MARGINS = { 0, 2, 4 };
+    /** Reverse futility margin per ply of remaining depth. */
+    private static final int REVERSE_FUTILITY_MARGIN = 4;
+
+    /** Transposition-table keys (full position hashes). */
+    private final long[] _ttKeys;
+    /** Transposition-table data words, parallel to _ttKeys. */
+    private final long[] _ttData;
+    /** Mask selecting a transposition-table slot from a hash. */
+    private final int _ttMask;
+    /** Current transposition-table generation. */
+    private int _generation;
+
+    /** History-heuristic scores, indexed by from * SQUARES + to. */
+    private final int[] _history = new int[SQUARES * SQUARES];
+    /** Two killer moves per ply. */
+    private final Move[][] _killers = new Move[MAX_PLY][2];
+    /** Move lists, one per ply. */
+    private final Move[][] _moves = new Move[MAX_PLY][MAX_MOVES];
+    /** Ordering priorities parallel to _moves. */
+    private final int[][] _order = new int[MAX_PLY][MAX_MOVES];
+    /** Marks squares already reached by an extend in generateMoves. */
+    private final int[] _extended = new int[SQUARES];
+    /** Current mark for _extended. */
+    private int _stamp;
+
+    /** Moves excluded at the root while searching for further lines. */
+    private final Move[] _excluded = new Move[MAX_MOVES];
+    /** Number of valid entries in _excluded. */
+    private int _rootExcluded;
+    /** Best moves of the lines found by the last analysis. */
+    private Move[] _lineMoves = new Move[1];
+    /** Scores of the lines found by the last analysis. */
+    private int[] _lineScores = new int[1];
+    /** Principal variations of the lines found by the last analysis. */
+    private Move[][] _linePvs = new Move[1][];
+    /** Lines being found by the current iteration, parallel to the
+     *  above. */
+    private Move[] _newMoves = new Move[1];
+    /** Scores of the lines in _newMoves. */
+    private int[] _newScores = new int[1];
+    /** Principal variations of the lines in _newMoves. */
+    private Move[][] _newPvs = new Move[1][];
+    /** Number of lines found by the last analysis. */
+    private int _lineCount;
+    /** Depth of the last complete iteration of the last analysis. */
+    private int _completedDepth;
+    /** System.nanoTime() at which to give up searching, or 0. */
+    private long _deadline;
+    /** Node limit for the current analysis, or 0. */
+    private long _maxNodes;
+    /** System.nanoTime() at the start of the last analysis. */
+    private long _start;
+    /** True iff the current search ran out of time or was stopped. */
+    private boolean _aborted;
+    /** Set by stop() to end searching early. */
+    private volatile boolean _stopRequested;
+    /** Called after each completed iteration, or null. */
+    private Consumer<Engine> _listener;
+    /** Records the moves searched, or null. */
+    private SearchTrace _trace;
+    /** True iff late move reductions are enabled. */
+    private boolean _lateMoveReductions = true;
+    /** True iff futility pruning is enabled. */
+    private boolean _futilityPruning = true;
+    /** True iff reverse futility pruning is enabled. */
+    private boolean _reverseFutilityPruning = true;
+
+    /** Triangular principal-variation table. */
+    private final Move[][] _pv = new Move[MAX_PLY + 1][MAX_PLY + 1];
+    /** Lengths of the variations in _pv. */
+    private final int[] _pvLength = new int[MAX_PLY + 1];
+    /** Principal variation from the last completed iteration or search. */
+    private final Move[] _seed = new Move[MAX_PLY + 1];
+    /** Length of _seed. */
+    private int _seedLength;
+    /** Hash of the position two plies down _seed, or 0. */
+    private long _expectedHash;
+
+    /** The board being searched. */
+    private Board _board;
+    /** Scores the leaves of the search. */
+    private Evaluator _evaluator = AI.evaluator();
+    /** Score of the last search. */
+    private int _score;
+    /** Positions visited by the last search. */
+    private long _nodes;
+    /** Static evaluations by the last search. */
+    private long _evaluations;
+    /** Beta cutoffs in the last search, and those by the first move. */
+    private long _cutoffs, _firstMoveCutoffs;
+    /** Interior positions expanded by the last search, and the moves
+     *  searched from them. */
+    private long _expanded, _children;
+    /** Moves reduced by the last search, and those searched again. */
+    private long _reductions, _researches;
+    /** Moves pruned as futile by the last search, and positions cut off
+     *  by reverse futility pruning. */
+    private long _futilityPrunes, _reverseFutilityPrunes;
+    /** Statistics of the last search. */
+    private final SearchStats _stats = new SearchStats();
+    /** Statistics of the searches since the last newGame(). */
+    private final SearchStats _gameStats = new SearchStats();
+
+}
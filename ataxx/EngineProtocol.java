@@ -0,0 +1,261 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+
+/**
+ * A line-oriented protocol through which another program can use an
+ * Engine, in the spirit of the UCI protocol for chess engines.  Unlike
+ * the command language of Game, positions are given outright, so a
+ * driver can move one warm engine from position to position.  Commands:
+ * <pre>
+ *   isready                   Reply "readyok".
+ *   newgame                   Reset the engine for an unrelated game.
+ *   position startpos [moves M...]
+ *   position POS [moves M...] Set the position to the initial one or to
+ *                             POS (in the text form of Positions), then
+ *                             make moves M (c0r0-c1r1 or "-" for a pass).
+ *   go [depth N] [movetime MS] [nodes N] [lines K] [infinite]
+ *                             Search the current position in the
+ *                             background, reporting each iteration with
+ *                             "info" lines, and finally "bestmove M".
+ *                             With no limits, search until "stop".
+ *   stop                      End the current search early.  Other
+ *                             commands wait for a search with limits
+ *                             to finish, but stop one without limits.
+ *   quit                      Exit.
+ * </pre>
+ * Each "info" line has the form
+ * <pre>
+ *   info depth D multipv K score S nodes N nps R time MS pv M...
+ * </pre>
+ * where scores are from the point of view of the side to move.
+ *
+ * @author Keith Pacana
+ */
+class EngineProtocol {
+
+    /**
+     * A protocol session reading commands from INPUT and writing
+     * replies to OUTPUT.
+     */
+    EngineProtocol(Reader input, PrintStream output) {
+        _input = new BufferedReader(input);
+        _output = output;
+        _engine.setListener(this::reportIteration);
+    }
+
+    /**
+     * Process commands until "quit" or the end of the input.
+     */
+    void process() {
+        try {
+            for (String line = _input.readLine(); line != null;
+                 line = _input.readLine()) {
+                String[] words = line.trim().split("\\s+");
+                try {
+                    if (!doCommand(words)) {
+                        finishSearch(true);
+                        return;
+                    }
+                } catch (GameException excp) {
+                    reply("info string %s", excp.getMessage());
+                }
+            }
+        } catch (IOException excp) {
+            reply("info string %s", excp.getMessage());
+        }
+        finishSearch(_infinite);
+    }
+
+    /**
+     * Perform the command whose words are WORDS.  Returns false iff the
+     * command was "quit".
+     */
+    private boolean doCommand(String[] words) {
+        switch (words[0]) {
+        case "":
+            break;
+        case "isready":
+            reply("readyok");
+            break;
+        case "newgame":
+            finishSearch(_infinite);
+            _engine.newGame();
+            break;
+        case "position":
+            finishSearch(_infinite);
+            doPosition(words);
+            break;
+        case "go":
+            finishSearch(_infinite);
+            doGo(words);
+            break;
+        case "stop":
+            finishSearch(true);
+            break;
+        case "quit":
+            return false;
+        default:
+            reply("info string unknown command: %s", words[0]);
+            break;
+        }
+        return true;
+    }
+
+    /**
+     * Perform 'position' with arguments WORDS[1..].  The current
+     * position is unchanged if the position or any of the moves is
+     * illegal.
+     */
+    private void doPosition(String[] words) {
+        Board board = new Board();
+        int k = 1;
+        if (words.length > 1 && words[1].equals("startpos")) {
+            k = 2;
+        } else {
+            StringBuilder pos = new StringBuilder();
+            while (k < words.length && !words[k].equals("moves")) {
+                pos.append(words[k]).append(' ');
+                k += 1;
+            }
+            Positions.parse(pos.toString(), board);
+        }
+        if (k < words.length && words[k].equals("moves")) {
+            for (k += 1; k < words.length; k += 1) {
+                Move move = parseMove(words[k]);
+                if (move == null || !board.legalMove(move)) {
+                    throw GameException.error("illegal move: %s", words[k]);
+                }
+                board.makeMove(move);
+            }
+        }
+        _board = board;
+    }
+
+    /**
+     * Return the move denoted by TEXT, or null if there is none.
+     */
+    private static Move parseMove(String text) {
+        if (text.equals("-") || text.equals("pass")) {
+            return Move.pass();
+        } else if (text.length() == 5 && text.charAt(2) == '-'
+                   && text.charAt(0) >= 'a' && text.charAt(0) <= 'g'
+                   && text.charAt(1) >= '1' && text.charAt(1) <= '7'
+                   && text.charAt(3) >= 'a' && text.charAt(3) <= 'g'
+                   && text.charAt(4) >= '1' && text.charAt(4) <= '7') {
+            return Move.move(text.charAt(0), text.charAt(1),
+                             text.charAt(3), text.charAt(4));
+        }
+        return null;
+    }
+
+    /**
+     * Perform 'go' with arguments WORDS[1..].
+     */
+    private void doGo(String[] words) {
+        int depth = Engine.MAX_PLY;
+        long millis = 0, nodes = 0;
+        int lines = 1;
+        try {
+            for (int k = 1; k < words.length; k += 1) {
+                switch (words[k]) {
+                case "depth":
+                    depth = Integer.parseInt(words[++k]);
+                    break;
+                case "movetime":
+                    millis = Long.parseLong(words[++k]);
+                    break;
+                case "nodes":
+                    nodes = Long.parseLong(words[++k]);
+                    break;
+                case "lines":
+                    lines = Integer.parseInt(words[++k]);
+                    break;
+                case "infinite":
+                    break;
+                default:
+                    throw GameException.error("bad go option: %s",
+                                              words[k]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw GameException.error("bad go command");
+        }
+        _infinite = depth == Engine.MAX_PLY && millis == 0 && nodes == 0;
+        final int d = depth, n = lines;
+        final long ms = millis, maxNodes = nodes;
+        final Board board = _board;
+        _engine.clearStop();
+        _search = new Thread(() -> {
+            int found = _engine.analyze(board, d, ms, maxNodes, n);
+            reply("bestmove %s",
+                  found == 0 ? Move.pass() : _engine.lineMove(0));
+        }, "search");
+        _search.start();
+    }
+
+    /**
+     * Wait for any search in progress to finish, first asking it to stop
+     * iff STOP.
+     */
+    private void finishSearch(boolean stop) {
+        if (_search == null) {
+            return;
+        }
+        if (stop) {
+            _engine.stop();
+        }
+        try {
+            _search.join();
+        } catch (InterruptedException excp) {
+            /* Ignore InterruptedException */
+        }
+        _search = null;
+    }
+
+    /**
+     * Report the iteration just completed by ENGINE.
+     */
+    private void reportIteration(Engine engine) {
+        long nanos = Math.max(engine.elapsedNanos(), 1);
+        long millis = nanos / 1_000_000;
+        long nps = engine.nodes() * 1_000_000_000L / nanos;
+        for (int k = 0; k < engine.lineCount(); k += 1) {
+            StringBuilder pv = new StringBuilder();
+            for (Move m : engine.linePrincipalVariation(k)) {
+                pv.append(' ').append(m);
+            }
+            reply("info depth %d multipv %d score %d nodes %d nps %d"
+                  + " time %d pv%s", engine.completedDepth(), k + 1,
+                  engine.lineScore(k), engine.nodes(), nps, millis, pv);
+        }
+    }
+
+    /**
+     * Write a reply formed from FORMAT and ARGS, as for String.format.
+     */
+    private void reply(String format, Object... args) {
+        synchronized (_output) {
+            _output.printf(format, args);
+            _output.println();
+            _output.flush();
+        }
+    }
+
+    /** Source of commands. */
+    private final BufferedReader _input;
+    /** Destination of replies. */
+    private final PrintStream _output;
+    /** The engine, kept warm from position to position. */
+    private final Engine _engine = new Engine();
+    /** The current position, replaced as a whole by 'position'. */
+    private Board _board = new Board();
+    /** True iff the current search has no limit. */
+    private boolean _infinite;
+    /** Thread running the current search, or null. */
+    private Thread _search;
+
+}
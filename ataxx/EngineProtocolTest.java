@@ -0,0 +1,132 @@
+package ataxx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of EngineProtocol.
+ *
+ * @author Keith Pacana
+ */
+public class EngineProtocolTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /** Return the replies to the commands in SCRIPT, one per line. */
+    private static List<String> run(String script) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream print = new PrintStream(out, true);
+        new EngineProtocol(new StringReader(script), print).process();
+        List<String> replies = new ArrayList<>();
+        for (String line : out.toString().split("\\R")) {
+            if (!line.isEmpty()) {
+                replies.add(line);
+            }
+        }
+        return replies;
+    }
+
+    /** Return the board reached from the initial position by MOVES. */
+    private static Board board(String... moves) {
+        Board b = new Board();
+        for (String m : moves) {
+            b.makeMove(m.charAt(0), m.charAt(1), m.charAt(3), m.charAt(4));
+        }
+        return b;
+    }
+
+    /** Check that REPLIES, starting at START, report the iterations of
+     *  a search to DEPTH with LINES lines and then its best move, which
+     *  must be legal on BOARD.  Returns the index of the next reply. */
+    private static int checkSearch(List<String> replies, int start,
+                                   int depth, int lines, Board board) {
+        int k = start;
+        String best = null;
+        for (int d = 1; d <= depth; d += 1) {
+            for (int line = 1; line <= lines; line += 1) {
+                String[] words = replies.get(k).split(" ");
+                k += 1;
+                assertEquals("info", words[0]);
+                assertEquals("depth", words[1]);
+                assertEquals(Integer.toString(d), words[2]);
+                assertEquals("multipv", words[3]);
+                assertEquals(Integer.toString(line), words[4]);
+                assertEquals("score", words[5]);
+                Integer.parseInt(words[6]);
+                assertEquals("pv", words[13]);
+                assertTrue(words.length > 14);
+                if (line == 1) {
+                    best = words[14];
+                }
+            }
+        }
+        assertEquals("bestmove " + best, replies.get(k));
+        Move move = Move.move(best.charAt(0), best.charAt(1),
+                              best.charAt(3), best.charAt(4));
+        assertTrue(best, board.legalMove(move));
+        return k + 1;
+    }
+
+    @Test
+    public void testSearches() {
+        List<String> replies =
+            run("isready\n"
+                + "position startpos moves a7-b7 a1-a2\n"
+                + "go depth 3\n"
+                + "position r5b/7/7/7/7/7/b5r r 0 moves a7-a6 g7-g4\n"
+                + "go depth 2 lines 2\n");
+        assertEquals("readyok", replies.get(0));
+        int k = checkSearch(replies, 1, 3, 1, board("a7-b7", "a1-a2"));
+        assertEquals("info string illegal move: g7-g4", replies.get(k));
+        k = checkSearch(replies, k + 1, 2, 2, board("a7-b7", "a1-a2"));
+        assertEquals(k, replies.size());
+    }
+
+    @Test
+    public void testStop() {
+        List<String> replies =
+            run("position r5b/7/7/7/7/7/b5r b 0\n"
+                + "go infinite\n"
+                + "stop\n"
+                + "isready\n"
+                + "quit\n");
+        String last = replies.get(replies.size() - 2);
+        assertTrue(last, last.startsWith("bestmove "));
+        Move move = Move.move(last.charAt(9), last.charAt(10),
+                              last.charAt(12), last.charAt(13));
+        Board b = new Board();
+        Positions.parse("r5b/7/7/7/7/7/b5r b 0", b);
+        assertTrue(last, b.legalMove(move));
+        assertEquals("readyok", replies.get(replies.size() - 1));
+        for (String reply : replies.subList(0, replies.size() - 2)) {
+            assertTrue(reply, reply.startsWith("info depth "));
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        List<String> replies =
+            run("position r5b/7 r\n"
+                + "position startpos moves a7-a8\n"
+                + "go depth x\n"
+                + "frobnicate\n");
+        assertEquals(4, replies.size());
+        assertTrue(replies.get(0).startsWith("info string bad position"));
+        assertEquals("info string illegal move: a7-a8", replies.get(1));
+        assertEquals("info string bad go command", replies.get(2));
+        assertEquals("info string unknown command: frobnicate",
+                     replies.get(3));
+    }
+
+}
@@ -0,0 +1,191 @@
+package ataxx;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the Engine class.
+ *
+ * @author Keith Pacana
+ */
+public class EngineTest {
+
+    /** Depth of the searches compared. */
+    private static final int DEPTH = 4;
+
+    /** The squares and side to move of a position whose value at DEPTH
+     *  differs according to whether the jump limit is near. */
+    private static final String NEAR_LIMIT =
+        "rr4b/rr3b1/rr3bb/b6/b6/7/1bb3r r";
+
+    /** Return a new Engine that searches with plain alpha-beta, whose
+     *  results do not depend on the order in which moves are searched. */
+    private static Engine plain() {
+        Engine engine = new Engine();
+        engine.setLateMoveReductions(false);
+        engine.setFutilityPruning(false);
+        engine.setReverseFutilityPruning(false);
+        return engine;
+    }
+
+    /** Check that the move and score KEEP, which has been used before,
+     *  finds for BOARD are a best move and score as found by a fresh
+     *  Engine, and return that move.  Moves of equal score may be
+     *  found in either order, so KEEP's move is checked by searching
+     *  the position it leads to. */
+    private static Move checkSearch(Engine keep, Board board) {
+        Move move = keep.findMove(board, DEPTH);
+        Engine fresh = plain();
+        fresh.findMove(board, DEPTH);
+        assertEquals(Positions.format(board),
+                     fresh.lastScore(), keep.lastScore());
+        Board next = new Board(board);
+        next.makeMove(move);
+        if (!next.gameOver()) {
+            fresh = plain();
+            fresh.findMove(next, DEPTH - 1);
+            assertEquals(move.toString(),
+                         keep.lastScore(), -fresh.lastScore());
+        }
+        return move;
+    }
+
+    @Test
+    public void testPersistentMatchesFresh() {
+        Engine keep = plain();
+        for (String first : new String[] { "a7-a6", "a7-b7" }) {
+            keep.newGame();
+            Board b = new Board();
+            b.makeMove(Move.move(first.charAt(0), first.charAt(1),
+                                 first.charAt(3), first.charAt(4)));
+            for (int ply = 0; ply < 12 && !b.gameOver(); ply += 1) {
+                b.makeMove(checkSearch(keep, b));
+            }
+        }
+    }
+
+    @Test
+    public void testJumpCountSeparatesPositions() {
+        Engine keep = plain();
+        Board b = new Board();
+        Positions.parse(NEAR_LIMIT + " 0", b);
+        checkSearch(keep, b);
+        Positions.parse(NEAR_LIMIT + " " + (Board.JUMP_LIMIT - 2), b);
+        checkSearch(keep, b);
+    }
+
+    @Test
+    public void testReusedPrincipalVariation() {
+        Engine keep = plain();
+        Board b = new Board();
+        keep.findMove(b, DEPTH);
+        Move[] pv = keep.principalVariation();
+        assertTrue(pv.length > 2);
+        b.makeMove(pv[0]);
+        b.makeMove(pv[1]);
+        checkSearch(keep, b);
+        keep.newGame();
+        assertEquals(0, keep.principalVariation().length);
+        checkSearch(keep, new Board());
+    }
+
+    /** Return the value of BOARD searched to DEPTH more plies, PLY
+     *  plies from the root, from the point of view of the side to move,
+     *  by plain alpha-beta with window ALPHA..BETA, scoring as an Engine
+     *  with the MATERIAL evaluator does. */
+    private static int alphaBeta(Board board, int depth, int ply,
+                                 int alpha, int beta) {
+        if (board.gameOver()) {
+            int diff = board.redPieces() - board.bluePieces();
+            diff = board.whoseMove() == PieceColor.RED ? diff : -diff;
+            return diff > 0 ? Engine.WINNING_VALUE - ply
+                : diff < 0 ? -Engine.WINNING_VALUE + ply : 0;
+        }
+        if (depth == 0) {
+            int score = Evaluator.MATERIAL.score(board);
+            return board.whoseMove() == PieceColor.RED ? score : -score;
+        }
+        int best = -Engine.INFTY;
+        for (int from = 0; from < Board.EXTENDED_SIDE * Board.EXTENDED_SIDE
+                 && best < beta; from += 1) {
+            if (board.get(from) != board.whoseMove()) {
+                continue;
+            }
+            for (int dr = -2; dr <= 2 && best < beta; dr += 1) {
+                for (int dc = -2; dc <= 2 && best < beta; dc += 1) {
+                    Move move =
+                        Move.move(from, Board.neighbor(from, dc, dr));
+                    if (dc == 0 && dr == 0 || !board.legalMove(move)) {
+                        continue;
+                    }
+                    board.makeMove(move);
+                    best = Math.max(best,
+                                    -alphaBeta(board, depth - 1, ply + 1,
+                                               -beta, -Math.max(alpha,
+                                                                best)));
+                    board.undo();
+                }
+            }
+        }
+        if (best == -Engine.INFTY) {
+            board.makeMove(Move.pass());
+            best = -alphaBeta(board, depth - 1, ply + 1, -beta, -alpha);
+            board.undo();
+        }
+        return best;
+    }
+
+    /** Return the statistics of a search of NEAR_LIMIT to depth 5 by an
+     *  Engine with late move reductions, futility pruning and reverse
+     *  futility pruning on iff LMR, FP and RFP. */
+    private static SearchStats search(boolean lmr, boolean fp,
+                                      boolean rfp) {
+        Engine engine = new Engine();
+        engine.setLateMoveReductions(lmr);
+        engine.setFutilityPruning(fp);
+        engine.setReverseFutilityPruning(rfp);
+        Board b = new Board();
+        Positions.parse(NEAR_LIMIT + " 0", b);
+        engine.findMove(b, 5);
+        return engine.stats();
+    }
+
+    @Test
+    public void testPruningToggles() {
+        SearchStats all = search(true, true, true);
+        assertTrue(all.reductions() > 0);
+        assertTrue(all.futilityPrunes() > 0);
+        assertTrue(all.reverseFutilityPrunes() > 0);
+        SearchStats noLmr = search(false, true, true);
+        assertEquals(0, noLmr.reductions());
+        assertEquals(0, noLmr.researches());
+        assertNotEquals(all.nodes(), noLmr.nodes());
+        SearchStats noFp = search(true, false, true);
+        assertEquals(0, noFp.futilityPrunes());
+        assertTrue(noFp.reverseFutilityPrunes() > 0);
+        assertNotEquals(all.nodes(), noFp.nodes());
+        SearchStats noRfp = search(true, true, false);
+        assertEquals(0, noRfp.reverseFutilityPrunes());
+        assertTrue(noRfp.futilityPrunes() > 0);
+        assertNotEquals(all.nodes(), noRfp.nodes());
+        SearchStats none = search(false, false, false);
+        assertEquals(0, none.reductions() + none.futilityPrunes()
+                     + none.reverseFutilityPrunes());
+    }
+
+    @Test
+    public void testPlainSearchMatchesAlphaBeta() {
+        Board b = new Board();
+        Positions.parse(NEAR_LIMIT + " 0", b);
+        for (int depth = 1; depth <= 4; depth += 1) {
+            Engine engine = plain();
+            engine.setEvaluator(Evaluator.MATERIAL);
+            engine.findMove(b, depth);
+            assertEquals("depth " + depth,
+                         alphaBeta(b, depth, 0, -Engine.INFTY, Engine.INFTY),
+                         engine.lastScore());
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package ataxx;
+
+/**
+ * A static evaluation function for Ataxx positions, as used by an
+ * Engine at the leaves of its search.
+ *
+ * @author Keith Pacana
+ */
+interface Evaluator {
+
+    /**
+     * The evaluation of AI.staticScore: the difference in piece counts.
+     */
+    Evaluator MATERIAL = AI::staticScore;
+
+    /**
+     * Return a heuristic value for BOARD: positive if it favors red,
+     * negative if it favors blue.  Its magnitude must be less than
+     * Engine.WINNING_VALUE / 2.
+     */
+    int score(Board board);
+
+    /**
+     * Return roughly the score of an advantage of one piece, by which
+     * an Engine scales its pruning margins.  By default, 1.
+     */
+    default int pieceValue() {
+        return 1;
+    }
+
+    /**
+     * Prepare BOARD, which is about to be searched and scored by me, for
+     * faster scoring (for example, by listening to its changes).  Does
+     * nothing by default.
+     */
+    default void attach(Board board) {
+    }
+
+}
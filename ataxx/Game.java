@@ -7,6 +7,7 @@ import java.io.InputStreamReader;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Random;
 import java.util.function.Consumer;
@@ -42,8 +43,20 @@ class Game {
 
     /**
      * Run a session of Ataxx gaming.  Use an AtaxxGUI iff USEGUI.
+     * Returns when the user quits or the input ends.
      */
     void process(boolean useGUI) {
+        try {
+            play();
+        } catch (Quit excp) {
+            return;
+        }
+    }
+
+    /**
+     * Play games until a Quit is thrown.
+     */
+    private void play() {
         Player red, blue;
 
         red = blue = null;
@@ -103,7 +116,7 @@ class Game {
     void doCommand() {
         try {
             Command cmnd =
-                    Command.parseCommand(_inputs.getLine("ataxx: "));
+                    Command.parseCommand(nextLine("ataxx: "));
             _commands.get(cmnd.commandType()).accept(cmnd.operands());
         } catch (GameException excp) {
             _reporter.errMsg(excp.getMessage());
@@ -120,13 +133,13 @@ class Game {
     Command getMoveCmnd(String prompt) {
         while (_state == PLAYING) {
             try {
-                Command cmnd = Command.parseCommand(_inputs.getLine(prompt));
+                Command cmnd = Command.parseCommand(nextLine(prompt));
                 Command.Type cmdtype = cmnd.commandType();
                 if (cmdtype.equals(PIECEMOVE) || cmdtype.equals(PASS)
                         || cmdtype.equals(QUIT)) {
                     return cmnd;
                 } else {
-                    doCommand();
+                    _commands.get(cmdtype).accept(cmnd.operands());
                 }
             } catch (GameException excp) {
                 _reporter.errMsg(excp.getMessage());
@@ -135,6 +148,103 @@ class Game {
         return null;
     }
 
+    /**
+     * Return the next line of input, taking first any lines put off
+     * while an AI was thinking.  If appropriate to the current input
+     * source, use PROMPT to prompt for input.
+     */
+    String nextLine(String prompt) {
+        if (!_deferred.isEmpty()) {
+            return _deferred.remove();
+        }
+        return _inputs.getLine(prompt);
+    }
+
+    /**
+     * Return ENGINE's best move in the current position, searching to
+     * DEPTH plies on a separate thread.  Meanwhile, commands are read as
+     * they arrive: 'stop' makes the search end with the best move found
+     * so far, 'quit' exits at once, 'dump' prints the board as it
+     * stands, and any other command is put off until after the move.
+     * Once a command has been put off, so is every command after it,
+     * so that commands still take effect in the order they were given.
+     */
+    Move searchMove(Engine engine, int depth) {
+        MoveEvent event = new MoveEvent();
+        event.begin();
+        boolean stopped = false;
+        Move[] result = new Move[1];
+        engine.clearStop();
+        Thread search = new Thread(() -> {
+            result[0] = engine.findMove(_board, depth);
+        }, "search");
+        search.start();
+        while (search.isAlive()) {
+            String line = _inputs.pollLine("");
+            if (line == null) {
+                try {
+                    search.join(POLL_MILLIS);
+                } catch (InterruptedException excp) {
+                    engine.stop();
+                }
+                continue;
+            }
+            if (!_deferred.isEmpty()) {
+                _deferred.add(line);
+                continue;
+            }
+            Command cmnd = Command.parseCommand(line);
+            switch (cmnd.commandType()) {
+            case STOP:
+                engine.stop();
+                stopped = true;
+                break;
+            case QUIT:
+                engine.stop();
+                while (search.isAlive()) {
+                    try {
+                        search.join();
+                    } catch (InterruptedException excp) {
+                        /* Ignore InterruptedException */
+                    }
+                }
+                doQuit(cmnd.operands());
+                break;
+            case DUMP:
+                doDump(cmnd.operands());
+                break;
+            default:
+                _deferred.add(line);
+                break;
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = _board.whoseMove().toString();
+            event.move = result[0].toString();
+            event.depth = engine.completedDepth();
+            event.nodes = engine.nodes();
+            event.stopped = stopped;
+            event.commit();
+        }
+        return result[0];
+    }
+
+    /**
+     * Return the search engine used by AI players of color COLOR.
+     * Engines are created on first use and kept for the life of this
+     * Game, so their tables carry over from move to move and from game
+     * to game; clearing the board only resets them with newGame().
+     */
+    Engine engine(PieceColor color) {
+        Engine engine = _engines.get(color);
+        if (engine == null) {
+            engine = new Engine();
+            _engines.put(color, engine);
+        }
+        return engine;
+    }
+
     /**
      * Return random integer between 0 (inclusive) and MAX>0 (exclusive).
      */
@@ -225,10 +335,17 @@ class Game {
     }
 
     /**
-     * Exit the program.
+     * End the session, returning from process().
      */
     void doQuit(String[] unused) {
-        System.exit(0);
+        throw new Quit();
+    }
+
+    /**
+     * Perform the command 'stop', which only has an effect while an AI
+     * is thinking (see searchMove).
+     */
+    void doStop(String[] unused) {
     }
 
     /**
@@ -275,6 +392,9 @@ class Game {
      */
     void doClear(String[] unused) {
         _board.clear();
+        for (Engine engine : _engines.values()) {
+            engine.newGame();
+        }
         _red = new Manual(this, RED);
         _blue = new AI(this, BLUE);
     }
@@ -283,26 +403,42 @@ class Game {
      * Perform the command 'dump'.
      */
     void doDump(String[] unused) {
-        System.out.println("===");
+        StringBuilder out = new StringBuilder("===\n");
         for (char j = '7'; j >= '1'; j = (char) (j - 1)) {
-            System.out.print(" ");
+            out.append(" ");
             for (char i = 'a'; i <= 'g'; i = (char) (i + 1)) {
                 PieceColor item = this._board.get(i, j);
                 if (item.equals(RED)) {
-                    System.out.print(" r");
+                    out.append(" r");
                 } else if (item.equals(BLUE)) {
-                    System.out.print(" b");
+                    out.append(" b");
                 } else if (item.equals(EMPTY)) {
-                    System.out.print(" -");
+                    out.append(" -");
                 } else if (item.equals(BLOCKED)) {
-                    System.out.print(" X");
+                    out.append(" X");
                 } else {
-                    System.out.print('x');
+                    out.append('x');
                 }
             }
-            System.out.println();
+            out.append("\n");
+        }
+        out.append("===");
+        _reporter.moveMsg("%s", out);
+    }
+
+    /**
+     * Perform the command 'stats'.
+     */
+    void doStats(String[] unused) {
+        for (PieceColor color : new PieceColor[] { RED, BLUE }) {
+            Engine engine = _engines.get(color);
+            if (engine != null && engine.stats().searches() > 0) {
+                _reporter.moveMsg("%s AI, last move: %s", color,
+                                  engine.stats());
+                _reporter.moveMsg("%s AI, this game: %s", color,
+                                  engine.gameStats());
+            }
         }
-        System.out.println("===");
     }
 
     /**
@@ -380,6 +516,16 @@ class Game {
         throw error("'%s' command is not allowed now.", cmnd);
     }
 
+    /**
+     * Thrown by doQuit to end process().
+     */
+    private static class Quit extends RuntimeException {
+        /** A new Quit. */
+        Quit() {
+            super(null, null, false, false);
+        }
+    }
+
     /**
      * Mapping of command types to methods that process them.
      */
@@ -397,12 +543,29 @@ class Game {
         _commands.put(PIECEMOVE, this::doMove);
         _commands.put(SEED, this::doSeed);
         _commands.put(START, this::doStart);
+        _commands.put(STOP, this::doStop);
+        _commands.put(STATS, this::doStats);
         _commands.put(LOAD, this::doLoad);
         _commands.put(QUIT, this::doQuit);
         _commands.put(ERROR, this::doError);
         _commands.put(EOF, this::doQuit);
     }
 
+    /**
+     * Milliseconds between checks for input while an AI is thinking.
+     */
+    private static final long POLL_MILLIS = 2;
+
+    /**
+     * Lines of input put off until an AI finished thinking.
+     */
+    private final ArrayDeque<String> _deferred = new ArrayDeque<>();
+
+    /**
+     * Search engines for AI players, by color.
+     */
+    private final HashMap<PieceColor, Engine> _engines = new HashMap<>();
+
     /**
      * Input source.
      */
@@ -14,19 +14,111 @@ import java.awt.HeadlessException;
 public class Main {
 
     /**
-     * Run Ataxx game.  Use display if ARGS[k] is '--display'.
+     * Run Ataxx game.  Use display if ARGS[k] is '--display'.  With
+     * '--batch IN OUT', instead analyze the positions in file IN, writing
+     * the results to OUT (see BatchAnalyzer), as modified by '--depth N',
+     * '--time MS', '--lines K', '--threads T', '--json' and '--resume'.
+     * With '--engine', speak the EngineProtocol on the standard input
+     * and output.  With '--bench', run the search benchmark (see Bench),
+     * as modified by '--depth N', '--threads T' and '--csv FILE'.
+     * '--weights FILE', which must precede '--engine', makes the AI
+     * evaluate positions with the pattern weights in FILE (see
+     * PatternEvaluator); '--nnue FILE' likewise makes it use the network
+     * in FILE (see NnueEvaluator).  '--trace DIR' records the searches
+     * for AI moves, writing one file per move to DIR (see SearchTrace
+     * and TraceTool).
      */
     public static void main(String[] args) {
         boolean useGUI;
         useGUI = false;
-        for (int i = 0; i < args.length; i += 1) {
-            switch (args[i]) {
-            case "--display":
-                useGUI = true;
-                break;
-            default:
-                usage();
-                break;
+        BatchAnalyzer batch = null;
+        Bench bench = null;
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                switch (args[i]) {
+                case "--display":
+                    useGUI = true;
+                    break;
+                case "--weights":
+                    AI.setEvaluator(PatternEvaluator.load(args[++i]));
+                    break;
+                case "--nnue":
+                    AI.setEvaluator(NnueEvaluator.load(args[++i]));
+                    break;
+                case "--trace":
+                    AI.setTraceDirectory(args[++i]);
+                    break;
+                case "--engine":
+                    new EngineProtocol(new InputStreamReader(System.in),
+                                       System.out).process();
+                    return;
+                case "--batch":
+                    batch = new BatchAnalyzer(args[i + 1], args[i + 2]);
+                    i += 2;
+                    break;
+                case "--bench":
+                    bench = new Bench();
+                    break;
+                case "--csv":
+                    benchOption(bench).setCsv(args[++i]);
+                    break;
+                case "--depth":
+                    if (bench != null) {
+                        bench.setDepth(Integer.parseInt(args[++i]));
+                    } else {
+                        batchOption(batch)
+                            .setDepth(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--time":
+                    batchOption(batch).setTime(Long.parseLong(args[++i]));
+                    break;
+                case "--lines":
+                    batchOption(batch).setLines(Integer.parseInt(args[++i]));
+                    break;
+                case "--threads":
+                    if (bench != null) {
+                        bench.setThreads(Integer.parseInt(args[++i]));
+                    } else {
+                        batchOption(batch)
+                            .setThreads(Integer.parseInt(args[++i]));
+                    }
+                    break;
+                case "--json":
+                    batchOption(batch).setJson(true);
+                    break;
+                case "--resume":
+                    batchOption(batch).setResume(true);
+                    break;
+                default:
+                    usage();
+                    break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException
+                 | NumberFormatException excp) {
+            usage();
+        } catch (GameException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+
+        if (bench != null) {
+            try {
+                bench.run(System.out);
+                return;
+            } catch (GameException excp) {
+                System.err.printf("Error: %s%n", excp.getMessage());
+                System.exit(1);
+            }
+        }
+        if (batch != null) {
+            try {
+                batch.run();
+                return;
+            } catch (GameException excp) {
+                System.err.printf("Error: %s%n", excp.getMessage());
+                System.exit(1);
             }
         }
 
@@ -60,6 +152,29 @@ public class Main {
                     new TextReporter());
         }
         game.process(false);
+        System.exit(0);
+    }
+
+    /**
+     * Return BATCH, which must be non-null because a batch option was
+     * given.
+     */
+    private static BatchAnalyzer batchOption(BatchAnalyzer batch) {
+        if (batch == null) {
+            usage();
+        }
+        return batch;
+    }
+
+    /**
+     * Return BENCH, which must be non-null because a benchmark option
+     * was given.
+     */
+    private static Bench benchOption(Bench bench) {
+        if (bench == null) {
+            usage();
+        }
+        return bench;
     }
 
     /**
@@ -68,6 +183,14 @@ public class Main {
     static void usage() {
         System.err.println("Usage: java ataxx.Main [--display] [--timing]"
                 + " [--strict]");
+        System.err.println("       (any form may begin with"
+                + " --weights FILE or --nnue FILE, and --trace DIR)");
+        System.err.println("       java ataxx.Main --batch IN OUT"
+                + " [--depth N] [--time MS] [--lines K] [--threads T]"
+                + " [--json] [--resume]");
+        System.err.println("       java ataxx.Main --engine");
+        System.err.println("       java ataxx.Main --bench [--depth N]"
+                + " [--threads T] [--csv FILE]");
         System.exit(1);
     }
 
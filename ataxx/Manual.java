@@ -34,6 +34,7 @@ class Manual extends Player {
             Move cmdmove = Move.pass();
             return cmdmove;
         }
+        game().doQuit(operands);
         return null;
     }
 
@@ -0,0 +1,307 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/**
+ * A headless match between two Engines that differ in which of their
+ * search reductions and pruning techniques are enabled, to weigh the
+ * nodes each technique saves against the strength it costs.  Games
+ * start as in SelfPlay, with random blocks and random moves, and are
+ * played in pairs from the same start with colors exchanged, so that
+ * neither side profits from a lucky opening.  Usage:
+ * <pre>
+ *     java ataxx.Match [--games N] [--depth D] [--threads T]
+ *                      [--random K] [--seed X]
+ *                      [--first TECHNIQUES] [--second TECHNIQUES]
+ * </pre>
+ * plays N pairs of games (default 50), each side searching to D plies
+ * (default 4) after K random opening moves (default 8).  TECHNIQUES is
+ * a comma-separated list drawn from "lmr" (late move reductions),
+ * "futility" and "rfp" (reverse futility pruning), or "all" or "none".
+ * By default the first side uses all of them and the second none, so
+ * that a bare match weighs the techniques together against a plain
+ * search.  The report gives the first side's wins, draws
+ * and losses, its score and the corresponding Elo difference, and the
+ * average number of nodes each side searched per move.
+ *
+ * @author Keith Pacana
+ */
+public class Match {
+
+    /**
+     * Play a match as described above.
+     */
+    public static void main(String[] args) {
+        Match match = new Match();
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                switch (args[i]) {
+                case "--games":
+                    match.setPairs(Integer.parseInt(args[++i]));
+                    break;
+                case "--depth":
+                    match.setDepth(Integer.parseInt(args[++i]));
+                    break;
+                case "--threads":
+                    match.setThreads(Integer.parseInt(args[++i]));
+                    break;
+                case "--random":
+                    match.setRandomPlies(Integer.parseInt(args[++i]));
+                    break;
+                case "--seed":
+                    match.setSeed(Long.parseLong(args[++i]));
+                    break;
+                case "--first":
+                    match.setTechniques(0, args[++i]);
+                    break;
+                case "--second":
+                    match.setTechniques(1, args[++i]);
+                    break;
+                default:
+                    usage();
+                }
+            }
+            match.run();
+            System.out.print(match.report());
+        } catch (ArrayIndexOutOfBoundsException
+                 | NumberFormatException excp) {
+            usage();
+        } catch (GameException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print a usage message and exit.
+     */
+    private static void usage() {
+        System.err.println("Usage: java ataxx.Match [--games N] [--depth D]"
+                           + " [--threads T] [--random K] [--seed X]");
+        System.err.println("           [--first TECHNIQUES]"
+                           + " [--second TECHNIQUES]");
+        System.exit(1);
+    }
+
+    /**
+     * Play PAIRS pairs of games.
+     */
+    void setPairs(int pairs) {
+        _pairs = pairs;
+    }
+
+    /**
+     * Search each move to DEPTH plies.
+     */
+    void setDepth(int depth) {
+        _depth = depth;
+    }
+
+    /**
+     * Use NUMTHREADS threads.
+     */
+    void setThreads(int numThreads) {
+        _numThreads = Math.max(1, numThreads);
+    }
+
+    /**
+     * Start each game with PLIES random moves.
+     */
+    void setRandomPlies(int plies) {
+        _randomPlies = plies;
+    }
+
+    /**
+     * Use SEED as the base seed of the openings.
+     */
+    void setSeed(long seed) {
+        _seed = seed;
+    }
+
+    /**
+     * Enable for SIDE (0 for the first, 1 for the second) exactly the
+     * techniques named in TECHNIQUES, as described above.
+     */
+    void setTechniques(int side, String techniques) {
+        boolean[] on = new boolean[TECHNIQUES.length];
+        for (String name : techniques.split(",")) {
+            if (name.equals("all")) {
+                Arrays.fill(on, true);
+            } else if (!name.equals("none")) {
+                int k = List.of(TECHNIQUES).indexOf(name);
+                if (k < 0) {
+                    throw error("unknown technique: %s", name);
+                }
+                on[k] = true;
+            }
+        }
+        _techniques[side] = on;
+    }
+
+    /**
+     * Return an Engine configured for SIDE.
+     */
+    Engine engine(int side) {
+        Engine engine = new Engine();
+        boolean[] on = _techniques[side];
+        engine.setLateMoveReductions(on[0]);
+        engine.setFutilityPruning(on[1]);
+        engine.setReverseFutilityPruning(on[2]);
+        return engine;
+    }
+
+    /**
+     * Play the match.  If a worker fails, the others stop after their
+     * current pair of games and its exception is rethrown.
+     */
+    void run() {
+        Thread[] workers = new Thread[_numThreads];
+        for (int i = 0; i < workers.length; i += 1) {
+            workers[i] = new Thread(this::work, "match-" + i);
+            workers[i].start();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException excp) {
+            throw error("match interrupted");
+        }
+        if (_failure != null) {
+            throw _failure;
+        }
+    }
+
+    /**
+     * Body of a worker thread: play pairs of games until all have been
+     * played or a worker has failed.  The first failure is kept for
+     * run() to rethrow.
+     */
+    private void work() {
+        try {
+            Engine[] engines = { engine(0), engine(1) };
+            Board board = new Board();
+            List<Move> moves = new ArrayList<>();
+            for (long pair = _nextPair.getAndIncrement();
+                 pair < _pairs && _failure == null;
+                 pair = _nextPair.getAndIncrement()) {
+                for (int firstColor = 0; firstColor < 2; firstColor += 1) {
+                    Random random =
+                        new Random(SelfPlay.gameSeed(_seed, pair));
+                    SelfPlay.startGame(board, random, _randomPlies, moves);
+                    int diff = play(board, engines, firstColor);
+                    if (diff > 0) {
+                        _wins.incrementAndGet();
+                    } else if (diff < 0) {
+                        _losses.incrementAndGet();
+                    } else {
+                        _draws.incrementAndGet();
+                    }
+                }
+            }
+        } catch (RuntimeException excp) {
+            synchronized (this) {
+                if (_failure == null) {
+                    _failure = excp;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finish the game on BOARD between ENGINES, the first of which plays
+     * red iff FIRSTCOLOR is 0.  Return the first engine's lead in
+     * pieces at the end.
+     */
+    private int play(Board board, Engine[] engines, int firstColor) {
+        for (Engine engine : engines) {
+            engine.newGame();
+        }
+        while (!board.gameOver() && board.numMoves() < SelfPlay.MAX_PLIES) {
+            int side = (board.whoseMove() == RED ? 0 : 1) ^ firstColor;
+            board.makeMove(engines[side].findMove(board, _depth));
+            _nodes[side].addAndGet(engines[side].nodes());
+            _searches[side].incrementAndGet();
+        }
+        int diff = board.redPieces() - board.bluePieces();
+        return firstColor == 0 ? diff : -diff;
+    }
+
+    /**
+     * Return a report of the match.
+     */
+    String report() {
+        long wins = _wins.get(), draws = _draws.get(),
+            losses = _losses.get();
+        long games = wins + draws + losses;
+        double score = games == 0 ? 0.5 : (wins + 0.5 * draws) / games;
+        double clipped = Math.max(1e-3, Math.min(1 - 1e-3, score));
+        StringBuilder out = new StringBuilder();
+        for (int side = 0; side < 2; side += 1) {
+            out.append(String.format("%-6s: %-20s %10.0f nodes/move%n",
+                                     side == 0 ? "first" : "second",
+                                     describe(_techniques[side]),
+                                     (double) _nodes[side].get()
+                                     / Math.max(1, _searches[side].get())));
+        }
+        out.append(String.format("first: +%d =%d -%d, score %.1f%%,"
+                                 + " Elo %+.0f%n",
+                                 wins, draws, losses, 100 * score,
+                                 -400 * Math.log10(1 / clipped - 1)));
+        return out.toString();
+    }
+
+    /**
+     * Return the names of the techniques enabled in ON, separated by
+     * commas, or "none".
+     */
+    private static String describe(boolean[] on) {
+        List<String> names = new ArrayList<>();
+        for (int k = 0; k < on.length; k += 1) {
+            if (on[k]) {
+                names.add(TECHNIQUES[k]);
+            }
+        }
+        return names.isEmpty() ? "none" : String.join(",", names);
+    }
+
+    /** Names of the techniques, in the order of _techniques. */
+    private static final String[] TECHNIQUES = { "lmr", "futility", "rfp" };
+
+    /** Number of pairs of games. */
+    private int _pairs = 50;
+    /** Search depth. */
+    private int _depth = 4;
+    /** Number of threads. */
+    private int _numThreads = Runtime.getRuntime().availableProcessors();
+    /** Number of random opening moves. */
+    private int _randomPlies = 8;
+    /** Base seed. */
+    private long _seed = 0x3a7c_4f11L;
+    /** Techniques enabled for each side. */
+    private final boolean[][] _techniques = {
+        { true, true, true }, { false, false, false },
+    };
+
+    /** Number of the next pair of games to play. */
+    private final AtomicLong _nextPair = new AtomicLong();
+    /** Results of the first side. */
+    private final AtomicLong _wins = new AtomicLong(),
+        _draws = new AtomicLong(), _losses = new AtomicLong();
+    /** Nodes searched by each side. */
+    private final AtomicLong[] _nodes = { new AtomicLong(), new AtomicLong() };
+    /** Searches made by each side. */
+    private final AtomicLong[] _searches = {
+        new AtomicLong(), new AtomicLong(),
+    };
+    /** The first error in a worker, or null. */
+    private volatile RuntimeException _failure;
+
+}
@@ -0,0 +1,56 @@
+package ataxx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of Match.
+ *
+ * @author Keith Pacana
+ */
+public class MatchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(60);
+
+    /** Return a new Match of PAIRS pairs of shallow games on two
+     *  threads. */
+    private static Match match(int pairs) {
+        Match match = new Match();
+        match.setPairs(pairs);
+        match.setDepth(1);
+        match.setThreads(2);
+        return match;
+    }
+
+    @Test
+    public void testDefaults() {
+        Match match = match(2);
+        match.run();
+        String[] lines = match.report().split("\n");
+        assertTrue(lines[0].matches("first : lmr,futility,rfp .*"));
+        assertTrue(lines[1].matches("second: none .*"));
+        assertTrue(lines[2].matches("first: \\+\\d+ =\\d+ -\\d+,.*"));
+    }
+
+    @Test
+    public void testWorkerFailure() {
+        Evaluator evaluator = AI.evaluator();
+        AI.setEvaluator(board -> {
+            throw new IllegalStateException("evaluator failed");
+        });
+        try {
+            match(2).run();
+            fail("worker failure not reported");
+        } catch (IllegalStateException excp) {
+            assertEquals("evaluator failed", excp.getMessage());
+        } finally {
+            AI.setEvaluator(evaluator);
+        }
+    }
+
+}
@@ -50,6 +50,20 @@ class Move {
                         [col1 - 'a' + 2][row1 - '1' + 2];
     }
 
+    /**
+     * A factory method that returns the Move from the square with
+     * linearized index FROM to the square with linearized index TO, or
+     * null if no such move is ever possible.
+     */
+    static Move move(int from, int to) {
+        if (from < 0 || to < 0 || from >= EXTENDED_SIDE * EXTENDED_SIDE
+                || to >= EXTENDED_SIDE * EXTENDED_SIDE) {
+            return null;
+        }
+        return ALL_MOVES[from % EXTENDED_SIDE][from / EXTENDED_SIDE]
+                [to % EXTENDED_SIDE][to / EXTENDED_SIDE];
+    }
+
     /**
      * Returns a pass.
      */
@@ -137,7 +151,7 @@ class Move {
         if (isPass()) {
             return "-";
         }
-        return "x";
+        return "" + _col0 + _row0 + "-" + _col1 + _row1;
     }
 
     /**
@@ -0,0 +1,42 @@
+package ataxx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for one move chosen by an AI player in a
+ * Game, spanning the time from the start of its search to its reply,
+ * including any commands handled meanwhile.
+ *
+ * @author Keith Pacana
+ */
+@Name("ataxx.Move")
+@Label("AI Move")
+@Category("Ataxx")
+@Description("One move chosen by an AI player")
+class MoveEvent extends Event {
+
+    /** Color of the player. */
+    @Label("Player")
+    String player;
+
+    /** Move chosen. */
+    @Label("Move")
+    String move;
+
+    /** Deepest iteration completed. */
+    @Label("Depth")
+    int depth;
+
+    /** Positions visited. */
+    @Label("Nodes")
+    long nodes;
+
+    /** True iff the search was cut short by a stop command. */
+    @Label("Stopped")
+    boolean stopped;
+
+}
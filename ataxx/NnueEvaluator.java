@@ -0,0 +1,392 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/**
+ * An Evaluator using a small quantized neural network in the style of
+ * NNUE.  The input features are the contents of each square (red, blue
+ * or blocked), seen from each side's perspective: red sees the board as
+ * it is, and blue sees it flipped top to bottom with the colors
+ * exchanged.  Each perspective's features feed an accumulator of
+ * HIDDEN int16 sums (its bias plus the weight columns of the features
+ * present).  The value of a position is
+ * <pre>
+ *     (sum over i of crelu(mine[i]) * OUT[i] + crelu(theirs[i]) *
+ *      OUT[HIDDEN + i] + OUT_BIAS) / OUT_SCALE
+ * </pre>
+ * for the side to move, where mine and theirs are the accumulators of
+ * the side to move and of the other side, and crelu clips to 0..CLIP.
+ * <p>
+ * The accumulators of a Board that has been attach()ed are kept up to
+ * date as its squares change, by subtracting the weight columns of the
+ * features that disappear and adding those that appear, so only changed
+ * squares cost anything.  The vector arithmetic is done by a Kernel: a
+ * Vector API implementation (ataxx.VectorKernel, built in the simd
+ * directory) if it is on the class path and the jdk.incubator.vector
+ * module is present, and otherwise plain loops.
+ * <p>
+ * Weights files hold, as by DataOutputStream, the magic number MAGIC,
+ * the format version, HIDDEN, OUT_SCALE, the piece value (the score of
+ * one piece, as an int), the FEATURES * HIDDEN input
+ * weights (feature by feature), the HIDDEN biases, the 2 * HIDDEN
+ * output weights, and OUT_BIAS (an int); all other weights are shorts.
+ *
+ * @author Keith Pacana
+ */
+class NnueEvaluator implements Evaluator {
+
+    /** Magic number identifying a network file. */
+    static final int MAGIC = 0x4154584e;
+    /** Version of the network format. */
+    static final int VERSION = 2;
+    /** Kinds of square contents that are features. */
+    static final int KINDS = 3;
+    /** Number of input features per perspective. */
+    static final int FEATURES = KINDS * Board.SIDE * Board.SIDE;
+    /** Upper limit of the clipped ReLU. */
+    static final int CLIP = 255;
+    /** Largest hidden layer allowed (so that a clipped dot product of
+     *  int16 weights cannot overflow an int). */
+    static final int MAX_HIDDEN = 256;
+
+    /**
+     * Arithmetic on int16 vectors, as used by NnueEvaluator.
+     */
+    interface Kernel {
+        /** Add W[OFF .. OFF+N-1] to ACC[0 .. N-1]. */
+        void add(short[] acc, short[] w, int off, int n);
+
+        /** Subtract W[OFF .. OFF+N-1] from ACC[0 .. N-1]. */
+        void subtract(short[] acc, short[] w, int off, int n);
+
+        /** Return the sum of min(max(ACC[i], 0), CLIP) * W[OFF+i] for
+         *  0 <= i < N. */
+        int clippedDot(short[] acc, short[] w, int off, int n);
+    }
+
+    /**
+     * A network with HIDDEN accumulator entries, whose feature weights
+     * (feature by feature), accumulator biases, output weights, output
+     * bias and output scale are INPUT, BIAS, OUT, OUTBIAS and OUTSCALE,
+     * and whose scores count PIECEVALUE per piece.  The arrays are not
+     * copied.
+     */
+    NnueEvaluator(int hidden, short[] input, short[] bias, short[] out,
+                  int outBias, int outScale, int pieceValue) {
+        if (hidden <= 0 || hidden > MAX_HIDDEN
+            || input.length != FEATURES * hidden || bias.length != hidden
+            || out.length != 2 * hidden || outScale <= 0
+            || pieceValue <= 0) {
+            throw error("malformed network");
+        }
+        _hidden = hidden;
+        _input = input;
+        _bias = bias;
+        _out = out;
+        _outBias = outBias;
+        _outScale = outScale;
+        _pieceValue = pieceValue;
+    }
+
+    /**
+     * Return a network of two hidden units per perspective that counts
+     * its own and the opponent's pieces, so that its score equals
+     * AI.staticScore: a check on the machinery and a starting point for
+     * training.
+     */
+    static NnueEvaluator material() {
+        int hidden = 2;
+        short[] input = new short[FEATURES * hidden];
+        for (int sq = 0; sq < Board.SIDE * Board.SIDE; sq += 1) {
+            input[(sq * KINDS + MINE) * hidden] = 1;
+            input[(sq * KINDS + THEIRS) * hidden + 1] = 1;
+        }
+        short[] out = { 1, -1, 0, 0 };
+        return new NnueEvaluator(hidden, input, new short[hidden], out,
+                                 0, 1, 1);
+    }
+
+    /**
+     * Return the Kernel in use.
+     */
+    static Kernel kernel() {
+        return KERNEL;
+    }
+
+    @Override
+    public int score(Board board) {
+        Board.SquareListener listener = board.squareListener();
+        Accumulators acc;
+        if (listener instanceof Accumulators
+            && ((Accumulators) listener).owner() == this) {
+            acc = (Accumulators) listener;
+        } else {
+            acc = new Accumulators(board);
+        }
+        boolean red = board.whoseMove() == RED;
+        short[] mine = red ? acc._red : acc._blue,
+            theirs = red ? acc._blue : acc._red;
+        long sum = (long) KERNEL.clippedDot(mine, _out, 0, _hidden)
+            + KERNEL.clippedDot(theirs, _out, _hidden, _hidden) + _outBias;
+        long score = sum / _outScale;
+        score = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+        return (int) (red ? score : -score);
+    }
+
+    @Override
+    public int pieceValue() {
+        return _pieceValue;
+    }
+
+    @Override
+    public void attach(Board board) {
+        board.setSquareListener(new Accumulators(board));
+    }
+
+    /**
+     * Return the NnueEvaluator whose network is in the file named NAME.
+     */
+    static NnueEvaluator load(String name) {
+        try (InputStream in =
+             new BufferedInputStream(new FileInputStream(name))) {
+            return read(in, name);
+        } catch (IOException excp) {
+            throw error("could not read network from %s", name);
+        }
+    }
+
+    /**
+     * Return the NnueEvaluator whose network is read from IN, which is
+     * described as NAME in error messages.
+     */
+    static NnueEvaluator read(InputStream in, String name)
+        throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw error("%s is not a network file", name);
+        }
+        int hidden = data.readInt(), outScale = data.readInt(),
+            pieceValue = data.readInt();
+        if (hidden <= 0 || hidden > MAX_HIDDEN || outScale <= 0
+            || pieceValue <= 0) {
+            throw error("%s: bad network dimensions", name);
+        }
+        short[] input = readShorts(data, FEATURES * hidden),
+            bias = readShorts(data, hidden),
+            out = readShorts(data, 2 * hidden);
+        int outBias = data.readInt();
+        return new NnueEvaluator(hidden, input, bias, out, outBias,
+                                 outScale, pieceValue);
+    }
+
+    /**
+     * Write my network to OUT.
+     */
+    void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(_hidden);
+        data.writeInt(_outScale);
+        data.writeInt(_pieceValue);
+        for (short[] weights : new short[][] { _input, _bias, _out }) {
+            for (short w : weights) {
+                data.writeShort(w);
+            }
+        }
+        data.writeInt(_outBias);
+        data.flush();
+    }
+
+    /**
+     * Write my network to the file named NAME.
+     */
+    void save(String name) {
+        try (OutputStream out =
+             new BufferedOutputStream(new FileOutputStream(name))) {
+            write(out);
+        } catch (IOException excp) {
+            throw error("could not write network to %s", name);
+        }
+    }
+
+    /**
+     * Return N shorts read from DATA.
+     */
+    private static short[] readShorts(DataInputStream data, int n)
+        throws IOException {
+        short[] result = new short[n];
+        for (int i = 0; i < n; i += 1) {
+            result[i] = data.readShort();
+        }
+        return result;
+    }
+
+    /**
+     * The two accumulators of one Board, updated as its squares change.
+     */
+    private class Accumulators implements Board.SquareListener {
+
+        /**
+         * The accumulators of BOARD's current position.
+         */
+        Accumulators(Board board) {
+            System.arraycopy(_bias, 0, _red, 0, _hidden);
+            System.arraycopy(_bias, 0, _blue, 0, _hidden);
+            for (int k = 0; k < SQUARES; k += 1) {
+                int sq = LINEAR[k];
+                PieceColor v = board.get(sq);
+                if (v != EMPTY) {
+                    KERNEL.add(_red, _input, redColumn(sq, v), _hidden);
+                    KERNEL.add(_blue, _input, blueColumn(sq, v), _hidden);
+                }
+            }
+        }
+
+        @Override
+        public void squareChanged(int sq, PieceColor old, PieceColor now) {
+            if (old != EMPTY) {
+                KERNEL.subtract(_red, _input, redColumn(sq, old), _hidden);
+                KERNEL.subtract(_blue, _input, blueColumn(sq, old),
+                                _hidden);
+            }
+            if (now != EMPTY) {
+                KERNEL.add(_red, _input, redColumn(sq, now), _hidden);
+                KERNEL.add(_blue, _input, blueColumn(sq, now), _hidden);
+            }
+        }
+
+        /**
+         * Return the NnueEvaluator I belong to.
+         */
+        NnueEvaluator owner() {
+            return NnueEvaluator.this;
+        }
+
+        /** Red's accumulator. */
+        private final short[] _red = new short[_hidden];
+        /** Blue's accumulator. */
+        private final short[] _blue = new short[_hidden];
+    }
+
+    /**
+     * Return the offset in _input of the weight column of V on the
+     * square with linearized index SQ, from red's perspective.
+     */
+    private int redColumn(int sq, PieceColor v) {
+        return (RED_SQUARE[sq] * KINDS + RED_KIND[v.ordinal()]) * _hidden;
+    }
+
+    /**
+     * Return the offset in _input of the weight column of V on the
+     * square with linearized index SQ, from blue's perspective.
+     */
+    private int blueColumn(int sq, PieceColor v) {
+        return (BLUE_SQUARE[sq] * KINDS + BLUE_KIND[v.ordinal()]) * _hidden;
+    }
+
+    /**
+     * Return the Vector API kernel if it can be loaded, and otherwise
+     * the scalar kernel.
+     */
+    private static Kernel findKernel() {
+        try {
+            return (Kernel) Class.forName(VECTOR_KERNEL)
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError
+                 | ClassCastException excp) {
+            return new ScalarKernel();
+        }
+    }
+
+    /**
+     * The Kernel used when the Vector API is unavailable.
+     */
+    static class ScalarKernel implements Kernel {
+        @Override
+        public void add(short[] acc, short[] w, int off, int n) {
+            for (int i = 0; i < n; i += 1) {
+                acc[i] += w[off + i];
+            }
+        }
+
+        @Override
+        public void subtract(short[] acc, short[] w, int off, int n) {
+            for (int i = 0; i < n; i += 1) {
+                acc[i] -= w[off + i];
+            }
+        }
+
+        @Override
+        public int clippedDot(short[] acc, short[] w, int off, int n) {
+            int sum;
+            sum = 0;
+            for (int i = 0; i < n; i += 1) {
+                sum += Math.max(0, Math.min(CLIP, acc[i])) * w[off + i];
+            }
+            return sum;
+        }
+    }
+
+    /** Number of accumulator entries per perspective. */
+    private final int _hidden;
+    /** Feature weights, feature by feature. */
+    private final short[] _input;
+    /** Accumulator biases. */
+    private final short[] _bias;
+    /** Output weights: the side to move's, then the other side's. */
+    private final short[] _out;
+    /** Output bias. */
+    private final int _outBias;
+    /** Divisor of the output. */
+    private final int _outScale;
+    /** Score of one piece. */
+    private final int _pieceValue;
+
+    /** Name of the Vector API kernel class. */
+    private static final String VECTOR_KERNEL = "ataxx.VectorKernel";
+    /** The kernel in use. */
+    private static final Kernel KERNEL = findKernel();
+    /** Largest score magnitude returned. */
+    private static final int MAX_SCORE = Engine.WINNING_VALUE / 2 - 1;
+    /** Number of squares. */
+    private static final int SQUARES = Board.SIDE * Board.SIDE;
+    /** Feature kinds, relative to the perspective's side. */
+    private static final int MINE = 0, THEIRS = 1, BLOCK = 2;
+    /** Linearized index of each square, in row-major order from a1. */
+    private static final int[] LINEAR = new int[SQUARES];
+    /** Square number (0 .. SQUARES-1) of each linearized index, as seen
+     *  by red and by blue. */
+    private static final int[] RED_SQUARE =
+        new int[Board.EXTENDED_SIDE * Board.EXTENDED_SIDE],
+        BLUE_SQUARE = new int[Board.EXTENDED_SIDE * Board.EXTENDED_SIDE];
+    /** Feature kind of each PieceColor (by ordinal), as seen by red and
+     *  by blue. */
+    private static final int[] RED_KIND = new int[PieceColor.values().length],
+        BLUE_KIND = new int[PieceColor.values().length];
+
+    static {
+        for (int k = 0; k < SQUARES; k += 1) {
+            int col = k % Board.SIDE, row = k / Board.SIDE;
+            int sq = Board.index((char) ('a' + col), (char) ('1' + row));
+            LINEAR[k] = sq;
+            RED_SQUARE[sq] = k;
+            BLUE_SQUARE[sq] = (Board.SIDE - 1 - row) * Board.SIDE + col;
+        }
+        RED_KIND[RED.ordinal()] = BLUE_KIND[BLUE.ordinal()] = MINE;
+        RED_KIND[BLUE.ordinal()] = BLUE_KIND[RED.ordinal()] = THEIRS;
+        RED_KIND[BLOCKED.ordinal()] = BLUE_KIND[BLOCKED.ordinal()] = BLOCK;
+    }
+
+}
@@ -0,0 +1,139 @@
+package ataxx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of NnueEvaluator.
+ *
+ * @author Keith Pacana
+ */
+public class NnueEvaluatorTest {
+
+    /** Return a random legal non-pass move in B, or null if none. */
+    private static Move randomMove(Board b, Random random) {
+        List<Move> moves = new ArrayList<>();
+        for (Move m : CANDIDATES.possibleMoves(b)) {
+            if (m != null && !m.isPass() && b.legalMove(m)) {
+                moves.add(m);
+            }
+        }
+        return moves.isEmpty() ? null
+            : moves.get(random.nextInt(moves.size()));
+    }
+
+    /** Return a network of HIDDEN units with weights from RANDOM. */
+    private static NnueEvaluator randomNetwork(int hidden, Random random) {
+        short[] input = new short[NnueEvaluator.FEATURES * hidden],
+            bias = new short[hidden], out = new short[2 * hidden];
+        for (short[] weights : new short[][] { input, bias, out }) {
+            for (int i = 0; i < weights.length; i += 1) {
+                weights[i] = (short) (random.nextInt(121) - 60);
+            }
+        }
+        return new NnueEvaluator(hidden, input, bias, out, 7, 16, 3);
+    }
+
+    @Test
+    public void testMaterial() {
+        NnueEvaluator eval = NnueEvaluator.material();
+        Board b = new Board();
+        b.setBlock("c3");
+        eval.attach(b);
+        Random random = new Random(1);
+        for (int k = 0; k < 40 && !b.gameOver(); k += 1) {
+            assertEquals(AI.staticScore(b), eval.score(b));
+            assertEquals(AI.staticScore(b), eval.score(new Board(b)));
+            Move m = randomMove(b, random);
+            if (m == null) {
+                b.pass();
+            } else {
+                b.makeMove(m);
+            }
+        }
+    }
+
+    @Test
+    public void testIncremental() {
+        Random random = new Random(2);
+        NnueEvaluator eval = randomNetwork(37, random);
+        Board b = new Board();
+        b.setBlock("b3");
+        eval.attach(b);
+        int moves;
+        moves = 0;
+        for (int k = 0; k < 60 && !b.gameOver(); k += 1) {
+            Move m = randomMove(b, random);
+            if (m == null) {
+                b.pass();
+            } else {
+                b.makeMove(m);
+            }
+            moves += 1;
+            assertEquals(eval.score(new Board(b)), eval.score(b));
+        }
+        for (; moves > 0; moves -= 1) {
+            b.undo();
+            assertEquals(eval.score(new Board(b)), eval.score(b));
+        }
+    }
+
+    @Test
+    public void testKernels() {
+        Random random = new Random(3);
+        NnueEvaluator.Kernel scalar = new NnueEvaluator.ScalarKernel(),
+            kernel = NnueEvaluator.kernel();
+        for (int n : new int[] { 1, 7, 16, 37, 64 }) {
+            short[] acc = new short[n], w = new short[n + 5];
+            for (int i = 0; i < n; i += 1) {
+                acc[i] = (short) (random.nextInt(700) - 200);
+            }
+            for (int i = 0; i < w.length; i += 1) {
+                w[i] = (short) (random.nextInt(2001) - 1000);
+            }
+            assertEquals(scalar.clippedDot(acc, w, 5, n),
+                         kernel.clippedDot(acc, w, 5, n));
+            short[] a1 = acc.clone(), a2 = acc.clone();
+            scalar.add(a1, w, 3, n);
+            kernel.add(a2, w, 3, n);
+            assertArrayEquals(a1, a2);
+            scalar.subtract(a1, w, 2, n);
+            kernel.subtract(a2, w, 2, n);
+            assertArrayEquals(a1, a2);
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        NnueEvaluator eval = randomNetwork(8, new Random(4));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        eval.write(out);
+        NnueEvaluator copy = NnueEvaluator.read(
+            new ByteArrayInputStream(out.toByteArray()), "test");
+        Board b = new Board();
+        b.makeMove(Move.move('a', '7', 'b', '6'));
+        assertEquals(eval.score(b), copy.score(b));
+    }
+
+    @Test
+    public void testSearchAgrees() {
+        Engine plain = new Engine(), nnue = new Engine();
+        nnue.setEvaluator(NnueEvaluator.material());
+        Board b = new Board();
+        assertEquals(plain.findMove(b, 3), nnue.findMove(b, 3));
+        assertEquals(plain.lineScore(0), nnue.lineScore(0));
+        assertEquals(plain.nodes(), nnue.nodes());
+    }
+
+    /** Source of candidate moves. */
+    private static final AI CANDIDATES = new AI(null, PieceColor.RED);
+
+}
@@ -0,0 +1,377 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/**
+ * An Evaluator that scores a position by pattern tables, in the manner
+ * of Othello programs.  The board is covered by a fixed set of
+ * patterns: its rows and columns (grouped by distance from the edge),
+ * the 3x3 region in each corner, and the 3x3 region in the center.  The
+ * contents of a pattern's squares, read as the digits of a base-3
+ * number (0 for empty or blocked, 1 for red, 2 for blue), index a table
+ * of weights shared by every pattern of the same kind; the value of a
+ * position is the sum of the weights of its patterns.
+ * <p>
+ * The pattern indices of a Board that has been attach()ed are kept up
+ * to date as its squares change, so that scoring it costs one table
+ * lookup per pattern.  Weight tables are read from and written to
+ * binary files: the magic number MAGIC, the format version, the number
+ * of kinds of pattern, the piece value, and then for each kind the
+ * length of its table followed by its weights, all as by
+ * DataOutputStream.
+ *
+ * @author Keith Pacana
+ */
+class PatternEvaluator implements Evaluator {
+
+    /** Kinds of pattern: the edge lines, the lines next to them, the
+     *  lines next to those, the middle lines, the corner regions, and
+     *  the central region. */
+    static final int EDGE = 0, LINE2 = 1, LINE3 = 2, MIDDLE = 3,
+        CORNER = 4, CENTER = 5, KINDS = 6;
+
+    /** Number of patterns covering the board. */
+    static final int PATTERNS;
+
+    /** Magic number identifying a weights file. */
+    static final int MAGIC = 0x41545850;
+    /** Version of the weights format. */
+    static final int VERSION = 2;
+
+    /**
+     * A PatternEvaluator with weights WEIGHTS, indexed by kind of
+     * pattern and pattern index, whose scores count PIECEVALUE per
+     * piece.  Its tables must have the lengths given by tableSize.
+     * WEIGHTS is not copied.
+     */
+    PatternEvaluator(short[][] weights, int pieceValue) {
+        if (pieceValue <= 0) {
+            throw error("piece value must be positive");
+        } else if (weights.length != KINDS) {
+            throw error("need %d weight tables", KINDS);
+        }
+        for (int k = 0; k < KINDS; k += 1) {
+            if (weights[k].length != tableSize(k)) {
+                throw error("weight table %d has wrong length", k);
+            }
+        }
+        _weights = weights;
+        _pieceValue = pieceValue;
+    }
+
+    /**
+     * Return a PatternEvaluator whose score is twice AI.staticScore (each
+     * square lies in one row and one column, each of which counts its
+     * pieces): a neutral starting point for tuning.
+     */
+    static PatternEvaluator material() {
+        short[][] weights = new short[KINDS][];
+        for (int k = 0; k < KINDS; k += 1) {
+            weights[k] = new short[tableSize(k)];
+            if (k == CORNER || k == CENTER) {
+                continue;
+            }
+            for (int i = 0; i < weights[k].length; i += 1) {
+                int sum;
+                sum = 0;
+                for (int n = i; n > 0; n /= 3) {
+                    sum += n % 3 == RED_DIGIT ? 1 : n % 3 == BLUE_DIGIT
+                        ? -1 : 0;
+                }
+                weights[k][i] = (short) sum;
+            }
+        }
+        return new PatternEvaluator(weights, 2);
+    }
+
+    /**
+     * Return the length of the weight table for patterns of kind KIND.
+     */
+    static int tableSize(int kind) {
+        return POWERS[KIND_SIZES[kind]];
+    }
+
+    /**
+     * Return the kind of pattern number P (0 <= P < PATTERNS).
+     */
+    static int kind(int p) {
+        return PATTERN_KINDS[p];
+    }
+
+    /**
+     * Store the pattern indices of BOARD into INDICES, which has at
+     * least PATTERNS elements.
+     */
+    static void indices(Board board, int[] indices) {
+        for (int p = 0; p < PATTERNS; p += 1) {
+            int index;
+            index = 0;
+            for (int k = SQUARES[p].length - 1; k >= 0; k -= 1) {
+                index = 3 * index + DIGITS[board.get(SQUARES[p][k])
+                                           .ordinal()];
+            }
+            indices[p] = index;
+        }
+    }
+
+    /**
+     * Return my weight tables (not a copy).
+     */
+    short[][] weights() {
+        return _weights;
+    }
+
+    @Override
+    public int score(Board board) {
+        Board.SquareListener listener = board.squareListener();
+        int[] indices;
+        if (listener instanceof Indices
+            && ((Indices) listener).owner() == this) {
+            indices = ((Indices) listener)._index;
+        } else {
+            indices = new int[PATTERNS];
+            indices(board, indices);
+        }
+        int sum;
+        sum = 0;
+        for (int p = 0; p < PATTERNS; p += 1) {
+            sum += _weights[PATTERN_KINDS[p]][indices[p]];
+        }
+        return sum;
+    }
+
+    @Override
+    public int pieceValue() {
+        return _pieceValue;
+    }
+
+    @Override
+    public void attach(Board board) {
+        board.setSquareListener(new Indices(board));
+    }
+
+    /**
+     * Return the PatternEvaluator whose weights are in the file named
+     * NAME.
+     */
+    static PatternEvaluator load(String name) {
+        try (InputStream in =
+             new BufferedInputStream(new FileInputStream(name))) {
+            return read(in, name);
+        } catch (IOException excp) {
+            throw error("could not read weights from %s", name);
+        }
+    }
+
+    /**
+     * Return the PatternEvaluator whose weights are read from IN,
+     * which is described as NAME in error messages.
+     */
+    static PatternEvaluator read(InputStream in, String name)
+        throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION
+            || data.readInt() != KINDS) {
+            throw error("%s is not a weights file", name);
+        }
+        int pieceValue = data.readInt();
+        short[][] weights = new short[KINDS][];
+        for (int k = 0; k < KINDS; k += 1) {
+            if (data.readInt() != tableSize(k)) {
+                throw error("%s: weight table %d has wrong length",
+                            name, k);
+            }
+            weights[k] = new short[tableSize(k)];
+            for (int i = 0; i < weights[k].length; i += 1) {
+                weights[k][i] = data.readShort();
+            }
+        }
+        if (pieceValue <= 0) {
+            throw error("%s: bad piece value", name);
+        }
+        return new PatternEvaluator(weights, pieceValue);
+    }
+
+    /**
+     * Write my weights to the file named NAME.
+     */
+    void save(String name) {
+        try (OutputStream out =
+             new BufferedOutputStream(new FileOutputStream(name))) {
+            write(out);
+        } catch (IOException excp) {
+            throw error("could not write weights to %s", name);
+        }
+    }
+
+    /**
+     * Write my weights to OUT.
+     */
+    void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(KINDS);
+        data.writeInt(_pieceValue);
+        for (short[] table : _weights) {
+            data.writeInt(table.length);
+            for (short w : table) {
+                data.writeShort(w);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * The pattern indices of one Board, updated as its squares change.
+     */
+    private class Indices implements Board.SquareListener {
+
+        /**
+         * The indices of BOARD's current position.
+         */
+        Indices(Board board) {
+            indices(board, _index);
+        }
+
+        @Override
+        public void squareChanged(int sq, PieceColor old, PieceColor now) {
+            int delta = DIGITS[now.ordinal()] - DIGITS[old.ordinal()];
+            if (delta != 0) {
+                for (int entry : UPDATES[sq]) {
+                    _index[entry >>> UPDATE_SHIFT] +=
+                        delta * (entry & UPDATE_MASK);
+                }
+            }
+        }
+
+        /**
+         * Return the PatternEvaluator I belong to.
+         */
+        PatternEvaluator owner() {
+            return PatternEvaluator.this;
+        }
+
+        /** Current index of each pattern. */
+        private final int[] _index = new int[PATTERNS];
+    }
+
+    /** Weights, indexed by kind and pattern index. */
+    private final short[][] _weights;
+    /** Score of one piece. */
+    private final int _pieceValue;
+
+    /** Base-3 digits of empty (or blocked) squares and of red and blue
+     *  pieces. */
+    private static final int EMPTY_DIGIT = 0, RED_DIGIT = 1,
+        BLUE_DIGIT = 2;
+    /** Digit of each PieceColor, indexed by ordinal. */
+    private static final int[] DIGITS = new int[PieceColor.values().length];
+    /** Number of squares in each kind of pattern. */
+    private static final int[] KIND_SIZES = { 7, 7, 7, 7, 9, 9 };
+    /** POWERS[k] is 3**k. */
+    private static final int[] POWERS = new int[10];
+    /** Linearized indices of the squares of each pattern, least
+     *  significant digit first. */
+    private static final int[][] SQUARES;
+    /** Kind of each pattern. */
+    private static final int[] PATTERN_KINDS;
+    /** Patterns containing each linearized square, as (pattern number <<
+     *  UPDATE_SHIFT) + place value of the square in that pattern. */
+    private static final int[][] UPDATES =
+        new int[Board.EXTENDED_SIDE * Board.EXTENDED_SIDE][];
+    /** Packing of UPDATES entries. */
+    private static final int UPDATE_SHIFT = 16,
+        UPDATE_MASK = (1 << UPDATE_SHIFT) - 1;
+
+    static {
+        DIGITS[EMPTY.ordinal()] = DIGITS[BLOCKED.ordinal()] = EMPTY_DIGIT;
+        DIGITS[RED.ordinal()] = RED_DIGIT;
+        DIGITS[BLUE.ordinal()] = BLUE_DIGIT;
+        POWERS[0] = 1;
+        for (int k = 1; k < POWERS.length; k += 1) {
+            POWERS[k] = 3 * POWERS[k - 1];
+        }
+
+        int side = Board.SIDE;
+        int[][] squares = new int[19][];
+        int[] kinds = new int[squares.length];
+        int n;
+        n = 0;
+        for (int d = 0; d <= side / 2; d += 1) {
+            int kind = Math.min(d, MIDDLE);
+            int[] rows = d == side / 2 ? new int[] { d }
+                : new int[] { d, side - 1 - d };
+            for (int r : rows) {
+                squares[n] = new int[side];
+                squares[n + 1] = new int[side];
+                for (int k = 0; k < side; k += 1) {
+                    squares[n][k] = square(k, r);
+                    squares[n + 1][k] = square(r, k);
+                }
+                kinds[n] = kinds[n + 1] = kind;
+                n += 2;
+            }
+        }
+        for (int cx = 0; cx <= 1; cx += 1) {
+            for (int cy = 0; cy <= 1; cy += 1) {
+                squares[n] = new int[9];
+                for (int k = 0; k < 9; k += 1) {
+                    int x = k % 3, y = k / 3;
+                    squares[n][k] = square(cx == 0 ? x : side - 1 - x,
+                                           cy == 0 ? y : side - 1 - y);
+                }
+                kinds[n] = CORNER;
+                n += 1;
+            }
+        }
+        squares[n] = new int[9];
+        for (int k = 0; k < 9; k += 1) {
+            squares[n][k] = square(side / 2 - 1 + k % 3,
+                                   side / 2 - 1 + k / 3);
+        }
+        kinds[n] = CENTER;
+        n += 1;
+        PATTERNS = n;
+        SQUARES = squares;
+        PATTERN_KINDS = kinds;
+
+        int[] counts = new int[UPDATES.length];
+        for (int[] pattern : SQUARES) {
+            for (int sq : pattern) {
+                counts[sq] += 1;
+            }
+        }
+        for (int sq = 0; sq < UPDATES.length; sq += 1) {
+            UPDATES[sq] = new int[counts[sq]];
+            counts[sq] = 0;
+        }
+        for (int p = 0; p < PATTERNS; p += 1) {
+            for (int k = 0; k < SQUARES[p].length; k += 1) {
+                int sq = SQUARES[p][k];
+                UPDATES[sq][counts[sq]] = (p << UPDATE_SHIFT) + POWERS[k];
+                counts[sq] += 1;
+            }
+        }
+    }
+
+    /**
+     * Return the linearized index of the square in column 'a' + X and
+     * row '1' + Y.
+     */
+    private static int square(int x, int y) {
+        return Board.index((char) ('a' + x), (char) ('1' + y));
+    }
+
+}
@@ -0,0 +1,113 @@
+package ataxx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of PatternEvaluator.
+ *
+ * @author Keith Pacana
+ */
+public class PatternEvaluatorTest {
+
+    /** Return a random legal non-pass move in B, or null if none. */
+    private static Move randomMove(Board b, Random random) {
+        List<Move> moves = new ArrayList<>();
+        for (Move m : CANDIDATES.possibleMoves(b)) {
+            if (m != null && !m.isPass() && b.legalMove(m)) {
+                moves.add(m);
+            }
+        }
+        return moves.isEmpty() ? null
+            : moves.get(random.nextInt(moves.size()));
+    }
+
+    @Test
+    public void testMaterial() {
+        PatternEvaluator eval = PatternEvaluator.material();
+        Board b = new Board();
+        b.setBlock("c3");
+        Random random = new Random(1);
+        for (int k = 0; k < 40 && !b.gameOver(); k += 1) {
+            assertEquals(2 * AI.staticScore(b), eval.score(b));
+            Move m = randomMove(b, random);
+            if (m == null) {
+                b.pass();
+            } else {
+                b.makeMove(m);
+            }
+        }
+    }
+
+    @Test
+    public void testIncremental() {
+        short[][] weights = new short[PatternEvaluator.KINDS][];
+        Random random = new Random(2);
+        for (int k = 0; k < weights.length; k += 1) {
+            weights[k] = new short[PatternEvaluator.tableSize(k)];
+            for (int i = 0; i < weights[k].length; i += 1) {
+                weights[k][i] = (short) (random.nextInt(201) - 100);
+            }
+        }
+        PatternEvaluator eval = new PatternEvaluator(weights, 1);
+        Board b = new Board();
+        eval.attach(b);
+        int moves;
+        moves = 0;
+        for (int k = 0; k < 60 && !b.gameOver(); k += 1) {
+            Move m = randomMove(b, random);
+            if (m == null) {
+                b.pass();
+            } else {
+                b.makeMove(m);
+            }
+            moves += 1;
+            assertEquals(eval.score(new Board(b)), eval.score(b));
+        }
+        for (; moves > 0; moves -= 1) {
+            b.undo();
+            assertEquals(eval.score(new Board(b)), eval.score(b));
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        PatternEvaluator eval = PatternEvaluator.material();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        eval.write(out);
+        PatternEvaluator copy = PatternEvaluator.read(
+            new ByteArrayInputStream(out.toByteArray()), "test");
+        for (int k = 0; k < PatternEvaluator.KINDS; k += 1) {
+            assertArrayEquals(eval.weights()[k], copy.weights()[k]);
+        }
+        byte[] bad = out.toByteArray();
+        bad[0] += 1;
+        try {
+            PatternEvaluator.read(new ByteArrayInputStream(bad), "bad");
+            fail("accepted a bad weights file");
+        } catch (GameException excp) {
+            /* Expected */
+        }
+    }
+
+    @Test
+    public void testSearchAgrees() {
+        Engine plain = new Engine(), patterns = new Engine();
+        patterns.setEvaluator(PatternEvaluator.material());
+        Board b = new Board();
+        assertEquals(plain.findMove(b, 3), patterns.findMove(b, 3));
+        assertEquals(2 * plain.lineScore(0), patterns.lineScore(0));
+    }
+
+    /** Source of candidate moves. */
+    private static final AI CANDIDATES = new AI(null, PieceColor.RED);
+
+}
@@ -0,0 +1,174 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static ataxx.GameException.error;
+
+/**
+ * Streams positions from a file into reusable Boards, for loading large
+ * test suites and training sets.  Text files hold one position per line
+ * in the text form of Positions (blank lines and lines starting with
+ * '#' are skipped); binary files hold consecutive binary records.  No
+ * objects are allocated per position.
+ *
+ * @author Keith Pacana
+ */
+class PositionLoader implements Closeable {
+
+    /**
+     * A loader for positions in the file named NAME, which is binary iff
+     * BINARY.
+     */
+    PositionLoader(String name, boolean binary) {
+        try {
+            _input = new FileInputStream(name);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+        _name = name;
+        _binary = binary;
+    }
+
+    /**
+     * A loader for positions in the file named NAME, which is binary iff
+     * the name ends in ".bin".
+     */
+    PositionLoader(String name) {
+        this(name, name.endsWith(".bin"));
+    }
+
+    /**
+     * Set BOARD to the next position in the file and return true, or
+     * return false if there are no more positions.
+     */
+    boolean next(Board board) {
+        try {
+            return _binary ? nextBinary(board) : nextText(board);
+        } catch (IOException excp) {
+            throw error("error reading %s", _name);
+        }
+    }
+
+    /**
+     * Return the number of positions loaded so far.
+     */
+    long count() {
+        return _count;
+    }
+
+    /**
+     * Return the text of the last position read from a text file.  The
+     * result is overwritten by the next call to next().
+     */
+    CharSequence lastText() {
+        return _line;
+    }
+
+    @Override
+    public void close() {
+        try {
+            _input.close();
+        } catch (IOException excp) {
+            /* Ignore IOException */
+        }
+    }
+
+    /**
+     * Perform next(BOARD) for a text file.
+     */
+    private boolean nextText(Board board) throws IOException {
+        while (true) {
+            _line.setLength(0);
+            int c;
+            for (c = read(); c != -1 && c != '\n'; c = read()) {
+                _line.append((char) c);
+            }
+            int start = 0, end = _line.length();
+            while (start < end && Character.isWhitespace(_line.charAt(start))) {
+                start += 1;
+            }
+            if (start < end && _line.charAt(start) != '#') {
+                try {
+                    Positions.parse(_line, start, end, board, _squares);
+                } catch (GameException excp) {
+                    throw error("%s, position %d: %s", _name, _count + 1,
+                                excp.getMessage());
+                }
+                _count += 1;
+                return true;
+            }
+            if (c == -1) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Perform next(BOARD) for a binary file.
+     */
+    private boolean nextBinary(Board board) throws IOException {
+        int n;
+        for (n = 0; n < _record.length; n += 1) {
+            int c = read();
+            if (c == -1) {
+                break;
+            }
+            _record[n] = (byte) c;
+        }
+        if (n == 0) {
+            return false;
+        } else if (n < _record.length) {
+            throw error("%s: truncated record", _name);
+        }
+        Positions.decode(_record, 0, board, _squares);
+        _count += 1;
+        return true;
+    }
+
+    /**
+     * Return the next byte of input (0-255), or -1 at the end.
+     */
+    private int read() throws IOException {
+        if (_pos == _limit) {
+            _limit = _input.read(_buffer);
+            _pos = 0;
+            if (_limit <= 0) {
+                _limit = 0;
+                return -1;
+            }
+        }
+        int c = _buffer[_pos] & 0xff;
+        _pos += 1;
+        return c;
+    }
+
+    /**
+     * Size of the input buffer in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Name of the file being read. */
+    private final String _name;
+    /** True iff reading binary records. */
+    private final boolean _binary;
+    /** The file being read. */
+    private final InputStream _input;
+    /** Input buffer. */
+    private final byte[] _buffer = new byte[BUFFER_SIZE];
+    /** Index of the next unread byte in _buffer. */
+    private int _pos;
+    /** Number of valid bytes in _buffer. */
+    private int _limit;
+    /** The current text line. */
+    private final StringBuilder _line = new StringBuilder();
+    /** The current binary record. */
+    private final byte[] _record = new byte[Positions.RECORD_SIZE];
+    /** Scratch squares for decoding. */
+    private final PieceColor[] _squares = new PieceColor[Positions.SQUARES];
+    /** Number of positions read. */
+    private long _count;
+
+}
@@ -0,0 +1,267 @@
+package ataxx;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/**
+ * Conversions between Boards and compact position descriptions.
+ * <p>
+ * The text form lists the rows from 7 down to 1, separated by '/'.
+ * Within a row, squares from 'a' to 'g' are written 'r' (red), 'b'
+ * (blue) or 'X' (block), and a run of empty squares is written as its
+ * length (1-7).  The rows are followed by the side to move ('r' or 'b')
+ * and, optionally, the number of jumps since the last extend.  Blocks
+ * may also be written 'x' and runs of empty squares may be split, but
+ * format always produces the shortest form, so that format and parse
+ * are exact inverses on that form.  The initial position is
+ * <pre>
+ *     r5b/7/7/7/7/7/b5r r 0
+ * </pre>
+ * The binary form is RECORD_SIZE bytes: two bits per square (EMPTY=0,
+ * RED=1, BLUE=2, BLOCKED=3) in the same order as the text form, packed
+ * from the low-order bits of byte 0 upward, followed by one byte whose
+ * top bit is set iff blue is to move and whose other bits hold the jump
+ * count.
+ *
+ * @author Keith Pacana
+ */
+class Positions {
+
+    /**
+     * Number of squares on the board.
+     */
+    static final int SQUARES = Board.SIDE * Board.SIDE;
+
+    /**
+     * Length of the longest text description.
+     */
+    static final int MAX_TEXT_LENGTH = SQUARES + Board.SIDE - 1 + 5;
+
+    /**
+     * Size in bytes of a binary position record.
+     */
+    static final int RECORD_SIZE = (2 * SQUARES + 7) / 8 + 1;
+
+    /**
+     * Set BOARD to the position described by the text TEXT.
+     */
+    static void parse(String text, Board board) {
+        parse(text, 0, text.length(), board, new PieceColor[SQUARES]);
+    }
+
+    /**
+     * Set BOARD to the position described by TEXT[START..END-1], using
+     * SQUARES (of length at least Positions.SQUARES) as scratch space.
+     * Leading and trailing blanks are ignored.  Allocates nothing unless
+     * the text is erroneous.
+     */
+    static void parse(CharSequence text, int start, int end, Board board,
+                      PieceColor[] squares) {
+        int i = skipBlanks(text, start, end);
+        int k = 0;
+        for (int row = 0; row < Board.SIDE; row += 1) {
+            if (row > 0) {
+                if (i >= end || text.charAt(i) != '/') {
+                    throw badPosition(text, start, end, i, "expected '/'");
+                }
+                i += 1;
+            }
+            int rowEnd = k + Board.SIDE;
+            while (k < rowEnd) {
+                if (i >= end) {
+                    throw badPosition(text, start, end, i, "short row");
+                }
+                char c = text.charAt(i);
+                if (c >= '1' && c <= '7') {
+                    int n = c - '0';
+                    if (k + n > rowEnd) {
+                        throw badPosition(text, start, end, i, "long row");
+                    }
+                    for (; n > 0; n -= 1) {
+                        squares[k] = EMPTY;
+                        k += 1;
+                    }
+                } else {
+                    squares[k] = pieceFor(c);
+                    if (squares[k] == null) {
+                        throw badPosition(text, start, end, i,
+                                          c == '/' ? "short row"
+                                          : "bad square");
+                    }
+                    k += 1;
+                }
+                i += 1;
+            }
+        }
+
+        int j = skipBlanks(text, i, end);
+        if (j == i || j >= end) {
+            throw badPosition(text, start, end, j, "expected side to move");
+        }
+        PieceColor who;
+        switch (text.charAt(j)) {
+        case 'r':
+            who = RED;
+            break;
+        case 'b':
+            who = BLUE;
+            break;
+        default:
+            throw badPosition(text, start, end, j, "bad side to move");
+        }
+        i = j + 1;
+
+        int jumps = 0;
+        j = skipBlanks(text, i, end);
+        if (j < end) {
+            if (j == i) {
+                throw badPosition(text, start, end, j, "bad side to move");
+            }
+            for (i = j; i < end && Character.isDigit(text.charAt(i));
+                 i += 1) {
+                jumps = 10 * jumps + text.charAt(i) - '0';
+                if (jumps > Board.JUMP_LIMIT) {
+                    throw badPosition(text, start, end, i,
+                                      "jump count too large");
+                }
+            }
+            if (i == j || skipBlanks(text, i, end) != end) {
+                throw badPosition(text, start, end, i, "bad jump count");
+            }
+        }
+        board.setPosition(squares, who, jumps);
+    }
+
+    /**
+     * Return the text description of the position on BOARD.
+     */
+    static String format(Board board) {
+        StringBuilder out = new StringBuilder(MAX_TEXT_LENGTH);
+        format(board, out);
+        return out.toString();
+    }
+
+    /**
+     * Append the text description of the position on BOARD to OUT.
+     * This is the inverse of parse: parsing the result sets a board to
+     * the same squares, side to move and jump count as BOARD, and
+     * formatting the parsed board again gives the same text.
+     */
+    static void format(Board board, StringBuilder out) {
+        for (char r = '7'; r >= '1'; r -= 1) {
+            int empty = 0;
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                PieceColor v = board.get(c, r);
+                if (v == EMPTY) {
+                    empty += 1;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                out.append(v == RED ? 'r' : v == BLUE ? 'b' : 'X');
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            if (r > '1') {
+                out.append('/');
+            }
+        }
+        out.append(board.whoseMove() == RED ? " r " : " b ");
+        out.append(board.numJumps());
+    }
+
+    /**
+     * Set BOARD to the position in the binary record at RECORD[OFFSET].
+     */
+    static void decode(byte[] record, int offset, Board board) {
+        decode(record, offset, board, new PieceColor[SQUARES]);
+    }
+
+    /**
+     * Set BOARD to the position in the binary record at RECORD[OFFSET],
+     * using SQUARES (of length at least Positions.SQUARES) as scratch
+     * space.  As for parse, the jump count may not exceed
+     * Board.JUMP_LIMIT.
+     */
+    static void decode(byte[] record, int offset, Board board,
+                       PieceColor[] squares) {
+        for (int k = 0; k < SQUARES; k += 1) {
+            int bits = record[offset + k / 4] >> (2 * (k % 4)) & 3;
+            squares[k] = CODES[bits];
+        }
+        int last = record[offset + RECORD_SIZE - 1] & 0xff;
+        if ((last & 0x7f) > Board.JUMP_LIMIT) {
+            throw error("bad position record: jump count %d too large",
+                        last & 0x7f);
+        }
+        board.setPosition(squares, (last & 0x80) != 0 ? BLUE : RED,
+                          last & 0x7f);
+    }
+
+    /**
+     * Store the binary record for BOARD into RECORD[OFFSET].
+     */
+    static void encode(Board board, byte[] record, int offset) {
+        for (int i = 0; i < RECORD_SIZE; i += 1) {
+            record[offset + i] = 0;
+        }
+        for (int k = 0; k < SQUARES; k += 1) {
+            PieceColor v = board.get((char) ('a' + k % Board.SIDE),
+                                     (char) ('7' - k / Board.SIDE));
+            int bits = v == RED ? 1 : v == BLUE ? 2 : v == BLOCKED ? 3 : 0;
+            record[offset + k / 4] |= bits << (2 * (k % 4));
+        }
+        record[offset + RECORD_SIZE - 1] =
+            (byte) ((board.whoseMove() == BLUE ? 0x80 : 0)
+                    | Math.min(board.numJumps(), 0x7f));
+    }
+
+    /**
+     * Return the contents denoted by the character C in the text form,
+     * or null if C denotes none.
+     */
+    private static PieceColor pieceFor(char c) {
+        switch (c) {
+        case 'r':
+            return RED;
+        case 'b':
+            return BLUE;
+        case 'X': case 'x':
+            return BLOCKED;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Return the index of the first non-blank character of TEXT at or
+     * after START, or END if there is none before END.
+     */
+    private static int skipBlanks(CharSequence text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start += 1;
+        }
+        return start;
+    }
+
+    /**
+     * Return an exception reporting that the position TEXT[START..END-1]
+     * has an error described by WHY at TEXT[POS].
+     */
+    private static GameException badPosition(CharSequence text, int start,
+                                             int end, int pos, String why) {
+        return error("bad position: %s at column %d: %s",
+                     why, pos - start + 1, text.subSequence(start, end));
+    }
+
+    /**
+     * Square contents by binary code.
+     */
+    private static final PieceColor[] CODES = {
+        EMPTY, RED, BLUE, BLOCKED
+    };
+
+}
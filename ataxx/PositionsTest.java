@@ -0,0 +1,132 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import static org.junit.Assert.*;
+import static ataxx.PieceColor.*;
+
+/**
+ * Tests of the Positions notation and PositionLoader.
+ *
+ * @author Keith Pacana
+ */
+public class PositionsTest {
+
+    private static final String[] POSITIONS = {
+        "r5b/7/7/7/7/7/b5r r 0",
+        "r5b/1X3X1/7/7/7/1X3X1/b5r b 0",
+        "rr4b/r6/7/3b3/7/6r/b4bb r 3",
+        "XrbXbrX/7/7/7/7/7/XbrXrbX b 25",
+    };
+
+    @Test
+    public void testInitialPosition() {
+        Board b = new Board();
+        assertEquals("r5b/7/7/7/7/7/b5r r 0", Positions.format(b));
+        Board c = new Board();
+        c.makeMove(Move.move('a', '7', 'a', '6'));
+        Positions.parse("r5b/7/7/7/7/7/b5r r 0", c);
+        assertEquals(b, c);
+        assertEquals(b.hash(), c.hash());
+        assertEquals(RED, c.whoseMove());
+        assertEquals(2, c.redPieces());
+        assertEquals(2, c.bluePieces());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Board b = new Board();
+        for (String pos : POSITIONS) {
+            Positions.parse(pos, b);
+            assertEquals(pos, Positions.format(b));
+        }
+        Positions.parse("  rr4b/r6/7/3b3/7/6r/b4bb r 3  ", b);
+        assertEquals(BLUE, b.get('d', '4'));
+        assertEquals(3, b.numJumps());
+        assertEquals(4, b.redPieces());
+        assertEquals(5, b.bluePieces());
+    }
+
+    @Test
+    public void testNonCanonical() {
+        Board b = new Board();
+        Positions.parse("r1112b/7/7/7/7/7/b32r r", b);
+        assertEquals("r5b/7/7/7/7/7/b5r r 0", Positions.format(b));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() {
+        Board b = new Board(), c = new Board();
+        byte[] record = new byte[Positions.RECORD_SIZE];
+        for (String pos : POSITIONS) {
+            Positions.parse(pos, b);
+            Positions.encode(b, record, 0);
+            Positions.decode(record, 0, c);
+            assertEquals(pos, Positions.format(c));
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        String[] bad = {
+            "", "r5b/7/7/7/7/7 r", "r5b/7/7/7/7/7/b5r", "r6b/7/7/7/7/7/b5r r",
+            "r5b/7/7/7/7/7/b5r x", "r5b/7/7/7/7/7/b5r r 99",
+            "r5b/7/7/7/7/7/b5r r 1 2", "r5q/7/7/7/7/7/b5r r",
+        };
+        Board b = new Board();
+        for (String pos : bad) {
+            try {
+                Positions.parse(pos, b);
+                fail("accepted " + pos);
+            } catch (GameException excp) {
+                assertTrue(excp.getMessage().startsWith("bad position"));
+            }
+        }
+        byte[] record = new byte[Positions.RECORD_SIZE];
+        Positions.encode(b, record, 0);
+        record[Positions.RECORD_SIZE - 1] = Board.JUMP_LIMIT + 1;
+        try {
+            Positions.decode(record, 0, b);
+            fail("accepted jump count " + (Board.JUMP_LIMIT + 1));
+        } catch (GameException excp) {
+            assertTrue(excp.getMessage().startsWith("bad position"));
+        }
+    }
+
+    @Test
+    public void testLoader() throws IOException {
+        File text = File.createTempFile("positions", ".txt");
+        File binary = File.createTempFile("positions", ".bin");
+        text.deleteOnExit();
+        binary.deleteOnExit();
+        Board b = new Board();
+        try (PrintWriter out = new PrintWriter(text);
+             FileOutputStream bin = new FileOutputStream(binary)) {
+            out.println("# comment");
+            byte[] record = new byte[Positions.RECORD_SIZE];
+            for (String pos : POSITIONS) {
+                out.println(pos);
+                out.println();
+                Positions.parse(pos, b);
+                Positions.encode(b, record, 0);
+                bin.write(record);
+            }
+        }
+        for (File f : new File[] { text, binary }) {
+            try (PositionLoader loader = new PositionLoader(f.getPath())) {
+                for (String pos : POSITIONS) {
+                    assertTrue(loader.next(b));
+                    assertEquals(pos, Positions.format(b));
+                }
+                assertFalse(loader.next(b));
+                assertEquals(POSITIONS.length, loader.count());
+            }
+        }
+    }
+
+}
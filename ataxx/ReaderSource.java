@@ -37,6 +37,15 @@ class ReaderSource implements CommandSource {
         }
     }
 
+    @Override
+    public boolean ready() {
+        try {
+            return _input != null && _input.ready();
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
     /** Input source. */
     private BufferedReader _input;
     /** True if we request a prompt for each getLine. */
@@ -0,0 +1,909 @@
+package ataxx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Runs the integration-test scripts of the testing directory (see
+ * testing/README) inside one JVM.  Instead of starting "java ataxx.Main"
+ * for each section of a script, as testing/test-ataxx.py does, each
+ * section drives a Game in a thread of its own, feeding it commands
+ * through a CommandSource and filtering what it reports through a
+ * Reporter exactly as test-ataxx.py filters a program's output.
+ * Independent scripts are run concurrently.  Verdicts, messages and
+ * the summary are the same as test-ataxx.py's.  Usage:
+ * <pre>
+ *     java -ea ataxx.ScriptRunner [-v | --verbose] [-j N] SCRIPT ...
+ * </pre>
+ * where N is the number of scripts to run at once (by default, the
+ * number of processors).  A section's command must run ataxx.Main with
+ * no arguments.
+ *
+ * @author Keith Pacana
+ */
+public class ScriptRunner {
+
+    /**
+     * Run the scripts named in ARGS, reporting as described above, and
+     * exit with status 0 iff all pass.
+     */
+    public static void main(String[] args) {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        List<String> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                switch (args[i]) {
+                case "-v": case "--verbose":
+                    _verbose = true;
+                    break;
+                case "-j":
+                    jobs = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    files.add(args[i]);
+                    break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException
+                 | NumberFormatException excp) {
+            usage();
+        }
+        if (jobs < 1) {
+            usage();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(jobs, r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<String[]>> results = new ArrayList<>();
+        for (String name : files) {
+            results.add(pool.submit(() -> runFile(name)));
+        }
+
+        int errors, problems;
+        errors = problems = 0;
+        for (int k = 0; k < files.size(); k += 1) {
+            System.err.printf("%s: ", new File(files.get(k)).getName());
+            String[] result;
+            try {
+                result = results.get(k).get();
+            } catch (InterruptedException | ExecutionException excp) {
+                result = new String[] { FAIL, excp.toString(), "" };
+            }
+            System.err.print(result[2]);
+            if (result[0].equals(OK)) {
+                System.err.println("OK");
+            } else {
+                System.err.printf("%s (%s)%n", result[0], result[1]);
+                if (result[0].equals(ERROR)) {
+                    errors += 1;
+                } else {
+                    problems += 1;
+                }
+            }
+        }
+        System.err.printf("%nSummary:%n   %3d tests%n   %3d passed%n"
+                          + "   %3d errors%n   %3d problematic tests%n",
+                          files.size(), files.size() - errors - problems,
+                          errors, problems);
+        System.exit(errors + problems == 0 ? 0 : 1);
+    }
+
+    /**
+     * Print a usage message and exit.
+     */
+    private static void usage() {
+        System.err.println("Usage: java ataxx.ScriptRunner [ --verbose | -v ]"
+                           + " [-j N] SCRIPT ...");
+        System.exit(1);
+    }
+
+    /**
+     * Run the script in the file named NAME, returning its verdict (OK,
+     * ERROR or FAIL), message and log (empty unless verbose).
+     */
+    private static String[] runFile(String name) {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(new File(name).toPath()));
+        } catch (IOException excp) {
+            return new String[] { FAIL, excp.toString(), "" };
+        }
+        return runTest(text);
+    }
+
+    /**
+     * Run the script TEXT, returning its verdict, message and log.
+     */
+    static String[] runTest(String text) {
+        double totalLimit = DEFAULT_TOTAL_TIME;
+        Matcher total = TOTAL_TIME.matcher(text);
+        if (total.find()) {
+            totalLimit = Integer.parseInt(total.group(1));
+        }
+        BlockingQueue<Object[]> done = new ArrayBlockingQueue<>(8);
+        Program prog1, prog2;
+        Matcher sections = SECTIONS.matcher(text);
+        if (sections.lookingAt()) {
+            List<String> sect1 = breakup(sections.group(1)),
+                sect2 = breakup(sections.group(2));
+            prog1 = new Program("Prog1", sect1, done, 0);
+            prog2 = new Program("Prog2", sect2, done, sect1.size() + 1);
+            prog1.connect(prog2);
+            prog2.connect(prog1);
+            prog1.start();
+            prog2.start();
+        } else {
+            prog1 = new Program("Prog1", breakup(text), done, 0);
+            prog1.start();
+            prog2 = null;
+        }
+
+        List<Object[]> msgs = new ArrayList<>();
+        try {
+            Object[] msg = done.poll(millis(totalLimit),
+                                     TimeUnit.MILLISECONDS);
+            if (msg == null) {
+                prog1.stop();
+                if (prog2 != null) {
+                    prog2.stop();
+                }
+                return new String[] {
+                    ERROR,
+                    String.format("test time exceeded %d seconds",
+                                  (long) totalLimit),
+                    logs(prog1, prog2)
+                };
+            }
+            msgs.add(msg);
+            if (prog2 != null) {
+                msg = done.poll(millis(CLEANUP_TIME), TimeUnit.MILLISECONDS);
+                if (msg == null) {
+                    prog1.stop();
+                    prog2.stop();
+                    return new String[] {
+                        ERROR, "other program fails to finish",
+                        logs(prog1, prog2)
+                    };
+                }
+                msgs.add(msg);
+            }
+        } catch (InterruptedException excp) {
+            return new String[] { FAIL, excp.toString(), "" };
+        }
+        msgs.sort((x, y) -> ((String) x[0]).compareTo((String) y[0]));
+
+        boolean allOk = true, anyFail = false;
+        StringBuilder text2 = new StringBuilder();
+        for (Object[] msg : msgs) {
+            allOk &= msg[1].equals(OK);
+            anyFail |= msg[1].equals(FAIL);
+            if (text2.length() > 0 || msg != msgs.get(0)) {
+                text2.append('/');
+            }
+            if (!msg[1].equals(OK)) {
+                text2.append(String.format("%s near line %d", msg[2],
+                                           msg[3]));
+            }
+        }
+        String log = logs(prog1, prog2);
+        if (allOk) {
+            return new String[] { OK, null, log };
+        }
+        return new String[] { anyFail ? FAIL : ERROR, text2.toString(), log };
+    }
+
+    /**
+     * Return the logs of PROG1 and PROG2 (which may be null).
+     */
+    private static String logs(Program prog1, Program prog2) {
+        return prog1.log() + (prog2 == null ? "" : prog2.log());
+    }
+
+    /**
+     * Return TEXT, without trailing whitespace, as a list of lines (empty
+     * if TEXT is blank).
+     */
+    private static List<String> breakup(String text) {
+        text = text.replaceFirst("\\s+$", "");
+        if (text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.asList(text.split("\n", -1));
+    }
+
+    /**
+     * Return the script line TEXT with tabs made blanks, leading and
+     * trailing blanks and comments removed, and runs of blanks made
+     * single.
+     */
+    private static String clean(String text) {
+        text = text.replace('\t', ' ').trim();
+        text = text.replaceFirst("^#.*", "");
+        return text.replaceAll("  +", " ");
+    }
+
+    /**
+     * Return SECONDS in milliseconds.
+     */
+    private static long millis(double seconds) {
+        return (long) (seconds * 1000);
+    }
+
+    /**
+     * Thrown when a test finds an error in the program under test.
+     */
+    private static class TestError extends Exception {
+        /** An error described by MSG. */
+        TestError(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * Thrown when a test script itself is faulty.
+     */
+    private static class TestFail extends Exception {
+        /** A failure described by MSG. */
+        TestFail(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * One section of a script, with the Game it drives.
+     */
+    private static class Program {
+
+        /**
+         * A section named TITLE, consisting of SCRIPT, whose first line is
+         * line SCRIPTSTART + 1 of the whole script, and which reports its
+         * verdict to DONE.
+         */
+        Program(String title, List<String> script,
+                BlockingQueue<Object[]> done, int scriptStart) {
+            _title = title;
+            _script = script;
+            _done = done;
+            _scriptStart = scriptStart;
+            _command = nextCommand();
+            _runner = new Thread(this::run, title + "-runner");
+            _runner.setDaemon(true);
+        }
+
+        /**
+         * Exchange moves with OTHER.
+         */
+        void connect(Program other) {
+            if (_otherInput != null) {
+                return;
+            }
+            _otherInput = new ArrayBlockingQueue<>(4);
+            other.connect(this);
+            _otherOutput = other._otherInput;
+        }
+
+        /**
+         * Start running the section.
+         */
+        void start() {
+            _runner.start();
+        }
+
+        /**
+         * Abandon the section.
+         */
+        void stop() {
+            _input.close();
+            _runner.interrupt();
+        }
+
+        /**
+         * Return my log, or "" if not verbose.
+         */
+        String log() {
+            if (!_verbose) {
+                return "";
+            }
+            synchronized (_log) {
+                return String.format("%n-----%nLog for %s%n-----%n%s-----%n",
+                                     _title, _log);
+            }
+        }
+
+        /**
+         * Body of the runner thread: perform the script, then report.
+         */
+        private void run() {
+            Object[] endMsg;
+            try {
+                if (_command == null) {
+                    throw new TestFail("No command found");
+                }
+                startGame();
+                for (String cmnd = nextCommand(); cmnd != null;
+                     cmnd = nextCommand()) {
+                    doScriptCommand(cmnd);
+                }
+                finish();
+                endMsg = new Object[] { _title, OK, null, null };
+            } catch (TestError excp) {
+                stop();
+                endMsg = new Object[] {
+                    _title, ERROR, excp.getMessage(), _k + _scriptStart
+                };
+            } catch (TestFail excp) {
+                stop();
+                endMsg = new Object[] {
+                    _title, FAIL, excp.getMessage(), _k + _scriptStart
+                };
+            } catch (InterruptedException | RuntimeException excp) {
+                stop();
+                endMsg = new Object[] {
+                    _title, FAIL, excp.toString(), _k + _scriptStart
+                };
+            }
+            _done.offer(endMsg);
+            log("T %s", Arrays.toString(endMsg));
+        }
+
+        /**
+         * Start the Game, after checking that my command would run
+         * ataxx.Main with no arguments.
+         */
+        private void startGame() throws TestFail {
+            String[] words = _command.split("\\s+");
+            int n = words.length;
+            if (!words[n - 1].equals("ataxx.Main")) {
+                throw new TestFail("cannot run in-process: " + _command);
+            }
+            _game = new Thread(() -> {
+                try {
+                    new Game(new Board(), _input, _output).process(false);
+                    _exitCode = 0;
+                } catch (Throwable excp) {
+                    _output.exception(excp);
+                    _exitCode = 1;
+                }
+                _output.close();
+            }, _title + "-game");
+            _game.setDaemon(true);
+            _game.start();
+        }
+
+        /**
+         * Perform the script line CMND.
+         */
+        private void doScriptCommand(String cmnd)
+            throws TestError, TestFail, InterruptedException {
+            Matcher mat;
+            if ((mat = match("@time ([\\d.]+)", cmnd)) != null) {
+                try {
+                    _opLimit = Double.parseDouble(mat.group(1));
+                } catch (NumberFormatException excp) {
+                    throw new TestFail("bad number");
+                }
+            } else if (match("@total-time (\\d+)", cmnd) != null) {
+                return;
+            } else if ((mat = match("@([<?])(.*)", cmnd)) != null) {
+                checkOutput(mat.group(1), mat.group(2));
+            } else if ((mat = match("@(red)\\.\\.\\.\\s*(.*)", cmnd)) != null
+                       || (mat = match("@(blue)\\.\\.\\.\\s*(.*)", cmnd))
+                       != null) {
+                playSelf(mat.group(1), mat.group(2));
+            } else if ((mat = match("@send (red|blue)\\.\\.\\.\\s*(.*)",
+                                    cmnd)) != null) {
+                sendReceiveMoves(true, mat.group(1), mat.group(2));
+            } else if ((mat = match("@recv (red|blue)\\.\\.\\.\\s*(.*)",
+                                    cmnd)) != null) {
+                sendReceiveMoves(false, mat.group(1), mat.group(2));
+            } else if (cmnd.startsWith("@")) {
+                throw new TestFail("bad command in script");
+            } else {
+                send(cmnd);
+            }
+        }
+
+        /**
+         * Return the next non-blank line of my script, cleaned, or null
+         * if there is none.
+         */
+        private String nextCommand() {
+            while (true) {
+                if (_k >= _script.size()) {
+                    log("* <EOF>");
+                    return null;
+                }
+                String cmnd = clean(_script.get(_k));
+                log("* %s", cmnd);
+                _k += 1;
+                if (!cmnd.isEmpty()) {
+                    return cmnd;
+                }
+            }
+        }
+
+        /**
+         * Send LINE to my Game.
+         */
+        private void send(String line) {
+            log("> %s", line);
+            _input.add(line);
+        }
+
+        /**
+         * Send MSG (null for end of input) to the other section, throwing
+         * an error if its queue is full unless IGNORE.
+         */
+        private void sendOther(String msg, boolean ignore) throws TestError {
+            if (_otherOutput != null) {
+                log("R> %s", msg == null ? "<EOF>" : msg);
+                if (_otherOutput.offer(msg == null ? EOF : msg)) {
+                    return;
+                }
+            }
+            if (!ignore) {
+                throw new TestError("other program blocked");
+            }
+        }
+
+        /**
+         * Return the next line of filtered output from my Game, EOF at the
+         * end of output, or null if none arrives within my time limit.
+         */
+        private Object get() throws InterruptedException {
+            if (_eof) {
+                return EOF;
+            }
+            Object v = _output.poll(millis(_opLimit));
+            if (v == EOF) {
+                _eof = true;
+            }
+            if (v != null) {
+                log("< %s", v == EOF ? "<EOF>" : v);
+            }
+            return v;
+        }
+
+        /**
+         * Return the next message from the other section, or EOF if it
+         * has ended.  As with test-ataxx.py, this waits without limit.
+         */
+        private Object getOther() throws TestFail, InterruptedException {
+            if (_otherOutput == null) {
+                throw new TestFail("no other program");
+            }
+            Object move = _otherInput.take();
+            if (move == EOF) {
+                _otherInput = null;
+                log("R< <EOF>");
+                return EOF;
+            }
+            log("R< %s", move);
+            return move;
+        }
+
+        /**
+         * Check that MOVE is a move or outcome for WHO, and return MOVE
+         * and the move it denotes: "-" for a pass, or null for an
+         * outcome.
+         */
+        private String[] checkMove(String who, String move) throws TestError {
+            Matcher mat =
+                (who.equals("red") ? RED_MOVE : BLUE_MOVE).matcher(move);
+            if (!mat.lookingAt()) {
+                throw new TestError(String.format("invalid move for %s (%s)",
+                                                  who, move));
+            }
+            if (mat.group(1) != null) {
+                return new String[] { move, null };
+            } else if (mat.group(2) != null) {
+                return new String[] { move, "-" };
+            } else {
+                return new String[] { move, mat.group(3) };
+            }
+        }
+
+        /**
+         * Return the pattern PATTERN, or null if it is blank.
+         */
+        private Pattern checkPattern(String pattern) throws TestFail {
+            if (pattern.matches(" *")) {
+                return null;
+            }
+            try {
+                return Pattern.compile(pattern);
+            } catch (PatternSyntaxException excp) {
+                throw new TestFail("bad test pattern: " + pattern);
+            }
+        }
+
+        /**
+         * Get a move or outcome by WHO from my Game, as for checkMove.
+         */
+        private String[] getMove(String who)
+            throws TestError, InterruptedException {
+            Object move = get();
+            if (move == EOF) {
+                throw new TestError("game output truncated");
+            } else if (move == null) {
+                throw new TestError(String.format("timed out waiting for my"
+                                                  + " %s move", who));
+            }
+            return checkMove(who, (String) move);
+        }
+
+        /**
+         * Get a move or outcome by WHO from the other section, as for
+         * checkMove.
+         */
+        private String[] getOtherMove(String who)
+            throws TestError, TestFail, InterruptedException {
+            Object move = getOther();
+            if (move == EOF) {
+                throw new TestError("game output truncated");
+            }
+            return checkMove(who, (String) move);
+        }
+
+        /**
+         * End my Game's input and check that it ends properly.
+         */
+        private void finish() throws TestError, InterruptedException {
+            _input.close();
+            log("> <EOF>");
+            sendOther(null, true);
+            Object line = get();
+            if (line == null) {
+                stop();
+                throw new TestError("program did not terminate properly");
+            } else if (line != EOF) {
+                stop();
+                throw new TestError("program produced extra output");
+            }
+            _game.join(millis(_opLimit));
+            if (_game.isAlive()) {
+                stop();
+                throw new TestError("program did not terminate properly");
+            } else if (_exitCode != 0) {
+                throw new TestError("program terminated with error exit");
+            }
+        }
+
+        /**
+         * Perform '@WHO...ENDPATN': check that my Game plays both sides,
+         * WHO first, until the game ends with an outcome matching ENDPATN.
+         */
+        private void playSelf(String who, String endPatn)
+            throws TestError, TestFail, InterruptedException {
+            Pattern end = checkPattern(endPatn);
+            String toMove = who;
+            String[] move;
+            while (true) {
+                move = getMove(toMove);
+                if (move[1] == null) {
+                    break;
+                }
+                toMove = toMove.equals("blue") ? "red" : "blue";
+            }
+            if (end != null && !end.matcher(move[0]).lookingAt()) {
+                throw new TestError("outcome does not match end pattern");
+            }
+        }
+
+        /**
+         * Perform '@send FIRSTMOVER...ENDPATN' if SENDFIRST, and otherwise
+         * '@recv FIRSTMOVER...ENDPATN'.
+         */
+        private void sendReceiveMoves(boolean sendFirst, String firstMover,
+                                      String endPatn)
+            throws TestError, TestFail, InterruptedException {
+            Pattern end = checkPattern(endPatn);
+            String secondMover =
+                firstMover.equals("red") ? "blue" : "red";
+            String sendMover, recvMover;
+            boolean send;
+            if (sendFirst) {
+                send = true;
+                sendMover = firstMover;
+                recvMover = secondMover;
+            } else {
+                send = false;
+                sendMover = secondMover;
+                recvMover = firstMover;
+            }
+            String msg = null;
+            while (true) {
+                if (send) {
+                    String[] mine = getMove(sendMover);
+                    msg = mine[0];
+                    sendOther(msg, false);
+                    if (mine[1] == null) {
+                        String otherMsg = getOtherMove(recvMover)[0];
+                        if (!msg.equals(otherMsg)) {
+                            throw new TestError("game outcomes don't agree");
+                        }
+                        break;
+                    }
+                }
+                send = true;
+                String[] other = getOtherMove(recvMover);
+                if (other[1] == null) {
+                    msg = getMove(sendMover)[0];
+                    sendOther(msg, false);
+                    if (!msg.equals(other[0])) {
+                        throw new TestError("game outcomes don't agree");
+                    }
+                    break;
+                }
+                send(other[1]);
+            }
+            if (end != null && !end.matcher(msg).lookingAt()) {
+                throw new TestError("outcome does not match end pattern");
+            }
+        }
+
+        /**
+         * Perform '@<PATN' (if TYPE is "<") or '@?PATN' (if "?"):
+         * check the next line of output against PATN.
+         */
+        private void checkOutput(String type, String patn)
+            throws TestError, TestFail, InterruptedException {
+            Pattern pattern = type.equals("?") ? checkPattern(patn) : null;
+            Object next = get();
+            if (next == EOF) {
+                throw new TestError("premature end of output");
+            } else if (next == null) {
+                throw new TestError("timed out waiting for output");
+            }
+            String line = (String) next;
+            if (line.contains("Exception")) {
+                throw new TestError("uncaught exception occurred: "
+                                    + line.replaceFirst("\\s+$", ""));
+            }
+            line = line.replaceFirst("\\s+$", "").replace('\t', ' ')
+                .replaceAll("  +", " ");
+            if (type.equals("<") && line.equals(patn)
+                || type.equals("?")
+                   && (pattern == null || pattern.matcher(line).lookingAt())) {
+                return;
+            }
+            throw new TestError(String.format("output mismatch (%s / %s)",
+                                              line, patn));
+        }
+
+        /**
+         * Log the message formed from FORMAT and ARGS, if verbose.
+         */
+        private void log(String format, Object... args) {
+            if (_verbose) {
+                synchronized (_log) {
+                    _log.append(String.format(format, args)
+                                .replaceFirst("\\s+$", ""))
+                        .append('\n');
+                }
+            }
+        }
+
+        /** Name of this section. */
+        private final String _title;
+        /** Lines of this section. */
+        private final List<String> _script;
+        /** Number of script lines read so far. */
+        private int _k;
+        /** Number of script lines before this section. */
+        private final int _scriptStart;
+        /** Where to report my verdict. */
+        private final BlockingQueue<Object[]> _done;
+        /** The command that would start the program. */
+        private final String _command;
+        /** Thread performing the script. */
+        private final Thread _runner;
+        /** Thread running the Game. */
+        private Thread _game;
+        /** Exit status of the Game: 0 if it returned normally. */
+        private volatile int _exitCode = 1;
+        /** Commands for the Game. */
+        private final QueueSource _input = new QueueSource();
+        /** Filtered output of the Game. */
+        private final FilteringReporter _output = new FilteringReporter();
+        /** True once the Game's output has ended. */
+        private boolean _eof;
+        /** Seconds allowed for each expected output. */
+        private double _opLimit = DEFAULT_OP_LIMIT;
+        /** Messages from the other section, or null. */
+        private BlockingQueue<Object> _otherInput;
+        /** The other section's _otherInput, or null. */
+        private BlockingQueue<Object> _otherOutput;
+        /** Log of this section, if verbose. */
+        private final StringBuilder _log = new StringBuilder();
+    }
+
+    /**
+     * A CommandSource fed lines by a test script.
+     */
+    static class QueueSource implements CommandSource {
+
+        @Override
+        public String getLine(String prompt) {
+            if (_closed && _lines.isEmpty()) {
+                return null;
+            }
+            try {
+                Object line = _lines.take();
+                if (line == EOF) {
+                    _closed = true;
+                    _lines.add(EOF);
+                    return null;
+                }
+                return (String) line;
+            } catch (InterruptedException excp) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean ready() {
+            Object head = _lines.peek();
+            return head != null && head != EOF;
+        }
+
+        /**
+         * Queue LINE as the next line of input.
+         */
+        void add(String line) {
+            _lines.add(line);
+        }
+
+        /**
+         * End the input after the lines already queued.
+         */
+        void close() {
+            _lines.add(EOF);
+        }
+
+        /** Queued lines, ending with EOF once closed. */
+        private final BlockingQueue<Object> _lines =
+            new LinkedBlockingQueue<>();
+        /** True once EOF has been read. */
+        private volatile boolean _closed;
+    }
+
+    /**
+     * A Reporter that keeps the lines of its messages that test-ataxx.py
+     * would keep from a program's output, for checking by a Program.
+     */
+    static class FilteringReporter implements Reporter {
+
+        @Override
+        public void errMsg(String format, Object... args) {
+            write(String.format(format, args));
+        }
+
+        @Override
+        public void outcomeMsg(String format, Object... args) {
+            write(String.format(format, args));
+        }
+
+        @Override
+        public void moveMsg(String format, Object... args) {
+            write(String.format(format, args));
+        }
+
+        /**
+         * Report the uncaught exception EXCP, as the JVM would.
+         */
+        void exception(Throwable excp) {
+            write("Exception in thread \"main\" " + excp);
+        }
+
+        /**
+         * Mark the end of output.
+         */
+        void close() {
+            _lines.add(EOF);
+        }
+
+        /**
+         * Return the next kept line, or EOF, waiting up to MILLIS
+         * milliseconds; null if none arrives.
+         */
+        Object poll(long millis) throws InterruptedException {
+            return _lines.poll(millis, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Filter the lines of TEXT: within a board (between lines starting
+         * with "==="), keep every line; elsewhere, remove any prefix ending
+         * in a colon and keep lines announcing moves and outcomes.
+         */
+        private synchronized void write(String text) {
+            for (String line : text.split("\n", -1)) {
+                if (_inBoard) {
+                    _lines.add(line);
+                    if (BOARD_EDGE.matcher(line).lookingAt()) {
+                        _inBoard = false;
+                    }
+                    continue;
+                }
+                line = line.replaceFirst("^.*:\\s*", "")
+                    .replaceFirst("\\s+$", "").replace('\t', ' ')
+                    .replaceAll("  +", " ");
+                if (BOARD_EDGE.matcher(line).lookingAt()) {
+                    _lines.add(line);
+                    _inBoard = true;
+                } else if (KEPT.matcher(line).find()) {
+                    _lines.add(line);
+                }
+            }
+        }
+
+        /** Kept lines, ending with EOF. */
+        private final BlockingQueue<Object> _lines =
+            new LinkedBlockingQueue<>();
+        /** True iff within a board. */
+        private boolean _inBoard;
+    }
+
+    /**
+     * Return a Matcher for PATTERN that has matched a prefix of TEXT, or
+     * null if there is none.
+     */
+    private static Matcher match(String pattern, String text) {
+        Matcher mat = Pattern.compile(pattern).matcher(text);
+        return mat.lookingAt() ? mat : null;
+    }
+
+    /** Verdicts. */
+    static final String OK = "OK", ERROR = "ERROR", FAIL = "FAIL";
+
+    /** Marks the end of a stream of lines. */
+    static final Object EOF = new Object();
+
+    /** Default limits in seconds on a whole test, on waiting for the
+     *  second section to finish, and on each expected output. */
+    private static final double DEFAULT_TOTAL_TIME = 120,
+        CLEANUP_TIME = 2, DEFAULT_OP_LIMIT = 10;
+
+    /** Formats of moves and outcomes. */
+    private static final String MOVE_FORMAT = "[a-g][1-7]-[a-g][1-7]";
+    /** Moves and outcomes for each side. */
+    private static final Pattern
+        RED_MOVE = Pattern.compile("(?:((?:Red|Blue) wins|Draw)|Red (passes)"
+                                   + "|Red moves (" + MOVE_FORMAT + "))\\.$"),
+        BLUE_MOVE = Pattern.compile("(?:((?:Red|Blue) wins|Draw)|Blue"
+                                    + " (passes)|Blue moves (" + MOVE_FORMAT
+                                    + "))\\.$");
+    /** Start or end of a board. */
+    private static final Pattern BOARD_EDGE = Pattern.compile("\\s*===");
+    /** Output lines kept outside boards. */
+    private static final Pattern KEPT =
+        Pattern.compile("(?i)wins|passes|moves|draw|Exception in thread");
+    /** A total time limit, as (mis)recognized by test-ataxx.py. */
+    private static final Pattern TOTAL_TIME =
+        Pattern.compile("(?m)^\\s+total-time\\s+(\\d+)");
+    /** Two sections of a script. */
+    private static final Pattern SECTIONS =
+        Pattern.compile("(?sm)(.*?)^ *----------+ *\n(.*)");
+
+    /** True iff logging. */
+    private static boolean _verbose;
+
+}
@@ -0,0 +1,111 @@
+package ataxx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of ScriptRunner's command source, output filter and verdicts.
+ *
+ * @author Keith Pacana
+ */
+public class ScriptRunnerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(60);
+
+    /** A script that places blocks, makes two moves and checks the
+     *  dump of the resulting board, with EXPECTED as the second row of
+     *  the expected dump. */
+    private static String dumpScript(String expected) {
+        return "# Blocks and moves\n"
+            + "java -ea ataxx.Main\n"
+            + "block b2\n"
+            + "block a7\n"
+            + "a7-a6\n"
+            + "g7-f6\n"
+            + "dump\n"
+            + "@<===\n"
+            + "@<  r - - - - - b\n"
+            + "@<" + expected + "\n"
+            + "@<  - - - - - - -\n"
+            + "@<  - - - - - - -\n"
+            + "@<  - - - - - - -\n"
+            + "@<  - X - - - X -\n"
+            + "@<  b - - - - - r\n"
+            + "@<===\n"
+            + "quit\n";
+    }
+
+    @Test
+    public void testQueueSource() {
+        ScriptRunner.QueueSource source = new ScriptRunner.QueueSource();
+        assertFalse(source.ready());
+        source.add("start");
+        source.add("a7-a6");
+        assertTrue(source.ready());
+        assertEquals("start", source.getLine(">"));
+        assertTrue(source.ready());
+        assertEquals("a7-a6", source.getLine(">"));
+        assertFalse(source.ready());
+        source.close();
+        assertFalse("end of input is not a ready line", source.ready());
+        assertNull(source.getLine(">"));
+        assertNull("end of input is not sticky", source.getLine(">"));
+    }
+
+    @Test
+    public void testFilteringReporter() throws InterruptedException {
+        ScriptRunner.FilteringReporter output =
+            new ScriptRunner.FilteringReporter();
+        assertNull(output.poll(10));
+        output.moveMsg("%s moves %s.", "Red", "a7-b7");
+        output.errMsg("Invalid command: %s", "foo");
+        output.moveMsg("===\n  r - - - - - b\n  -\tX  - - - - -\n===");
+        output.outcomeMsg("Game over:  %s  wins.", "Blue");
+        output.close();
+        assertEquals("Red moves a7-b7.", output.poll(10));
+        assertEquals("===", output.poll(10));
+        assertEquals("  r - - - - - b", output.poll(10));
+        assertEquals("  -\tX  - - - - -", output.poll(10));
+        assertEquals("===", output.poll(10));
+        assertEquals("Blue wins.", output.poll(10));
+        assertSame(ScriptRunner.EOF, output.poll(10));
+    }
+
+    @Test
+    public void testDumpMatches() {
+        String[] result = ScriptRunner.runTest(dumpScript("  r X - - - X -"));
+        assertEquals(result[1], ScriptRunner.OK, result[0]);
+    }
+
+    @Test
+    public void testDumpMismatch() {
+        String[] result = ScriptRunner.runTest(dumpScript("  r - - - - X -"));
+        assertEquals(ScriptRunner.ERROR, result[0]);
+        assertEquals("output mismatch ( r X - - - X - /  r - - - - X -)"
+                     + " near line 10", result[1]);
+    }
+
+    @Test
+    public void testFailingScripts() {
+        String[] result = ScriptRunner.runTest("# no command\n\n");
+        assertEquals(ScriptRunner.FAIL, result[0]);
+        assertEquals("No command found near line 1", result[1]);
+        result = ScriptRunner.runTest("java ataxx.Main --gui\nstart\n");
+        assertEquals(ScriptRunner.FAIL, result[0]);
+        assertTrue(result[1], result[1].startsWith("cannot run in-process"));
+        result = ScriptRunner.runTest("java -ea ataxx.Main\n@bogus\nquit\n");
+        assertEquals(ScriptRunner.FAIL, result[0]);
+        assertEquals("bad command in script near line 2", result[1]);
+        result = ScriptRunner.runTest("java -ea ataxx.Main\n@time 0.5\n"
+                                      + "@<Red moves a7-a6.\nquit\n");
+        assertEquals(ScriptRunner.ERROR, result[0]);
+        assertEquals("timed out waiting for output near line 3",
+                     result[1]);
+    }
+
+}
@@ -0,0 +1,54 @@
+package ataxx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for one analysis by an Engine, spanning
+ * the whole search.  Fields are filled in only when a recording wants
+ * the event, so that searches pay almost nothing otherwise.
+ *
+ * @author Keith Pacana
+ */
+@Name("ataxx.Search")
+@Label("Search")
+@Category("Ataxx")
+@Description("One iterative-deepening search by an Engine")
+class SearchEvent extends Event {
+
+    /** Deepest iteration completed. */
+    @Label("Depth")
+    int depth;
+
+    /** Positions visited. */
+    @Label("Nodes")
+    long nodes;
+
+    /** Static evaluations. */
+    @Label("Evaluations")
+    long evaluations;
+
+    /** Beta cutoffs. */
+    @Label("Cutoffs")
+    long cutoffs;
+
+    /** Fraction of cutoffs caused by the first move tried. */
+    @Label("First-Move Cutoff Rate")
+    double firstMoveCutoffRate;
+
+    /** Average moves searched per interior position. */
+    @Label("Branching Factor")
+    double branchingFactor;
+
+    /** Score of the best line, for the side to move. */
+    @Label("Score")
+    int score;
+
+    /** Best move found. */
+    @Label("Best Move")
+    String bestMove;
+
+}
@@ -0,0 +1,267 @@
+package ataxx;
+
+import java.util.Arrays;
+
+/**
+ * Counters describing one or more searches by an Engine: how many
+ * positions were visited and statically evaluated, how often moves
+ * caused cutoffs, how many moves were searched at each interior
+ * position, how often moves were reduced or pruned, and how long each
+ * iteration of deepening took to complete.
+ * Keeping them costs a few additions per position, so Engines always
+ * do; an Engine's counters belong to the thread using that Engine, and
+ * need no synchronization.
+ *
+ * @author Keith Pacana
+ */
+class SearchStats {
+
+    /**
+     * Reset all counters to zero.
+     */
+    void clear() {
+        _searches = _nodes = _evaluations = _cutoffs = _firstMoveCutoffs
+            = _expanded = _children = _nanos = 0;
+        _reductions = _researches = _futilityPrunes = _reverseFutilityPrunes
+            = 0;
+        Arrays.fill(_depthNanos, 0);
+        Arrays.fill(_depthCounts, 0);
+    }
+
+    /**
+     * Add the counters of OTHER to mine.
+     */
+    void add(SearchStats other) {
+        _searches += other._searches;
+        _nodes += other._nodes;
+        _evaluations += other._evaluations;
+        _cutoffs += other._cutoffs;
+        _firstMoveCutoffs += other._firstMoveCutoffs;
+        _expanded += other._expanded;
+        _children += other._children;
+        _nanos += other._nanos;
+        _reductions += other._reductions;
+        _researches += other._researches;
+        _futilityPrunes += other._futilityPrunes;
+        _reverseFutilityPrunes += other._reverseFutilityPrunes;
+        for (int d = 0; d < _depthNanos.length; d += 1) {
+            _depthNanos[d] += other._depthNanos[d];
+            _depthCounts[d] += other._depthCounts[d];
+        }
+    }
+
+    /**
+     * Record a search that took NANOS nanoseconds, visited NODES
+     * positions, evaluated EVALUATIONS of them statically, had CUTOFFS
+     * beta cutoffs (FIRSTMOVECUTOFFS of them caused by the first move
+     * tried), and searched CHILDREN moves from EXPANDED interior
+     * positions.
+     */
+    void recordSearch(long nanos, long nodes, long evaluations,
+                      long cutoffs, long firstMoveCutoffs, long expanded,
+                      long children) {
+        _searches += 1;
+        _nanos += nanos;
+        _nodes += nodes;
+        _evaluations += evaluations;
+        _cutoffs += cutoffs;
+        _firstMoveCutoffs += firstMoveCutoffs;
+        _expanded += expanded;
+        _children += children;
+    }
+
+    /**
+     * Record that a search searched REDUCTIONS moves to reduced depth
+     * (RESEARCHES of which had to be searched again to full depth),
+     * skipped FUTILITYPRUNES moves as futile, and cut off
+     * REVERSEFUTILITYPRUNES positions on their static scores.
+     */
+    void recordPruning(long reductions, long researches,
+                       long futilityPrunes, long reverseFutilityPrunes) {
+        _reductions += reductions;
+        _researches += researches;
+        _futilityPrunes += futilityPrunes;
+        _reverseFutilityPrunes += reverseFutilityPrunes;
+    }
+
+    /**
+     * Record that a search completed its iteration to DEPTH plies NANOS
+     * nanoseconds after it started.
+     */
+    void recordDepth(int depth, long nanos) {
+        if (depth < _depthNanos.length) {
+            _depthNanos[depth] += nanos;
+            _depthCounts[depth] += 1;
+        }
+    }
+
+    /**
+     * Return the number of searches recorded.
+     */
+    long searches() {
+        return _searches;
+    }
+
+    /**
+     * Return the number of positions visited.
+     */
+    long nodes() {
+        return _nodes;
+    }
+
+    /**
+     * Return the number of static evaluations.
+     */
+    long evaluations() {
+        return _evaluations;
+    }
+
+    /**
+     * Return the number of beta cutoffs.
+     */
+    long cutoffs() {
+        return _cutoffs;
+    }
+
+    /**
+     * Return the fraction of beta cutoffs caused by the first move
+     * tried, or 0 if there were none.
+     */
+    double firstMoveCutoffRate() {
+        return _cutoffs == 0 ? 0.0 : (double) _firstMoveCutoffs / _cutoffs;
+    }
+
+    /**
+     * Return the number of moves searched to reduced depth.
+     */
+    long reductions() {
+        return _reductions;
+    }
+
+    /**
+     * Return the number of reduced moves searched again to full depth.
+     */
+    long researches() {
+        return _researches;
+    }
+
+    /**
+     * Return the number of moves skipped by futility pruning.
+     */
+    long futilityPrunes() {
+        return _futilityPrunes;
+    }
+
+    /**
+     * Return the number of positions cut off by reverse futility
+     * pruning.
+     */
+    long reverseFutilityPrunes() {
+        return _reverseFutilityPrunes;
+    }
+
+    /**
+     * Return the average number of moves searched from each interior
+     * position, or 0 if there were none.
+     */
+    double branchingFactor() {
+        return _expanded == 0 ? 0.0 : (double) _children / _expanded;
+    }
+
+    /**
+     * Return the total search time in nanoseconds.
+     */
+    long nanos() {
+        return _nanos;
+    }
+
+    /**
+     * Return the number of positions visited per second.
+     */
+    double nodesPerSecond() {
+        return _nodes * 1e9 / Math.max(_nanos, 1);
+    }
+
+    /**
+     * Return the deepest iteration completed by any search.
+     */
+    int maxDepth() {
+        for (int d = _depthCounts.length - 1; d > 0; d -= 1) {
+            if (_depthCounts[d] > 0) {
+                return d;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Return the average time in nanoseconds from the start of a search
+     * to the completion of its iteration to DEPTH plies, over the
+     * searches that completed it, or 0 if none did.
+     */
+    long timeToDepth(int depth) {
+        if (depth >= _depthCounts.length || _depthCounts[depth] == 0) {
+            return 0;
+        }
+        return _depthNanos[depth] / _depthCounts[depth];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%d searches, %d nodes in %.1f ms"
+                                 + " (%.0f nodes/s), %d evaluations,"
+                                 + " %d cutoffs (%.1f%% first move),"
+                                 + " branching factor %.2f",
+                                 _searches, _nodes, _nanos / 1e6,
+                                 nodesPerSecond(), _evaluations, _cutoffs,
+                                 100.0 * firstMoveCutoffRate(),
+                                 branchingFactor()));
+        if (_reductions + _futilityPrunes + _reverseFutilityPrunes > 0) {
+            out.append(String.format("; %d reduced (%d re-searched),"
+                                     + " %d futile, %d reverse futile",
+                                     _reductions, _researches,
+                                     _futilityPrunes,
+                                     _reverseFutilityPrunes));
+        }
+        int maxDepth = maxDepth();
+        if (maxDepth > 0) {
+            out.append("; time to depth");
+            for (int d = 1; d <= maxDepth; d += 1) {
+                out.append(String.format(" %d:%.2f ms", d,
+                                         timeToDepth(d) / 1e6));
+            }
+        }
+        return out.toString();
+    }
+
+    /** Number of searches. */
+    private long _searches;
+    /** Number of positions visited. */
+    private long _nodes;
+    /** Number of static evaluations. */
+    private long _evaluations;
+    /** Number of beta cutoffs. */
+    private long _cutoffs;
+    /** Number of beta cutoffs by the first move tried. */
+    private long _firstMoveCutoffs;
+    /** Number of interior positions whose moves were searched. */
+    private long _expanded;
+    /** Number of moves searched from interior positions. */
+    private long _children;
+    /** Total search time in nanoseconds. */
+    private long _nanos;
+    /** Number of moves searched to reduced depth. */
+    private long _reductions;
+    /** Number of reduced moves searched again to full depth. */
+    private long _researches;
+    /** Number of moves skipped by futility pruning. */
+    private long _futilityPrunes;
+    /** Number of positions cut off by reverse futility pruning. */
+    private long _reverseFutilityPrunes;
+    /** Total nanoseconds to complete each depth, by depth. */
+    private final long[] _depthNanos = new long[Engine.MAX_PLY];
+    /** Number of searches completing each depth, by depth. */
+    private final long[] _depthCounts = new long[Engine.MAX_PLY];
+
+}
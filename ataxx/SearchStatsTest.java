@@ -0,0 +1,88 @@
+package ataxx;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the statistics kept by Engine searches.
+ *
+ * @author Keith Pacana
+ */
+public class SearchStatsTest {
+
+    @Test
+    public void testSearchCounters() {
+        Engine engine = new Engine();
+        Board b = new Board();
+        engine.findMove(b, 4);
+        SearchStats stats = engine.stats();
+        assertEquals(1, stats.searches());
+        assertEquals(engine.nodes(), stats.nodes());
+        assertTrue(stats.evaluations() > 0);
+        assertTrue(stats.evaluations() < stats.nodes());
+        assertTrue(stats.cutoffs() > 0);
+        assertTrue(stats.firstMoveCutoffRate() > 0.0
+                   && stats.firstMoveCutoffRate() <= 1.0);
+        assertTrue(stats.branchingFactor() >= 1.0);
+        assertEquals(4, stats.maxDepth());
+        for (int d = 2; d <= 4; d += 1) {
+            assertTrue(stats.timeToDepth(d) >= stats.timeToDepth(d - 1));
+        }
+        assertTrue(stats.nanos() >= stats.timeToDepth(4));
+    }
+
+    @Test
+    public void testGameTotals() {
+        Engine engine = new Engine();
+        Board b = new Board();
+        long nodes = 0;
+        for (int i = 0; i < 3; i += 1) {
+            b.makeMove(engine.findMove(b, 3));
+            nodes += engine.nodes();
+            assertEquals(1, engine.stats().searches());
+        }
+        assertEquals(3, engine.gameStats().searches());
+        assertEquals(nodes, engine.gameStats().nodes());
+        engine.newGame();
+        assertEquals(0, engine.gameStats().searches());
+        assertEquals(0, engine.stats().nodes());
+    }
+
+    @Test
+    public void testPruningCounters() {
+        Board b = new Board();
+        Positions.parse(Bench.POSITIONS[2], b);
+        Engine full = new Engine(), pruned = new Engine();
+        full.setLateMoveReductions(false);
+        full.setFutilityPruning(false);
+        full.setReverseFutilityPruning(false);
+        full.findMove(b, 5);
+        pruned.findMove(b, 5);
+        SearchStats stats = full.stats();
+        assertEquals(0, stats.reductions() + stats.futilityPrunes()
+                     + stats.reverseFutilityPrunes());
+        stats = pruned.stats();
+        assertTrue(stats.reductions() > 0);
+        assertTrue(stats.researches() <= stats.reductions());
+        assertTrue(stats.futilityPrunes() + stats.reverseFutilityPrunes()
+                   > 0);
+        assertTrue(pruned.nodes() < full.nodes());
+    }
+
+    @Test
+    public void testAdd() {
+        Engine engine = new Engine();
+        engine.findMove(new Board(), 3);
+        SearchStats total = new SearchStats();
+        total.add(engine.stats());
+        total.add(engine.stats());
+        assertEquals(2, total.searches());
+        assertEquals(2 * engine.stats().nodes(), total.nodes());
+        assertEquals(engine.stats().timeToDepth(3), total.timeToDepth(3));
+        total.clear();
+        assertEquals(0, total.nodes());
+        assertEquals(0, total.maxDepth());
+    }
+
+}
@@ -0,0 +1,251 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static ataxx.GameException.error;
+
+/**
+ * A record of the moves searched by an Engine during one analysis, kept
+ * in a ring buffer allocated once, so that recording allocates nothing
+ * and costs a few array stores per move.  When the buffer is full, the
+ * oldest records are overwritten.
+ * <p>
+ * Each move searched produces one record when its search returns: its
+ * level (the ply from which it was made, plus one), the move, the depth
+ * remaining before it, the window alpha..beta and the score of the move
+ * (both from the point of view of the side making it), and flags
+ * telling whether it caused a cutoff, was searched at reduced depth,
+ * was searched again after a reduced search, or was pruned without
+ * being searched.  Each completed search of the root produces a record
+ * at level 0 with no move.  Records thus come in post-order, which is
+ * enough for TraceTool to rebuild the tree.
+ * <p>
+ * Trace files hold, as by DataOutputStream, the magic number MAGIC, the
+ * format version, the binary record of the root position (see
+ * Positions), the number of records made (as a long), the number kept,
+ * and the kept records, oldest first, each as RECORD_INTS ints.
+ *
+ * @author Keith Pacana
+ */
+class SearchTrace {
+
+    /** Magic number identifying a trace file. */
+    static final int MAGIC = 0x41545854;
+    /** Version of the trace format. */
+    static final int VERSION = 1;
+    /** Default number of records kept. */
+    static final int DEFAULT_CAPACITY = 1 << 18;
+    /** Number of ints in a record. */
+    static final int RECORD_INTS = 4;
+
+    /** Flag: the move caused a beta cutoff. */
+    static final int CUTOFF = 1;
+    /** Flag: the move was searched at reduced depth. */
+    static final int REDUCED = 2;
+    /** Flag: the move was searched again at full depth. */
+    static final int RESEARCHED = 4;
+    /** Flag: the move was pruned without being searched. */
+    static final int PRUNED = 8;
+
+    /**
+     * A trace keeping the last CAPACITY records, which is rounded up to
+     * a power of two.
+     */
+    SearchTrace(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        _buffer = new int[size * RECORD_INTS];
+        _mask = size - 1;
+        _root = new byte[Positions.RECORD_SIZE];
+    }
+
+    /**
+     * Discard all records and note that BOARD is the root position of
+     * the records to come.
+     */
+    void start(Board board) {
+        Positions.encode(board, _root, 0);
+        _count = 0;
+    }
+
+    /**
+     * Record that MOVE (null at the root) was searched at LEVEL with
+     * DEPTH plies remaining and window ALPHA..BETA, giving SCORE, with
+     * FLAGS.
+     */
+    void record(int level, Move move, int depth, int alpha, int beta,
+                int score, int flags) {
+        int k = (int) (_count & _mask) * RECORD_INTS;
+        _buffer[k] = level | depth << DEPTH_SHIFT | flags << FLAGS_SHIFT
+            | (int) Engine.encodeMove(move) << MOVE_SHIFT;
+        _buffer[k + 1] = alpha;
+        _buffer[k + 2] = beta;
+        _buffer[k + 3] = score;
+        _count += 1;
+    }
+
+    /**
+     * Return the number of records made since start().
+     */
+    long count() {
+        return _count;
+    }
+
+    /**
+     * Return the number of records kept.
+     */
+    int size() {
+        return (int) Math.min(_count, _mask + 1);
+    }
+
+    /**
+     * Store the root position in BOARD.
+     */
+    void root(Board board) {
+        Positions.decode(_root, 0, board);
+    }
+
+    /** Return the level of kept record K (0 is the oldest). */
+    int level(int k) {
+        return word(k, 0) & LEVEL_MASK;
+    }
+
+    /** Return the move of kept record K, or null at the root. */
+    Move move(int k) {
+        return Engine.decodeMove(word(k, 0) >>> MOVE_SHIFT);
+    }
+
+    /** Return the remaining depth of kept record K. */
+    int depth(int k) {
+        return (word(k, 0) >>> DEPTH_SHIFT) & LEVEL_MASK;
+    }
+
+    /** Return the flags of kept record K. */
+    int flags(int k) {
+        return (word(k, 0) >>> FLAGS_SHIFT) & FLAGS_MASK;
+    }
+
+    /** Return the alpha of kept record K. */
+    int alpha(int k) {
+        return word(k, 1);
+    }
+
+    /** Return the beta of kept record K. */
+    int beta(int k) {
+        return word(k, 2);
+    }
+
+    /** Return the score of kept record K. */
+    int score(int k) {
+        return word(k, 3);
+    }
+
+    /**
+     * Return int I of kept record K.
+     */
+    private int word(int k, int i) {
+        long first = _count - size();
+        return _buffer[(int) ((first + k) & _mask) * RECORD_INTS + i];
+    }
+
+    /**
+     * Write my records to the file named NAME.
+     */
+    void save(String name) {
+        try (OutputStream out =
+             new BufferedOutputStream(new FileOutputStream(name))) {
+            write(out);
+        } catch (IOException excp) {
+            throw error("could not write trace to %s", name);
+        }
+    }
+
+    /**
+     * Write my records to OUT.
+     */
+    void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.write(_root);
+        data.writeLong(_count);
+        int size = size();
+        data.writeInt(size);
+        for (int k = 0; k < size; k += 1) {
+            for (int i = 0; i < RECORD_INTS; i += 1) {
+                data.writeInt(word(k, i));
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Return the trace in the file named NAME.
+     */
+    static SearchTrace load(String name) {
+        try (InputStream in =
+             new BufferedInputStream(new FileInputStream(name))) {
+            return read(in, name);
+        } catch (IOException excp) {
+            throw error("could not read trace from %s", name);
+        }
+    }
+
+    /**
+     * Return the trace read from IN, which is described as NAME in error
+     * messages.
+     */
+    static SearchTrace read(InputStream in, String name) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw error("%s is not a trace file", name);
+        }
+        byte[] root = new byte[Positions.RECORD_SIZE];
+        data.readFully(root);
+        long count = data.readLong();
+        int size = data.readInt();
+        if (size < 0 || size > count) {
+            throw error("%s: bad record count", name);
+        }
+        SearchTrace trace = new SearchTrace(size);
+        if (count > size && size != trace._mask + 1) {
+            throw error("%s: bad record count", name);
+        }
+        System.arraycopy(root, 0, trace._root, 0, root.length);
+        trace._count = count;
+        for (int k = 0; k < size; k += 1) {
+            int slot = (int) ((count - size + k) & trace._mask);
+            for (int i = 0; i < RECORD_INTS; i += 1) {
+                trace._buffer[slot * RECORD_INTS + i] = data.readInt();
+            }
+        }
+        return trace;
+    }
+
+    /* Layout of the first int of a record. */
+    /** Mask of the level and depth. */
+    private static final int LEVEL_MASK = 0x3F;
+    /** Position of the depth. */
+    private static final int DEPTH_SHIFT = 6;
+    /** Position and mask of the flags. */
+    private static final int FLAGS_SHIFT = 12, FLAGS_MASK = 0xF;
+    /** Position of the move code. */
+    private static final int MOVE_SHIFT = 16;
+
+    /** The records, RECORD_INTS ints each. */
+    private final int[] _buffer;
+    /** Mask selecting a record slot from a record number. */
+    private final int _mask;
+    /** Binary record of the root position. */
+    private final byte[] _root;
+    /** Number of records made. */
+    private long _count;
+
+}
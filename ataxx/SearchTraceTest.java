@@ -0,0 +1,86 @@
+package ataxx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of SearchTrace and TraceTool.
+ *
+ * @author Keith Pacana
+ */
+public class SearchTraceTest {
+
+    /** Return a copy of TRACE made by writing and reading it. */
+    private static SearchTrace copy(SearchTrace trace) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.write(out);
+        return SearchTrace.read(new ByteArrayInputStream(out.toByteArray()),
+                                "test");
+    }
+
+    @Test
+    public void testRebuild() throws IOException {
+        Engine engine = new Engine();
+        engine.setTrace(new SearchTrace(SearchTrace.DEFAULT_CAPACITY));
+        Board b = new Board();
+        Move best = engine.findMove(b, 3);
+        SearchTrace trace = copy(engine.trace());
+        assertEquals(engine.trace().count(), trace.count());
+        Board root = new Board();
+        trace.root(root);
+        assertEquals(Positions.format(b), Positions.format(root));
+
+        List<TraceTool.Node> nodes = TraceTool.build(trace);
+        assertEquals(3, nodes.size());
+        int records = 0;
+        for (int d = 1; d <= 3; d += 1) {
+            TraceTool.Node search = nodes.get(d - 1);
+            assertEquals(0, search.level);
+            assertEquals(d, search.depth);
+            assertEquals(ROOT_MOVES, search.children.size());
+            records += search.size;
+        }
+        assertEquals(trace.size(), records);
+        TraceTool.Node last = nodes.get(2);
+        assertEquals(engine.lineScore(0), last.score);
+        boolean found = false;
+        for (TraceTool.Node child : last.children) {
+            assertEquals(1, child.level);
+            assertTrue(child.score <= last.score);
+            found |= child.move == best && child.score == last.score;
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void testOverflow() throws IOException {
+        Engine engine = new Engine();
+        engine.setTrace(new SearchTrace(64));
+        engine.findMove(new Board(), 4);
+        SearchTrace trace = engine.trace();
+        assertTrue(trace.count() > 64);
+        assertEquals(64, trace.size());
+        SearchTrace copy = copy(trace);
+        assertEquals(64, copy.size());
+        for (int k = 0; k < 64; k += 1) {
+            assertEquals(trace.level(k), copy.level(k));
+            assertEquals(trace.move(k), copy.move(k));
+            assertEquals(trace.score(k), copy.score(k));
+        }
+        List<TraceTool.Node> nodes = TraceTool.build(copy);
+        TraceTool.Node last = nodes.get(nodes.size() - 1);
+        assertEquals(0, last.level);
+        assertEquals(engine.lineScore(0), last.score);
+    }
+
+    /** Number of distinct moves from the initial position: three
+     *  extends and five jumps by each piece. */
+    private static final int ROOT_MOVES = 16;
+
+}
@@ -0,0 +1,404 @@
+package ataxx;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/**
+ * Headless generation of training data by self-play.  Worker threads,
+ * each with its own Engine, play games that begin with a few random
+ * blocks and random moves and continue with fixed-depth searches by
+ * both sides.  After the first few plies of each game, positions are
+ * sampled at a fixed rate and recorded, with the score of the search
+ * made from them and the result of the game, in a TrainingFile.  Each
+ * worker collects whole games into a chunk and writes the chunk when it
+ * is full, so workers rarely contend for the file.
+ * <p>
+ * The random choices of game N come from a generator seeded from N and
+ * the base seed.  A resumed run keeps the complete chunks already
+ * written and continues with the games after the last one recorded, so
+ * that it does not repeat their openings.  Usage:
+ * <pre>
+ *     java ataxx.SelfPlay [--positions N] [--depth D] [--threads T]
+ *                         [--random K] [--skip S] [--keep P]
+ *                         [--seed X] [--resume] OUT
+ * </pre>
+ * plays until OUT holds at least N positions (default 100000),
+ * searching to D plies (default 3), playing K random opening moves
+ * (default 8) and keeping each position after the first S plies
+ * (default 8) with probability P (default 0.25).
+ *
+ * @author Keith Pacana
+ */
+public class SelfPlay {
+
+    /**
+     * Generate training data as described above.
+     */
+    public static void main(String[] args) {
+        String output = null;
+        SelfPlay selfPlay = new SelfPlay();
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                switch (args[i]) {
+                case "--positions":
+                    selfPlay.setPositions(Long.parseLong(args[++i]));
+                    break;
+                case "--depth":
+                    selfPlay.setDepth(Integer.parseInt(args[++i]));
+                    break;
+                case "--threads":
+                    selfPlay.setThreads(Integer.parseInt(args[++i]));
+                    break;
+                case "--random":
+                    selfPlay.setRandomPlies(Integer.parseInt(args[++i]));
+                    break;
+                case "--skip":
+                    selfPlay.setSkip(Integer.parseInt(args[++i]));
+                    break;
+                case "--keep":
+                    selfPlay.setKeep(Double.parseDouble(args[++i]));
+                    break;
+                case "--seed":
+                    selfPlay.setSeed(Long.parseLong(args[++i]));
+                    break;
+                case "--resume":
+                    selfPlay.setResume(true);
+                    break;
+                default:
+                    if (output != null) {
+                        usage();
+                    }
+                    output = args[i];
+                    break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException
+                 | NumberFormatException excp) {
+            usage();
+        }
+        if (output == null) {
+            usage();
+        }
+        try {
+            selfPlay.run(output);
+        } catch (GameException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print a usage message and exit.
+     */
+    private static void usage() {
+        System.err.println("Usage: java ataxx.SelfPlay [--positions N]"
+                           + " [--depth D] [--threads T] [--random K]");
+        System.err.println("           [--skip S] [--keep P] [--seed X]"
+                           + " [--resume] OUT");
+        System.exit(1);
+    }
+
+    /**
+     * Stop once the output holds at least POSITIONS positions.
+     */
+    void setPositions(long positions) {
+        _target = positions;
+    }
+
+    /**
+     * Search each move to DEPTH plies.
+     */
+    void setDepth(int depth) {
+        _depth = depth;
+    }
+
+    /**
+     * Use NUMTHREADS worker threads.
+     */
+    void setThreads(int numThreads) {
+        _numThreads = Math.max(1, numThreads);
+    }
+
+    /**
+     * Start each game with PLIES random moves.
+     */
+    void setRandomPlies(int plies) {
+        _randomPlies = plies;
+    }
+
+    /**
+     * Record no position from the first SKIP plies of a game.
+     */
+    void setSkip(int skip) {
+        _skip = skip;
+    }
+
+    /**
+     * Record each later position with probability KEEP.
+     */
+    void setKeep(double keep) {
+        if (keep <= 0 || keep > 1) {
+            throw error("keep rate must be in (0, 1]");
+        }
+        _keep = keep;
+    }
+
+    /**
+     * Use SEED as the base seed of the games.
+     */
+    void setSeed(long seed) {
+        _seed = seed;
+    }
+
+    /**
+     * Iff RESUME, keep the data already in the output and continue after
+     * it.
+     */
+    void setResume(boolean resume) {
+        _resume = resume;
+    }
+
+    /**
+     * Play games, writing their positions to the file named OUTPUT,
+     * reporting progress and throughput on the standard error.  If a
+     * worker fails, the others stop and its exception is rethrown.
+     */
+    void run(String output) {
+        try (TrainingFile file = TrainingFile.open(output, _resume)) {
+            _file = file;
+            _nextGame.set(file.lastGame() + 1);
+            long before = file.positions();
+            if (before > 0) {
+                System.err.printf("resuming: %d positions, %d games%n",
+                                  before, file.lastGame() + 1);
+            }
+            Thread[] workers = new Thread[_numThreads];
+            for (int i = 0; i < workers.length; i += 1) {
+                workers[i] = new Thread(this::work, "self-play-" + i);
+                workers[i].start();
+            }
+            long start = System.nanoTime();
+            try {
+                for (Thread worker : workers) {
+                    while (worker.isAlive()) {
+                        worker.join(PROGRESS_MILLIS);
+                        if (worker.isAlive()) {
+                            report(start, before, "progress");
+                        }
+                    }
+                }
+            } catch (InterruptedException excp) {
+                throw error("self-play interrupted");
+            }
+            if (_failure != null) {
+                throw _failure;
+            }
+            report(start, before, "done");
+        }
+    }
+
+    /**
+     * Body of a worker thread: play games, writing them in chunks,
+     * until enough positions have been produced or a worker has failed.
+     * The first failure is kept for run() to rethrow.
+     */
+    private void work() {
+        Engine engine = new Engine();
+        Board board = new Board();
+        ByteBuffer chunk =
+            ByteBuffer.allocate(CHUNK_RECORDS * TrainingFile.RECORD_SIZE);
+        ByteBuffer game =
+            ByteBuffer.allocate(MAX_PLIES * TrainingFile.RECORD_SIZE);
+        List<Move> moves = new ArrayList<>();
+        int count = 0;
+        long lastGame = -1;
+        try {
+            while (_failure == null
+                   && _produced.get() + _file.positions() < _target) {
+                long number = _nextGame.getAndIncrement();
+                game.clear();
+                int recorded = play(number, engine, board, game, moves);
+                if (count + recorded > CHUNK_RECORDS) {
+                    chunk.flip();
+                    _produced.addAndGet(-count);
+                    _file.writeChunk(chunk, count, lastGame);
+                    chunk.clear();
+                    count = 0;
+                }
+                game.flip();
+                chunk.put(game);
+                count += recorded;
+                lastGame = number;
+                _produced.addAndGet(recorded);
+                _games.incrementAndGet();
+            }
+            chunk.flip();
+            _produced.addAndGet(-count);
+            _file.writeChunk(chunk, count, lastGame);
+        } catch (RuntimeException excp) {
+            synchronized (this) {
+                if (_failure == null) {
+                    _failure = excp;
+                }
+            }
+        }
+    }
+
+    /**
+     * Play game number NUMBER with ENGINE on BOARD, using MOVES as
+     * scratch space, and store the records of its sampled positions into
+     * GAME.  Return the number of records stored.
+     */
+    private int play(long number, Engine engine, Board board,
+                     ByteBuffer game, List<Move> moves) {
+        Random random = new Random(gameSeed(_seed, number));
+        engine.newGame();
+        startGame(board, random, _randomPlies, moves);
+        int recorded = 0;
+        for (int ply = board.numMoves();
+             !board.gameOver() && ply < MAX_PLIES; ply += 1) {
+            Move move = engine.findMove(board, _depth);
+            if (!move.isPass() && ply >= _skip
+                && random.nextDouble() < _keep) {
+                int score = engine.lineScore(0);
+                if (board.whoseMove() == BLUE) {
+                    score = -score;
+                }
+                TrainingFile.put(game, board, score, 0);
+                recorded += 1;
+            }
+            board.makeMove(move);
+        }
+        int diff = board.redPieces() - board.bluePieces();
+        byte result2 = (byte) (diff > 0 ? 2 : diff < 0 ? 0 : 1);
+        for (int k = 1; k <= recorded; k += 1) {
+            game.put(k * TrainingFile.RECORD_SIZE - 1, result2);
+        }
+        _plies.addAndGet(board.numMoves());
+        return recorded;
+    }
+
+    /**
+     * Return the seed of the random choices of game number NUMBER in a
+     * run with base seed SEED.
+     */
+    static long gameSeed(long seed, long number) {
+        return seed ^ (number * GAME_SEED_STEP);
+    }
+
+    /**
+     * Clear BOARD and start a game on it with up to MAX_BLOCKS random
+     * blocks and PLIES random moves (fewer if the game ends first),
+     * chosen by RANDOM, using MOVES as scratch space.
+     */
+    static void startGame(Board board, Random random, int plies,
+                          List<Move> moves) {
+        board.clear();
+        for (int k = random.nextInt(MAX_BLOCKS + 1); k > 0; k -= 1) {
+            String block = BLOCKS[random.nextInt(BLOCKS.length)];
+            if (board.legalBlock(block)) {
+                board.setBlock(block);
+            }
+        }
+        for (int ply = 0; ply < plies && !board.gameOver(); ply += 1) {
+            legalMoves(board, moves);
+            board.makeMove(moves.isEmpty() ? Move.pass()
+                           : moves.get(random.nextInt(moves.size())));
+        }
+    }
+
+    /**
+     * Set MOVES to the legal moves, other than pass, in BOARD.
+     */
+    private static void legalMoves(Board board, List<Move> moves) {
+        moves.clear();
+        for (Move m : CANDIDATES.possibleMoves(board)) {
+            if (m != null && !m.isPass() && board.legalMove(m)
+                && !moves.contains(m)) {
+                moves.add(m);
+            }
+        }
+    }
+
+    /**
+     * Print a throughput report labeled WHAT for the run that began at
+     * System.nanoTime() START with BEFORE positions already recorded.
+     */
+    private void report(long start, long before, String what) {
+        double secs = (System.nanoTime() - start) / 1e9;
+        long positions = _file.positions() + _produced.get() - before;
+        System.err.printf("%s: %d games, %d positions (%d plies) in %.1f s"
+                          + " (%.1f positions/s)%n",
+                          what, _games.get(), positions,
+                          _plies.get(), secs,
+                          positions / Math.max(secs, 1e-9));
+    }
+
+    /**
+     * Records per chunk.
+     */
+    private static final int CHUNK_RECORDS = 1 << 14;
+    /**
+     * Longest game played; longer games are scored as they stand.
+     */
+    static final int MAX_PLIES = 1000;
+    /**
+     * Most block placements at the start of a game.
+     */
+    private static final int MAX_BLOCKS = 3;
+    /**
+     * Squares at which games may start with blocks.
+     */
+    private static final String[] BLOCKS = {
+        "b2", "c3", "c4", "b4", "d2", "c2", "b3", "d3", "b1", "c1",
+    };
+    /**
+     * Multiplier spreading game numbers across seeds.
+     */
+    private static final long GAME_SEED_STEP = 0x9e37_79b9_7f4a_7c15L;
+    /**
+     * Milliseconds between progress reports.
+     */
+    private static final long PROGRESS_MILLIS = 10_000;
+    /**
+     * Source of candidate moves.
+     */
+    private static final AI CANDIDATES = new AI(null, RED);
+
+    /** Number of positions to produce. */
+    private long _target = 100_000;
+    /** Search depth. */
+    private int _depth = 3;
+    /** Number of worker threads. */
+    private int _numThreads = Runtime.getRuntime().availableProcessors();
+    /** Number of random opening moves. */
+    private int _randomPlies = 8;
+    /** Number of plies before positions are recorded. */
+    private int _skip = 8;
+    /** Probability of recording a position. */
+    private double _keep = 0.25;
+    /** Base seed. */
+    private long _seed = 0xa7a7_5e1fL;
+    /** True iff resuming. */
+    private boolean _resume;
+
+    /** The output. */
+    private TrainingFile _file;
+    /** Number of the next game to play. */
+    private final AtomicLong _nextGame = new AtomicLong();
+    /** Positions recorded in worker chunks not yet written. */
+    private final AtomicLong _produced = new AtomicLong();
+    /** Games played. */
+    private final AtomicLong _games = new AtomicLong();
+    /** Plies played. */
+    private final AtomicLong _plies = new AtomicLong();
+    /** The first error in a worker, or null. */
+    private volatile RuntimeException _failure;
+
+}
@@ -0,0 +1,70 @@
+package ataxx;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of SelfPlay.
+ *
+ * @author Keith Pacana
+ */
+public class SelfPlayTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(60);
+
+    /** Return a new SelfPlay that plays shallow games on THREADS threads
+     *  until it has POSITIONS positions. */
+    private static SelfPlay selfPlay(long positions, int threads) {
+        SelfPlay selfPlay = new SelfPlay();
+        selfPlay.setPositions(positions);
+        selfPlay.setThreads(threads);
+        selfPlay.setDepth(1);
+        return selfPlay;
+    }
+
+    /** Return an empty temporary file. */
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("selfplay", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /** Return the number of records in the training file named NAME. */
+    private static int count(String name) {
+        int[] count = { 0 };
+        TrainingFile.read(name, (board, score, result) -> count[0] += 1);
+        return count[0];
+    }
+
+    @Test
+    public void testRun() throws IOException {
+        File output = tempFile();
+        selfPlay(50, 2).run(output.getPath());
+        assertTrue(count(output.getPath()) >= 50);
+    }
+
+    @Test
+    public void testWorkerFailure() throws IOException {
+        Evaluator evaluator = AI.evaluator();
+        AI.setEvaluator(board -> {
+            throw new IllegalStateException("evaluator failed");
+        });
+        try {
+            selfPlay(50, 2).run(tempFile().getPath());
+            fail("worker failure not reported");
+        } catch (IllegalStateException excp) {
+            assertEquals("evaluator failed", excp.getMessage());
+        } finally {
+            AI.setEvaluator(evaluator);
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+package ataxx;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline examination of the search traces written with
+ * 'java ataxx.Main --trace DIR' (see SearchTrace).  The tree searched is
+ * rebuilt from the records, and summarized: the root position, how
+ * many records were kept, each completed search of the root with its
+ * score, best move and size, and for each level of the tree the number
+ * of moves searched, the cutoffs they caused (and how many of those
+ * were caused by the first move tried), and the moves reduced,
+ * re-searched and pruned.  Usage:
+ * <pre>
+ *     java ataxx.TraceTool [--tree D] FILE ...
+ * </pre>
+ * With '--tree D', the tree of the last search of the root is also
+ * printed, down to D levels.
+ *
+ * @author Keith Pacana
+ */
+public class TraceTool {
+
+    /**
+     * Summarize trace files as described above.
+     */
+    public static void main(String[] args) {
+        int treeLevels = 0;
+        List<String> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                if (args[i].equals("--tree")) {
+                    treeLevels = Integer.parseInt(args[++i]);
+                } else {
+                    files.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException
+                 | NumberFormatException excp) {
+            usage();
+        }
+        if (files.isEmpty()) {
+            usage();
+        }
+        try {
+            for (String name : files) {
+                System.out.printf("== %s%n", name);
+                SearchTrace trace = SearchTrace.load(name);
+                summarize(trace, System.out);
+                if (treeLevels > 0) {
+                    List<Node> nodes = build(trace);
+                    for (int k = nodes.size() - 1; k >= 0; k -= 1) {
+                        if (nodes.get(k).level == 0) {
+                            printTree(nodes.get(k), treeLevels,
+                                      System.out);
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (GameException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print a usage message and exit.
+     */
+    private static void usage() {
+        System.err.println("Usage: java ataxx.TraceTool [--tree D] FILE ...");
+        System.exit(1);
+    }
+
+    /**
+     * A move searched (or, at level 0, a search of the root), with the
+     * moves searched after it.
+     */
+    static class Node {
+
+        /** Level, move (null at level 0), remaining depth, window,
+         *  score and flags, as recorded (see SearchTrace). */
+        final int level, depth, alpha, beta, score, flags;
+        /** The move. */
+        final Move move;
+        /** The moves searched from the position after mine, in the
+         *  order searched. */
+        final List<Node> children = new ArrayList<>();
+        /** Number of records in my subtree, including mine. */
+        int size = 1;
+
+        /**
+         * The node for kept record K of TRACE.
+         */
+        Node(SearchTrace trace, int k) {
+            level = trace.level(k);
+            move = trace.move(k);
+            depth = trace.depth(k);
+            alpha = trace.alpha(k);
+            beta = trace.beta(k);
+            score = trace.score(k);
+            flags = trace.flags(k);
+        }
+
+        /**
+         * Return true iff all of FLAGS (see SearchTrace) are set on me.
+         */
+        boolean has(int flags) {
+            return (this.flags & flags) == flags;
+        }
+    }
+
+    /**
+     * Return the trees rebuilt from the records of TRACE, in order.
+     * These are the searches of the root, together with the subtrees
+     * whose parents were not kept (because the buffer overflowed or the
+     * search was stopped).
+     */
+    static List<Node> build(SearchTrace trace) {
+        List<Node> pending = new ArrayList<>();
+        for (int k = 0; k < trace.size(); k += 1) {
+            Node node = new Node(trace, k);
+            int first = pending.size();
+            while (first > 0
+                   && pending.get(first - 1).level == node.level + 1) {
+                first -= 1;
+            }
+            List<Node> children = pending.subList(first, pending.size());
+            for (Node child : children) {
+                node.children.add(child);
+                node.size += child.size;
+            }
+            children.clear();
+            pending.add(node);
+        }
+        return pending;
+    }
+
+    /**
+     * Print a summary of TRACE on OUT.
+     */
+    static void summarize(SearchTrace trace, PrintStream out) {
+        Board root = new Board();
+        trace.root(root);
+        out.printf("root: %s%n", Positions.format(root));
+        out.printf("records: %d kept of %d%n", trace.size(), trace.count());
+        List<Node> nodes = build(trace);
+        int orphans = 0;
+        for (Node node : nodes) {
+            if (node.level != 0) {
+                orphans += node.size;
+                continue;
+            }
+            Node best = null;
+            for (Node child : node.children) {
+                if (!child.has(SearchTrace.PRUNED)
+                    && (best == null || child.score > best.score)) {
+                    best = child;
+                }
+            }
+            out.printf("search to depth %d: score %d, best %s,"
+                       + " %d moves, %d records%n",
+                       node.depth, node.score,
+                       best == null ? "none" : best.move,
+                       node.children.size(), node.size);
+        }
+        if (orphans > 0) {
+            out.printf("%d records without a complete search%n", orphans);
+        }
+        long[][] counts = new long[Engine.MAX_PLY][COLUMNS];
+        for (Node node : nodes) {
+            count(node, counts);
+        }
+        out.println("level     moves   cutoffs  1st-move   reduced"
+                    + "  re-srchd    pruned");
+        for (int level = 1; level < counts.length; level += 1) {
+            long[] row = counts[level];
+            if (row[0] == 0) {
+                continue;
+            }
+            out.printf("%5d", level);
+            for (long n : row) {
+                out.printf(" %9d", n);
+            }
+            out.println();
+        }
+    }
+
+    /**
+     * Add the counts of the subtree at NODE to COUNTS, indexed by level
+     * and column (moves, cutoffs, first-move cutoffs, reduced,
+     * re-searched, pruned).
+     */
+    private static void count(Node node, long[][] counts) {
+        for (int i = 0; i < node.children.size(); i += 1) {
+            Node child = node.children.get(i);
+            long[] row = counts[child.level];
+            row[0] += 1;
+            if (child.has(SearchTrace.CUTOFF)) {
+                row[1] += 1;
+                if (i == 0) {
+                    row[2] += 1;
+                }
+            }
+            row[3] += child.has(SearchTrace.REDUCED) ? 1 : 0;
+            row[4] += child.has(SearchTrace.RESEARCHED) ? 1 : 0;
+            row[5] += child.has(SearchTrace.PRUNED) ? 1 : 0;
+            count(child, counts);
+        }
+    }
+
+    /**
+     * Print the tree at NODE on OUT, down to LEVELS levels below it.
+     */
+    static void printTree(Node node, int levels, PrintStream out) {
+        out.printf("%s%s depth %d [%d, %d] %d%s%s%s%s (%d)%n",
+                   "  ".repeat(node.level),
+                   node.move == null ? "root" : node.move.toString(),
+                   node.depth, node.alpha, node.beta, node.score,
+                   node.has(SearchTrace.CUTOFF) ? " cutoff" : "",
+                   node.has(SearchTrace.REDUCED) ? " reduced" : "",
+                   node.has(SearchTrace.RESEARCHED) ? " re-searched" : "",
+                   node.has(SearchTrace.PRUNED) ? " pruned" : "",
+                   node.size);
+        if (levels > 0) {
+            for (Node child : node.children) {
+                printTree(child, levels - 1, out);
+            }
+        }
+    }
+
+    /** Number of columns in the table of counts by level. */
+    private static final int COLUMNS = 6;
+
+}
@@ -0,0 +1,283 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static ataxx.GameException.error;
+
+/**
+ * A file of training positions, each with a search score and the result
+ * of its game, as written by SelfPlay and read by Tuner.
+ * <p>
+ * The file starts with the int MAGIC and the int VERSION, followed by
+ * chunks.  A chunk is a header (the number of records it holds, the
+ * number of the last game whose positions it holds, as a long, and the
+ * CRC-32 of its records) followed by its records.  A record is a binary
+ * position record (see Positions), the search score from red's point of
+ * view as a short, and twice red's result (0, 1 or 2) as a byte.
+ * Numbers are big-endian.  Each chunk holds only whole games and is
+ * written with a single write, so a file cut short by an interrupted
+ * run loses at most its last chunk, which open() discards when
+ * resuming.
+ *
+ * @author Keith Pacana
+ */
+class TrainingFile implements Closeable {
+
+    /** Magic number identifying a training file. */
+    static final int MAGIC = 0x41545844;
+    /** Version of the format. */
+    static final int VERSION = 1;
+    /** Size in bytes of the file header. */
+    static final int HEADER_SIZE = 8;
+    /** Size in bytes of a chunk header. */
+    static final int CHUNK_HEADER_SIZE = 16;
+    /** Size in bytes of a record. */
+    static final int RECORD_SIZE = Positions.RECORD_SIZE + 3;
+    /** Largest number of records in a chunk. */
+    static final int MAX_CHUNK_RECORDS = 1 << 16;
+
+    /**
+     * Receives the records of a training file.
+     */
+    interface Sink {
+        /**
+         * Accept the position on BOARD, whose search score was SCORE and
+         * whose game ended with red scoring RESULT (0, 0.5 or 1).
+         */
+        void accept(Board board, int score, float result);
+    }
+
+    /**
+     * Open the training file named NAME for appending.  Unless RESUME,
+     * any existing contents are discarded.  Otherwise, valid chunks
+     * already in the file are kept (and counted by positions() and
+     * lastGame()) and anything after them is discarded.
+     */
+    static TrainingFile open(String name, boolean resume) {
+        try {
+            FileChannel channel =
+                FileChannel.open(Paths.get(name), StandardOpenOption.CREATE,
+                                 StandardOpenOption.READ,
+                                 StandardOpenOption.WRITE);
+            TrainingFile file = new TrainingFile(channel);
+            if (resume && channel.size() > 0) {
+                file.scan(name, null);
+            } else {
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                file.writeFully(header);
+                file._end = HEADER_SIZE;
+            }
+            channel.truncate(file._end);
+            channel.position(file._end);
+            return file;
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /**
+     * Pass each record of the training file named NAME to SINK.  A
+     * truncated or corrupt last chunk is ignored.
+     */
+    static void read(String name, Sink sink) {
+        try (FileChannel channel = FileChannel.open(Paths.get(name))) {
+            new TrainingFile(channel).scan(name, sink);
+        } catch (IOException excp) {
+            throw error("error reading %s", name);
+        }
+    }
+
+    /**
+     * Return true iff the file named NAME starts as a training file.
+     */
+    static boolean isTrainingFile(String name) {
+        try (FileChannel channel = FileChannel.open(Paths.get(name))) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            return new TrainingFile(channel).readFully(header, 0)
+                && header.getInt(0) == MAGIC;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /**
+     * Store the record for the position on BOARD, whose search score
+     * (from red's point of view) was SCORE and whose game ended with red
+     * scoring RESULT2 / 2, into BUF at its position, advancing it.
+     */
+    static void put(ByteBuffer buf, Board board, int score, int result2) {
+        int pos = buf.position();
+        Positions.encode(board, buf.array(),
+                         buf.arrayOffset() + pos);
+        buf.position(pos + Positions.RECORD_SIZE);
+        buf.putShort((short) Math.max(Short.MIN_VALUE,
+                                      Math.min(Short.MAX_VALUE, score)));
+        buf.put((byte) result2);
+    }
+
+    /**
+     * A TrainingFile on CHANNEL.
+     */
+    private TrainingFile(FileChannel channel) {
+        _channel = channel;
+    }
+
+    /**
+     * Append a chunk holding the COUNT records in RECORDS, a heap
+     * buffer flipped for reading, the last of whose games is game number
+     * LASTGAME.  May be called from any thread.
+     */
+    synchronized void writeChunk(ByteBuffer records, int count,
+                                 long lastGame) {
+        if (count == 0) {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(records.array(), records.arrayOffset()
+                   + records.position(), records.remaining());
+        _chunkHeader.clear();
+        _chunkHeader.putInt(count).putLong(lastGame)
+            .putInt((int) crc.getValue()).flip();
+        try {
+            long length = _chunkHeader.remaining() + records.remaining();
+            ByteBuffer[] bufs = { _chunkHeader, records };
+            long written = 0;
+            while (written < length) {
+                written += _channel.write(bufs);
+            }
+        } catch (IOException excp) {
+            throw error("error writing training data");
+        }
+        _positions += count;
+        _lastGame = Math.max(_lastGame, lastGame);
+    }
+
+    /**
+     * Return the number of records in the file.
+     */
+    synchronized long positions() {
+        return _positions;
+    }
+
+    /**
+     * Return the highest game number in the file, or -1 if there are no
+     * games.
+     */
+    synchronized long lastGame() {
+        return _lastGame;
+    }
+
+    @Override
+    public void close() {
+        try {
+            _channel.force(false);
+            _channel.close();
+        } catch (IOException excp) {
+            /* Ignore IOException */
+        }
+    }
+
+    /**
+     * Read the file, which is called NAME in error messages, from the
+     * beginning, counting its valid chunks, setting _end to the end of
+     * the last, and passing their records to SINK if it is not null.
+     */
+    private void scan(String name, Sink sink) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (!readFully(header, 0) || header.getInt(0) != MAGIC) {
+            throw error("%s is not a training file", name);
+        } else if (header.getInt(4) != VERSION) {
+            throw error("%s: unknown version", name);
+        }
+        Board board = sink == null ? null : new Board();
+        PieceColor[] squares = new PieceColor[Positions.SQUARES];
+        ByteBuffer records = ByteBuffer.allocate(0);
+        long pos = HEADER_SIZE;
+        _positions = 0;
+        _lastGame = -1;
+        while (true) {
+            _end = pos;
+            _chunkHeader.clear();
+            if (!readFully(_chunkHeader, pos)) {
+                return;
+            }
+            int count = _chunkHeader.getInt(0);
+            long lastGame = _chunkHeader.getLong(4);
+            int crc = _chunkHeader.getInt(12);
+            if (count <= 0 || count > MAX_CHUNK_RECORDS) {
+                return;
+            }
+            if (records.capacity() < count * RECORD_SIZE) {
+                records = ByteBuffer.allocate(count * RECORD_SIZE);
+            }
+            records.clear().limit(count * RECORD_SIZE);
+            if (!readFully(records, pos + CHUNK_HEADER_SIZE)) {
+                return;
+            }
+            CRC32 check = new CRC32();
+            check.update(records.array(), 0, records.limit());
+            if ((int) check.getValue() != crc) {
+                return;
+            }
+            if (sink != null) {
+                for (int k = 0; k < count; k += 1) {
+                    int off = k * RECORD_SIZE;
+                    Positions.decode(records.array(), off, board, squares);
+                    int score =
+                        records.getShort(off + Positions.RECORD_SIZE);
+                    int result2 = records.get(off + RECORD_SIZE - 1);
+                    sink.accept(board, score, result2 / 2.0f);
+                }
+            }
+            _positions += count;
+            _lastGame = Math.max(_lastGame, lastGame);
+            pos += CHUNK_HEADER_SIZE + records.limit();
+        }
+    }
+
+    /**
+     * Fill BUF from the file starting at offset POS.  Return false if
+     * the file ends first.
+     */
+    private boolean readFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = _channel.read(buf, pos);
+            if (n < 0) {
+                return false;
+            }
+            pos += n;
+        }
+        buf.flip();
+        return true;
+    }
+
+    /**
+     * Write all of BUF at the channel's position.
+     */
+    private void writeFully(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            _channel.write(buf);
+        }
+    }
+
+    /** The file. */
+    private final FileChannel _channel;
+    /** Offset of the end of the last valid chunk. */
+    private long _end;
+    /** Number of records in the file. */
+    private long _positions;
+    /** Highest game number in the file, or -1. */
+    private long _lastGame = -1;
+    /** Scratch chunk header. */
+    private final ByteBuffer _chunkHeader =
+        ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+
+}
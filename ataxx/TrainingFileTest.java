@@ -0,0 +1,78 @@
+package ataxx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of TrainingFile.
+ *
+ * @author Keith Pacana
+ */
+public class TrainingFileTest {
+
+    /** Write a chunk of N records, numbered from FIRST, to FILE as game
+     *  GAME.  Record K has the initial position, score K and result
+     *  K % 3 / 2. */
+    private static void writeChunk(TrainingFile file, int first, int n,
+                                   long game) {
+        ByteBuffer buf = ByteBuffer.allocate(n * TrainingFile.RECORD_SIZE);
+        Board b = new Board();
+        for (int k = first; k < first + n; k += 1) {
+            TrainingFile.put(buf, b, k, k % 3);
+        }
+        buf.flip();
+        file.writeChunk(buf, n, game);
+    }
+
+    /** Return the scores of the records in the file named NAME, checking
+     *  their positions and results. */
+    private static List<Integer> scores(String name) {
+        List<Integer> scores = new ArrayList<>();
+        TrainingFile.read(name, (board, score, result) -> {
+            assertEquals(new Board(), board);
+            assertEquals(score % 3 / 2.0f, result, 0.0f);
+            scores.add(score);
+        });
+        return scores;
+    }
+
+    @Test
+    public void testWriteReadResume() throws IOException {
+        File tmp = File.createTempFile("training", ".dat");
+        tmp.deleteOnExit();
+        String name = tmp.getPath();
+        try (TrainingFile file = TrainingFile.open(name, false)) {
+            writeChunk(file, 0, 3, 0);
+            writeChunk(file, 3, 2, 1);
+            assertEquals(5, file.positions());
+        }
+        assertTrue(TrainingFile.isTrainingFile(name));
+        assertEquals(List.of(0, 1, 2, 3, 4), scores(name));
+
+        try (RandomAccessFile raw = new RandomAccessFile(name, "rw")) {
+            raw.setLength(raw.length() - 1);
+        }
+        assertEquals(List.of(0, 1, 2), scores(name));
+        try (TrainingFile file = TrainingFile.open(name, true)) {
+            assertEquals(3, file.positions());
+            assertEquals(0, file.lastGame());
+            writeChunk(file, 3, 1, 1);
+        }
+        assertEquals(List.of(0, 1, 2, 3), scores(name));
+
+        try (TrainingFile file = TrainingFile.open(name, false)) {
+            assertEquals(0, file.positions());
+            assertEquals(-1, file.lastGame());
+        }
+        assertEquals(List.of(), scores(name));
+    }
+
+}
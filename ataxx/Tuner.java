@@ -0,0 +1,522 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ataxx.GameException.error;
+
+/**
+ * A Texel-style tuner for the weights of a PatternEvaluator.  Given
+ * positions labeled with the results of the games they came from, it
+ * chooses weights that minimize the mean squared difference between
+ * each result and sigmoid(K * score), where score is the static pattern
+ * score of the position (in pieces) and K is first fitted to the
+ * initial weights.  Minimization is by full-batch gradient descent with
+ * Adam step sizes.  Gradients are computed by worker threads, each
+ * summing its share of the positions into its own accumulator.
+ * <p>
+ * Each position is kept only as the offsets of its patterns' weights
+ * in one flat weight vector (PatternEvaluator.PATTERNS chars per
+ * position), and the weights and gradients are float arrays, so a few
+ * million positions fit comfortably in memory.
+ * <p>
+ * Labeled positions are read from text files, each line holding a
+ * position in the text form of Positions followed by red's result (1
+ * for a win, 0.5 for a draw, 0 for a loss), or, for files whose names
+ * end in ".bin", from binary records, each a binary position record
+ * followed by one byte holding twice red's result, or from
+ * TrainingFiles written by SelfPlay.  Usage:
+ * <pre>
+ *     java ataxx.Tuner [--threads T] [--epochs N] [--rate R]
+ *                      [--scale S] [--init WEIGHTS] DATA ... OUT
+ * </pre>
+ * writes the tuned weights, multiplied by S (default 100) so that
+ * scores are in hundredths of a piece, to OUT, from which
+ * 'java ataxx.Main --weights OUT' loads them.
+ *
+ * @author Keith Pacana
+ */
+public class Tuner {
+
+    /**
+     * Tune weights to the data files named in ARGS, as described above.
+     */
+    public static void main(String[] args) {
+        Tuner tuner = new Tuner();
+        tuner.setLog(System.err);
+        List<String> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                switch (args[i]) {
+                case "--threads":
+                    tuner.setThreads(Integer.parseInt(args[++i]));
+                    break;
+                case "--epochs":
+                    tuner.setEpochs(Integer.parseInt(args[++i]));
+                    break;
+                case "--rate":
+                    tuner.setRate(Double.parseDouble(args[++i]));
+                    break;
+                case "--scale":
+                    tuner.setScale(Double.parseDouble(args[++i]));
+                    break;
+                case "--init":
+                    tuner.setInitial(PatternEvaluator.load(args[++i]));
+                    break;
+                default:
+                    files.add(args[i]);
+                    break;
+                }
+            }
+            if (files.size() < 2) {
+                usage();
+            }
+            for (String name : files.subList(0, files.size() - 1)) {
+                tuner.load(name);
+            }
+            tuner.tune();
+            tuner.evaluator().save(files.get(files.size() - 1));
+        } catch (ArrayIndexOutOfBoundsException
+                 | NumberFormatException excp) {
+            usage();
+        } catch (GameException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print a usage message and exit.
+     */
+    private static void usage() {
+        System.err.println("Usage: java ataxx.Tuner [--threads T]"
+                           + " [--epochs N] [--rate R] [--scale S]"
+                           + " [--init WEIGHTS] DATA ... OUT");
+        System.exit(1);
+    }
+
+    /**
+     * Use NUMTHREADS worker threads.
+     */
+    void setThreads(int numThreads) {
+        _numThreads = Math.max(1, numThreads);
+    }
+
+    /**
+     * Take EPOCHS gradient steps.
+     */
+    void setEpochs(int epochs) {
+        _epochs = epochs;
+    }
+
+    /**
+     * Use RATE (in pieces) as the Adam step size.
+     */
+    void setRate(double rate) {
+        _rate = (float) rate;
+    }
+
+    /**
+     * Multiply tuned weights by SCALE when converting them to a
+     * PatternEvaluator.
+     */
+    void setScale(double scale) {
+        _scale = scale;
+    }
+
+    /**
+     * Start tuning from the weights of INITIAL, divided by the scale
+     * (by default, from PatternEvaluator.material(), scaled to pieces).
+     */
+    void setInitial(PatternEvaluator initial) {
+        _initial = initial;
+    }
+
+    /**
+     * Report progress to LOG, if not null.
+     */
+    void setLog(PrintStream log) {
+        _log = log;
+    }
+
+    /**
+     * Return the number of labeled positions added so far.
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Add the position on BOARD, whose game ended with red scoring
+     * RESULT (0, 0.5 or 1).
+     */
+    void add(Board board, float result) {
+        if (_size == _results.length) {
+            int n = Math.max(INITIAL_SIZE, 2 * _size);
+            _results = Arrays.copyOf(_results, n);
+            _features = Arrays.copyOf(_features, n * PATTERNS);
+        }
+        PatternEvaluator.indices(board, _indices);
+        int base = _size * PATTERNS;
+        for (int p = 0; p < PATTERNS; p += 1) {
+            _features[base + p] =
+                (char) (OFFSETS[PatternEvaluator.kind(p)] + _indices[p]);
+        }
+        _results[_size] = result;
+        _size += 1;
+    }
+
+    /**
+     * Add the labeled positions in the file named NAME.
+     */
+    void load(String name) {
+        int before = _size;
+        try {
+            if (TrainingFile.isTrainingFile(name)) {
+                TrainingFile.read(name, (board, score, result) ->
+                                  add(board, result));
+            } else if (name.endsWith(".bin")) {
+                loadBinary(name);
+            } else {
+                loadText(name);
+            }
+        } catch (IOException excp) {
+            throw error("error reading %s", name);
+        }
+        log("%s: %d positions%n", name, _size - before);
+    }
+
+    /**
+     * Add the labeled positions in the text file named NAME.
+     */
+    private void loadText(String name) throws IOException {
+        Board board = new Board();
+        PieceColor[] squares = new PieceColor[Positions.SQUARES];
+        try (BufferedReader in = new BufferedReader(new FileReader(name))) {
+            int lineNum;
+            lineNum = 0;
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                lineNum += 1;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int split = line.lastIndexOf(' ');
+                try {
+                    float result = split < 0 ? -1
+                        : Float.parseFloat(line.substring(split + 1));
+                    if (!(result >= 0 && result <= 1)) {
+                        throw error("bad result");
+                    }
+                    Positions.parse(line, 0, split, board, squares);
+                    add(board, result);
+                } catch (NumberFormatException excp) {
+                    throw error("%s, line %d: bad result", name, lineNum);
+                } catch (GameException excp) {
+                    throw error("%s, line %d: %s", name, lineNum,
+                                excp.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the labeled positions in the binary file named NAME.
+     */
+    private void loadBinary(String name) throws IOException {
+        Board board = new Board();
+        PieceColor[] squares = new PieceColor[Positions.SQUARES];
+        byte[] record = new byte[Positions.RECORD_SIZE + 1];
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(name)))) {
+            while (true) {
+                try {
+                    in.readFully(record);
+                } catch (EOFException excp) {
+                    return;
+                }
+                int result = record[Positions.RECORD_SIZE];
+                if (result < 0 || result > 2) {
+                    throw error("%s, position %d: bad result", name,
+                                _size + 1);
+                }
+                Positions.decode(record, 0, board, squares);
+                add(board, result / 2.0f);
+            }
+        }
+    }
+
+    /**
+     * Fit K and then tune the weights, returning the final loss.
+     */
+    double tune() {
+        if (_size == 0) {
+            throw error("no positions to tune");
+        }
+        initWeights();
+        ExecutorService pool = Executors.newFixedThreadPool(_numThreads);
+        try {
+            _k = fitK(pool);
+            double loss = loss(pool, _k, false);
+            log("K = %.4f, initial loss %.6f%n", _k, loss);
+            float[] m = new float[WEIGHTS], v = new float[WEIGHTS];
+            for (int epoch = 1; epoch <= _epochs; epoch += 1) {
+                loss = loss(pool, _k, true);
+                adamStep(m, v, epoch);
+                if (epoch % LOG_INTERVAL == 0 || epoch == _epochs) {
+                    log("epoch %d: loss %.6f%n", epoch, loss);
+                }
+            }
+            loss = loss(pool, _k, false);
+            log("final loss %.6f%n", loss);
+            return loss;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Return the mean loss of the current weights over all positions,
+     * using POOL and sigmoid scale K.  Iff GRADIENT, also leave the
+     * gradient of the loss in _gradient.
+     */
+    private double loss(ExecutorService pool, float k, boolean gradient) {
+        List<Future<Double>> parts = new ArrayList<>();
+        int chunk = (_size + _numThreads - 1) / _numThreads;
+        for (int t = 0; t < _numThreads; t += 1) {
+            int lo = Math.min(_size, t * chunk),
+                hi = Math.min(_size, lo + chunk);
+            float[] acc = gradient ? _accumulators[t] : null;
+            parts.add(pool.submit(() -> partialLoss(lo, hi, k, acc)));
+        }
+        double sum;
+        sum = 0;
+        try {
+            for (Future<Double> part : parts) {
+                sum += part.get();
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("tuning failed: %s", excp);
+        }
+        if (gradient) {
+            float norm = 2 * k / _size;
+            for (int i = 0; i < WEIGHTS; i += 1) {
+                float g;
+                g = 0;
+                for (float[] acc : _accumulators) {
+                    g += acc[i];
+                    acc[i] = 0;
+                }
+                _gradient[i] = g * norm;
+            }
+        }
+        return sum / _size;
+    }
+
+    /**
+     * Return the summed loss of positions LO..HI-1 with sigmoid scale K,
+     * adding each position's error term to the entries of ACC for its
+     * features, if ACC is not null.
+     */
+    private double partialLoss(int lo, int hi, float k, float[] acc) {
+        double sum;
+        sum = 0;
+        for (int i = lo; i < hi; i += 1) {
+            int base = i * PATTERNS;
+            float score;
+            score = 0;
+            for (int p = 0; p < PATTERNS; p += 1) {
+                score += _weights[_features[base + p]];
+            }
+            float s = (float) (1 / (1 + Math.exp(-k * score)));
+            float err = s - _results[i];
+            sum += err * err;
+            if (acc != null) {
+                float g = err * s * (1 - s);
+                for (int p = 0; p < PATTERNS; p += 1) {
+                    acc[_features[base + p]] += g;
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Return the sigmoid scale minimizing the loss of the initial
+     * weights, found by golden-section search, using POOL.
+     */
+    private float fitK(ExecutorService pool) {
+        double lo = 0, hi = MAX_K;
+        double r = (Math.sqrt(5) - 1) / 2;
+        double a = hi - r * (hi - lo), b = lo + r * (hi - lo);
+        double fa = loss(pool, (float) a, false),
+            fb = loss(pool, (float) b, false);
+        for (int i = 0; i < K_ITERATIONS; i += 1) {
+            if (fa < fb) {
+                hi = b;
+                b = a;
+                fb = fa;
+                a = hi - r * (hi - lo);
+                fa = loss(pool, (float) a, false);
+            } else {
+                lo = a;
+                a = b;
+                fa = fb;
+                b = lo + r * (hi - lo);
+                fb = loss(pool, (float) b, false);
+            }
+        }
+        return (float) ((lo + hi) / 2);
+    }
+
+    /**
+     * Take one Adam step, the EPOCHth, along _gradient, using the
+     * moment estimates M and V.
+     */
+    private void adamStep(float[] m, float[] v, int epoch) {
+        double c1 = 1 - Math.pow(BETA1, epoch),
+            c2 = 1 - Math.pow(BETA2, epoch);
+        float step = (float) (_rate * Math.sqrt(c2) / c1);
+        for (int i = 0; i < WEIGHTS; i += 1) {
+            float g = _gradient[i];
+            m[i] = BETA1 * m[i] + (1 - BETA1) * g;
+            v[i] = BETA2 * v[i] + (1 - BETA2) * g * g;
+            _weights[i] -= step * m[i] / ((float) Math.sqrt(v[i]) + EPSILON);
+        }
+    }
+
+    /**
+     * Set the weights to their initial values and allocate the
+     * gradient accumulators.
+     */
+    private void initWeights() {
+        PatternEvaluator initial = _initial;
+        double scale = _scale;
+        if (initial == null) {
+            initial = PatternEvaluator.material();
+            scale = 2;
+        }
+        short[][] tables = initial.weights();
+        for (int kind = 0; kind < PatternEvaluator.KINDS; kind += 1) {
+            for (int i = 0; i < tables[kind].length; i += 1) {
+                _weights[OFFSETS[kind] + i] =
+                    (float) (tables[kind][i] / scale);
+            }
+        }
+        _accumulators = new float[_numThreads][WEIGHTS];
+    }
+
+    /**
+     * Return the fitted sigmoid scale (valid after tune()).
+     */
+    float k() {
+        return _k;
+    }
+
+    /**
+     * Return a PatternEvaluator with the current weights, multiplied by
+     * the scale, rounded, and limited so that no score can reach
+     * Engine.WINNING_VALUE / 2.
+     */
+    PatternEvaluator evaluator() {
+        short[][] tables = new short[PatternEvaluator.KINDS][];
+        for (int kind = 0; kind < PatternEvaluator.KINDS; kind += 1) {
+            tables[kind] = new short[PatternEvaluator.tableSize(kind)];
+            for (int i = 0; i < tables[kind].length; i += 1) {
+                long w = Math.round(_weights[OFFSETS[kind] + i] * _scale);
+                tables[kind][i] =
+                    (short) Math.max(-MAX_WEIGHT, Math.min(MAX_WEIGHT, w));
+            }
+        }
+        return new PatternEvaluator(tables,
+                                    (int) Math.max(1, Math.round(_scale)));
+    }
+
+    /**
+     * Print FORMAT with ARGS to the log, if any.
+     */
+    private void log(String format, Object... args) {
+        if (_log != null) {
+            _log.printf(format, args);
+        }
+    }
+
+    /** Number of patterns per position. */
+    private static final int PATTERNS = PatternEvaluator.PATTERNS;
+    /** Offset of each kind's table in the weight vector. */
+    private static final int[] OFFSETS = new int[PatternEvaluator.KINDS];
+    /** Length of the weight vector. */
+    private static final int WEIGHTS;
+
+    static {
+        int n;
+        n = 0;
+        for (int kind = 0; kind < OFFSETS.length; kind += 1) {
+            OFFSETS[kind] = n;
+            n += PatternEvaluator.tableSize(kind);
+        }
+        WEIGHTS = n;
+        assert WEIGHTS <= Character.MAX_VALUE + 1;
+    }
+
+    /** Largest magnitude of an output weight. */
+    private static final int MAX_WEIGHT =
+        Math.min(Short.MAX_VALUE, Engine.WINNING_VALUE / 2 / PATTERNS - 1);
+    /** Initial number of positions allocated. */
+    private static final int INITIAL_SIZE = 1 << 16;
+    /** Largest K considered. */
+    private static final double MAX_K = 10;
+    /** Number of golden-section steps in fitting K. */
+    private static final int K_ITERATIONS = 40;
+    /** Adam parameters. */
+    private static final float BETA1 = 0.9f, BETA2 = 0.999f,
+        EPSILON = 1e-8f;
+    /** Epochs between progress reports. */
+    private static final int LOG_INTERVAL = 50;
+
+    /** Number of worker threads. */
+    private int _numThreads = Runtime.getRuntime().availableProcessors();
+    /** Number of gradient steps. */
+    private int _epochs = 500;
+    /** Adam step size, in pieces. */
+    private float _rate = 0.01f;
+    /** Multiplier from tuned weights to output weights. */
+    private double _scale = 100;
+    /** Initial weights, or null for material. */
+    private PatternEvaluator _initial;
+    /** Where to report progress, or null. */
+    private PrintStream _log;
+
+    /** Number of positions. */
+    private int _size;
+    /** Weight offsets of the patterns of each position. */
+    private char[] _features = new char[0];
+    /** Red's result in each position's game. */
+    private float[] _results = new float[0];
+    /** Scratch pattern indices. */
+    private final int[] _indices = new int[PATTERNS];
+
+    /** The weights being tuned, in pieces. */
+    private final float[] _weights = new float[WEIGHTS];
+    /** Gradient of the loss. */
+    private final float[] _gradient = new float[WEIGHTS];
+    /** Gradient accumulator for each worker. */
+    private float[][] _accumulators;
+    /** Fitted sigmoid scale. */
+    private float _k;
+
+}
@@ -0,0 +1,69 @@
+package ataxx;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of Tuner.
+ *
+ * @author Keith Pacana
+ */
+public class TunerTest {
+
+    /**
+     * Return a Tuner holding positions from random games, each labeled
+     * as a red win iff red holds d4, that takes EPOCHS steps.
+     */
+    private static Tuner tuner(int epochs) {
+        Tuner tuner = new Tuner();
+        tuner.setThreads(2);
+        tuner.setEpochs(epochs);
+        tuner.setRate(0.05);
+        Random random = new Random(3);
+        AI candidates = new AI(null, PieceColor.RED);
+        for (int game = 0; game < 20; game += 1) {
+            Board b = new Board();
+            for (int ply = 0; ply < 40 && !b.gameOver(); ply += 1) {
+                Move[] moves = candidates.possibleMoves(b).stream()
+                    .filter(m -> m != null && !m.isPass() && b.legalMove(m))
+                    .toArray(Move[]::new);
+                if (moves.length == 0) {
+                    b.pass();
+                } else {
+                    b.makeMove(moves[random.nextInt(moves.length)]);
+                }
+                tuner.add(b, b.get('d', '4') == PieceColor.RED ? 1 : 0);
+            }
+        }
+        return tuner;
+    }
+
+    @Test
+    public void testLossDecreases() {
+        double before = tuner(0).tune();
+        Tuner tuned = tuner(100);
+        double after = tuned.tune();
+        assertTrue(tuned.size() > 100);
+        assertTrue(tuned.k() > 0);
+        assertTrue(after < before);
+    }
+
+    @Test
+    public void testEvaluator() {
+        Tuner tuned = tuner(100);
+        tuned.tune();
+        PatternEvaluator eval = tuned.evaluator();
+        Board b = new Board();
+        b.makeMove(Move.move('a', '7', 'b', '6'));
+        b.makeMove(Move.move('a', '1', 'b', '2'));
+        b.makeMove(Move.move('b', '6', 'd', '4'));
+        int withD4 = eval.score(b);
+        b.undo();
+        b.makeMove(Move.move('b', '6', 'c', '6'));
+        assertTrue(withD4 > eval.score(b));
+    }
+
+}
@@ -11,7 +11,15 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         textui.runClasses(CommandTest.class, MoveTest.class,
-                          BoardTest.class);
+                          BoardTest.class, PositionsTest.class,
+                          SearchStatsTest.class, BenchTest.class,
+                          PatternEvaluatorTest.class, TunerTest.class,
+                          TrainingFileTest.class, NnueEvaluatorTest.class,
+                          SearchTraceTest.class, EngineTest.class,
+                          BatchAnalyzerTest.class,
+                          EngineProtocolTest.class,
+                          ScriptRunnerTest.class, SelfPlayTest.class,
+                          MatchTest.class);
     }
 
 }
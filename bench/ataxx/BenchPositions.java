@@ -0,0 +1,128 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The corpus of mid-game positions over which the benchmarks run.  The
+ * corpus is kept in positions.txt (in the text form of Positions) so
+ * that results stay comparable when the engine that produced it
+ * changes.  Running this class writes a fresh corpus to the standard
+ * output.
+ *
+ * @author Keith Pacana
+ */
+class BenchPositions {
+
+    /**
+     * Name of the corpus resource.
+     */
+    static final String RESOURCE = "ataxx/positions.txt";
+
+    /**
+     * Return new Boards set to each position in the corpus.
+     */
+    static Board[] load() {
+        InputStream in = BenchPositions.class.getClassLoader()
+            .getResourceAsStream(RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException("missing " + RESOURCE);
+        }
+        List<Board> boards = new ArrayList<>();
+        try (BufferedReader r =
+             new BufferedReader(new InputStreamReader(in))) {
+            for (String line = r.readLine(); line != null;
+                 line = r.readLine()) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    Board b = new Board();
+                    Positions.parse(line, b);
+                    boards.add(b);
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalStateException("cannot read " + RESOURCE);
+        }
+        return boards.toArray(new Board[0]);
+    }
+
+    /**
+     * Return the legal moves, other than pass, in BOARD.
+     */
+    static Move[] legalMoves(Board board) {
+        List<Move> moves = new ArrayList<>();
+        for (Move m : CANDIDATES.possibleMoves(board)) {
+            if (m != null && !m.isPass() && board.legalMove(m)
+                && !moves.contains(m)) {
+                moves.add(m);
+            }
+        }
+        return moves.toArray(new Move[0]);
+    }
+
+    /**
+     * Write a corpus of COUNT positions (ARGS[0], default 256) to the
+     * standard output.  Positions are taken every few plies from games
+     * between shallow searches that play a random move a quarter of the
+     * time, some games starting with blocks, using a fixed seed.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        PrintStream out = System.out;
+        Random random = new Random(SEED);
+        Engine engine = new Engine();
+        out.println("# Benchmark corpus written by ataxx.BenchPositions.");
+        int written = 0;
+        while (written < count) {
+            Board board = new Board();
+            engine.newGame();
+            for (int k = random.nextInt(4); k > 0; k -= 1) {
+                String block = BLOCKS[random.nextInt(BLOCKS.length)];
+                if (board.legalBlock(block)) {
+                    board.setBlock(block);
+                }
+            }
+            for (int ply = 0; !board.gameOver() && written < count;
+                 ply += 1) {
+                if (ply >= MIN_PLY && ply % STRIDE == 0) {
+                    out.println(Positions.format(board));
+                    written += 1;
+                }
+                Move[] moves = legalMoves(board);
+                if (moves.length == 0) {
+                    board.pass();
+                } else if (random.nextInt(4) == 0) {
+                    board.makeMove(moves[random.nextInt(moves.length)]);
+                } else {
+                    board.makeMove(engine.findMove(board, 2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Seed of the games that make up the corpus.
+     */
+    private static final long SEED = 0xa7a7_2018L;
+    /**
+     * First ply at which positions are taken, and plies between them.
+     */
+    private static final int MIN_PLY = 8, STRIDE = 3;
+    /**
+     * Squares at which corpus games may start with blocks.
+     */
+    private static final String[] BLOCKS = {
+        "b2", "c3", "c4", "b4", "d2", "c2", "b3",
+    };
+    /**
+     * Source of candidate moves.
+     */
+    private static final AI CANDIDATES = new AI(null, PieceColor.RED);
+
+}
@@ -0,0 +1,176 @@
+package ataxx;
+
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks of the Board and AI primitives used by the search,
+ * over the mid-game positions of BenchPositions.  Each operation
+ * applies the primitive to the next position of the corpus (and, where
+ * a move is needed, to the next of that position's legal moves), so
+ * the results average over realistic boards rather than repeating one.
+ * Run with the gc profiler (see the Makefile) to see allocation rates
+ * alongside throughput.
+ *
+ * @author Keith Pacana
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBench {
+
+    /**
+     * Load the corpus, find the legal and candidate moves of each
+     * position, and attach a copy of each to the pattern evaluator.
+     */
+    @Setup
+    public void setup() {
+        _boards = BenchPositions.load();
+        _legal = new Move[_boards.length][];
+        _candidates = new Move[_boards.length][];
+        _patternBoards = new Board[_boards.length];
+        for (int i = 0; i < _boards.length; i += 1) {
+            _patternBoards[i] = new Board(_boards[i]);
+            _patterns.attach(_patternBoards[i]);
+            _legal[i] = BenchPositions.legalMoves(_boards[i]);
+            _candidates[i] = _ai.possibleMoves(_boards[i])
+                .toArray(new Move[0]);
+        }
+    }
+
+    /**
+     * Make and undo one legal move.
+     */
+    @Benchmark
+    public long makeMoveUndo() {
+        Board board = nextBoard();
+        Move[] moves = _legal[_pos];
+        if (moves.length == 0) {
+            return board.hash();
+        }
+        _move = _move + 1 < moves.length ? _move + 1 : 0;
+        board.makeMove(moves[_move]);
+        long hash = board.hash();
+        board.undo();
+        return hash;
+    }
+
+    /**
+     * Check every candidate move of one position for legality.
+     */
+    @Benchmark
+    public int legalMove() {
+        Board board = nextBoard();
+        int n = 0;
+        for (Move m : _candidates[_pos]) {
+            if (m != null && board.legalMove(m)) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Ask whether the side to move in one position can move.
+     */
+    @Benchmark
+    public boolean canMove() {
+        Board board = nextBoard();
+        return board.canMove(board.whoseMove());
+    }
+
+    /**
+     * Ask whether one position is finished.
+     */
+    @Benchmark
+    public boolean gameOver() {
+        return nextBoard().gameOver();
+    }
+
+    /**
+     * Generate the candidate moves of one position.
+     */
+    @Benchmark
+    public void possibleMoves(Blackhole hole) {
+        Stack<Move> moves = _ai.possibleMoves(nextBoard());
+        hole.consume(moves);
+    }
+
+    /**
+     * Evaluate one position statically.
+     */
+    @Benchmark
+    public int staticScore() {
+        return AI.staticScore(nextBoard());
+    }
+
+    /**
+     * Score one position with pattern tables whose indices are kept up
+     * to date incrementally.
+     */
+    @Benchmark
+    public int patternScore() {
+        nextBoard();
+        return _patterns.score(_patternBoards[_pos]);
+    }
+
+    /**
+     * Make and undo one legal move on a board whose pattern indices are
+     * kept up to date, and score the result.
+     */
+    @Benchmark
+    public int patternMakeMoveUndo() {
+        nextBoard();
+        Board board = _patternBoards[_pos];
+        Move[] moves = _legal[_pos];
+        if (moves.length == 0) {
+            return _patterns.score(board);
+        }
+        _move = _move + 1 < moves.length ? _move + 1 : 0;
+        board.makeMove(moves[_move]);
+        int score = _patterns.score(board);
+        board.undo();
+        return score;
+    }
+
+    /**
+     * Advance to the next position of the corpus and return its board.
+     */
+    private Board nextBoard() {
+        _pos = _pos + 1 < _boards.length ? _pos + 1 : 0;
+        return _boards[_pos];
+    }
+
+    /** The corpus. */
+    private Board[] _boards;
+    /** Legal moves (other than pass) of each corpus position. */
+    private Move[][] _legal;
+    /** Candidate moves of each corpus position, legal or not. */
+    private Move[][] _candidates;
+    /** Index of the current position. */
+    private int _pos;
+    /** Index of the last move made by makeMoveUndo. */
+    private int _move;
+    /** Copies of the corpus attached to _patterns. */
+    private Board[] _patternBoards;
+    /** Pattern evaluator. */
+    private final PatternEvaluator _patterns = PatternEvaluator.material();
+    /** Source of candidate moves. */
+    private final AI _ai = new AI(null, PieceColor.RED);
+
+}
@@ -23,4 +23,22 @@ class EnigmaException extends RuntimeException {
         return new EnigmaException(String.format(msgFormat, arguments));
     }
 
+    /** Record that I arose at WHERE (a description of a position in the
+     *  input, such as "line 3, column 7 of default.conf"), unless a
+     *  position has already been recorded, and return me. */
+    EnigmaException at(String where) {
+        if (_where == null) {
+            _where = where;
+        }
+        return this;
+    }
+
+    /** Return the position recorded by at, or null if there is none. */
+    String where() {
+        return _where;
+    }
+
+    /** Where I arose, or null. */
+    private String _where;
+
 }
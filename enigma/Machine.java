@@ -1,10 +1,20 @@
 package enigma;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import static enigma.EnigmaException.*;
 import java.util.ArrayList;
-/** Class that represents a complete enigma machine.
+import java.util.Arrays;
+/** Class that represents a complete enigma machine.  For each state of
+ *  its rotors, the path of a character through the plugboard, the rotors,
+ *  the reflector, the rotors again and the plugboard again is a single
+ *  substitution.  A machine notes each state it meets in a direct-mapped
+ *  cache keyed by the packed rotor settings, and builds the substitution
+ *  the second time it meets the state, so that converting a character in
+ *  a state it has seen before is one step of the rotors and one table
+ *  lookup, while a state met only once costs no more than the path.
  *  @author keith pacana
  */
 class Machine {
@@ -15,7 +25,7 @@ class Machine {
     /** @param intialize # of rotors */private int _numrotors;
     /** @param initialize # of pawls */private int _pawls;
     /** @param hashmap all rotors */ private HashMap<String, Rotor> _allrotors;
-    /** @param hashmap of used rotors */private HashMap<Integer, Rotor> _rotors;
+    /** @param used rotors, reflector first */private Rotor[] _rotors;
      /**
     * @param alpha alphabet
     * @param numRotors number of rotors in place
@@ -31,6 +41,17 @@ class Machine {
         for (int i = 0; x.size() > i; i++) {
             _allrotors.put(x.get(i).name().toUpperCase(), x.get(i));
         }
+        _chars = new char[alpha.size()];
+        _bytes = new byte[alpha.size()];
+        for (int i = 0; _chars.length > i; i++) {
+            _chars[i] = alpha.toChar(i);
+            _bytes[i] = (byte) _chars[i];
+            _byteAlphabet &= _chars[i] <= BYTE_MAX;
+        }
+        _ascii = new int[ASCII];
+        for (char c = 0; ASCII > c; c++) {
+            _ascii[c] = upperIndex(c);
+        }
     }
     /** Return the number of rotor slots I have. */
     int numRotors() {
@@ -44,83 +65,705 @@ class Machine {
 
     /** Set my rotor slots to the rotors named ROTORS from my set of
      *  available rotors (ROTORS[0] names the reflector).
-     *  Initially, all rotors are set at their 0 setting. */
+     *  Initially, all rotors are set at their 0 setting.  The rotors
+     *  inserted are copies (a rotor named twice is one copy in two
+     *  slots), so the available rotors are never moved, and machines
+     *  made from the same ones may be used in different threads. */
     void insertRotors(String[] rotors) {
-        _rotors = new HashMap<Integer, Rotor>(rotors.length);
+        IdentityHashMap<Rotor, Rotor> copies = new IdentityHashMap<>();
+        _rotors = new Rotor[rotors.length];
         for (int i = 0; rotors.length > i; i++) {
-            _rotors.put(i, _allrotors.get(rotors[i]));
+            Rotor rotor = _allrotors.get(rotors[i]);
+            if (rotor != null && !copies.containsKey(rotor)) {
+                copies.put(rotor, rotor.copy());
+            }
+            _rotors[i] = rotor == null ? null : copies.get(rotor);
         }
         int movingrot = 0;
-        for (int j = 0; _rotors.size() > j; j++) {
-            if ((_rotors.get(j) instanceof MovingRotor)) {
+        for (int j = 0; _rotors.length > j; j++) {
+            if ((_rotors[j] instanceof MovingRotor)) {
                 movingrot += 1;
             }
         }
         if (movingrot > _pawls) {
             throw error("invalid number of arguments");
         }
+        long states = 1;
+        for (int j = 0; _rotors.length > j && states > 0; j++) {
+            if (states > Long.MAX_VALUE / _alphabet.size()) {
+                states = 0;
+            } else {
+                states *= _alphabet.size();
+            }
+        }
+        _packable = states > 0;
+        _shared = false;
+        for (int i = 0; _rotors.length > i; i++) {
+            for (int j = 0; i > j; j++) {
+                _shared |= _rotors[i] == _rotors[j];
+            }
+        }
+        clearCache();
+        markOrigin();
     }
     /** Set my rotors according to SETTING, which must be a string of four
      *  upper-case letters. The first letter refers to the leftmost
      *  rotor setting (not counting the reflector).  */
     void setRotors(String setting) {
         for (int i = 0; setting.length() > i; i++) {
-            _rotors.get(i + 1).set(setting.charAt(i));
+            _rotors[i + 1].set(setting.charAt(i));
+        }
+        markOrigin();
+    }
+
+    /** Record the current settings of my rotors as the ones from which
+     *  position() counts and seek() starts, and make position() 0. */
+    private void markOrigin() {
+        _origin = new int[_rotors.length];
+        for (int i = 0; _rotors.length > i; i++) {
+            _origin[i] = _rotors[i].setting();
+        }
+        _position = 0;
+        _orbits = null;
+    }
+
+    /** Return the number of characters I have converted since my rotors
+     *  were inserted or last set, or the offset last given to seek()
+     *  plus the number converted since. */
+    long position() {
+        return _position;
+    }
+
+    /** Return true iff seek() takes a time that does not grow with its
+     *  offset. */
+    boolean canSeek() {
+        return _packable && !_shared;
+    }
+
+    /** Return a new machine with my alphabet, available rotors,
+     *  plugboard and position(), holding copies of my rotors at their
+     *  settings, which moves independently of me.  It shares my cache of
+     *  substitutions, so that, as long as neither of us is given new
+     *  rotors or a new plugboard, substitutions either of us builds are
+     *  available to both, even in different threads. */
+    Machine copy() {
+        IdentityHashMap<Rotor, Rotor> copies = new IdentityHashMap<>();
+        for (Rotor rotor : _rotors) {
+            if (!copies.containsKey(rotor)) {
+                copies.put(rotor, rotor.copy());
+            }
         }
+        Machine m = new Machine(_alphabet, _numrotors, _pawls,
+                                new ArrayList<Rotor>());
+        m._allrotors = _allrotors;
+        m._rotors = new Rotor[_rotors.length];
+        for (int i = 0; _rotors.length > i; i++) {
+            m._rotors[i] = copies.get(_rotors[i]);
+        }
+        m._packable = _packable;
+        m._shared = _shared;
+        m._plugboard = _plugboard;
+        m._cacheSize = _cacheSize;
+        m._cacheShift = _cacheShift;
+        if (_cache == null && _cacheSize > 0) {
+            allocateCache();
+        }
+        m._cache = _cache;
+        m._seen = _seen;
+        m._cacheShared = _cacheShared = true;
+        m._origin = _origin;
+        m._position = _position;
+        m._orbits = _orbits;
+        return m;
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the index in my alphabet of C converted to upper case, or
+     *  -1 if that is not in my alphabet. */
+    int index(char c) {
+        return ASCII > c ? _ascii[c] : upperIndex(c);
+    }
+
+    /** Return the index in my alphabet of C converted to upper case, or
+     *  -1 if that is not in my alphabet, without using _ascii. */
+    private int upperIndex(char c) {
+        char upper = Character.toUpperCase(c);
+        return _alphabet.contains(upper) ? _alphabet.toInt(upper) : -1;
+    }
 
+    /** Set my rotors as they would be after converting OFFSET characters
+     *  from the settings they were last inserted or set with.  The time
+     *  taken does not grow with OFFSET (see Orbit), unless one rotor is
+     *  in more than one slot, or there are too many rotors for their
+     *  settings to be packed into a long, when the rotors are stepped
+     *  OFFSET times. */
+    void seek(long offset) {
+        if (offset < 0) {
+            throw error("negative offset");
+        }
+        if (!_packable || _shared) {
+            for (int i = 1; _rotors.length > i; i++) {
+                _rotors[i].set(_origin[i]);
+            }
+            for (long n = 0; offset > n; n++) {
+                step();
+            }
+        } else {
+            if (_orbits == null) {
+                _orbits = new Orbit[_rotors.length];
+                for (int k = _rotors.length - 1; k > 0; k -= 1) {
+                    _orbits[k] = orbit(k);
+                }
+            }
+            for (int k = 1; _rotors.length > k; k++) {
+                _rotors[k].set(_orbits[k].setting(offset));
+            }
+        }
+        _position = offset;
+    }
+
+    /** Return the orbit of the rotors in slot K and up from their
+     *  settings in _origin, given the orbits of those in the slots to
+     *  the right of K. */
+    private Orbit orbit(int k) {
+        Rotor rotor = _rotors[k];
+        int x = _origin[k], size = rotor.size();
+        boolean last = k == _rotors.length - 1;
+        boolean doubleSteps = _rotors[k - 1] instanceof MovingRotor;
+        Orbit orbit = new Orbit(x, size);
+        if (!(rotor instanceof MovingRotor)) {
+            if (!last) {
+                orbit.setCycle(_orbits[k + 1]._transient,
+                               _orbits[k + 1]._period);
+            }
+            return orbit;
+        }
+        if (last) {
+            orbit.setCycle(0, size);
+            orbit._advances.add(0, size);
+            for (int t = 0; doubleSteps && size > t; t++) {
+                if (rotor.atNotch((x + t) % size)) {
+                    orbit._notches.add(t, t + 1);
+                }
+            }
+            return orbit;
+        }
+        Orbit right = _orbits[k + 1];
+        int[] seen = new int[size];
+        Arrays.fill(seen, -1);
+        long t = 0, sample = right._transient;
+        for (int m = 0; ; ) {
+            if (t == sample) {
+                if (seen[x] >= 0) {
+                    orbit.setCycle(right._transient + seen[x] * right._period,
+                                   (m - seen[x]) * right._period);
+                    return orbit;
+                }
+                seen[x] = m;
+                m += 1;
+                sample += right._period;
+            }
+            if (doubleSteps && rotor.atNotch(x)) {
+                orbit._notches.add(t, t + 1);
+                orbit._advances.add(t, t + 1);
+                x = (x + 1) % size;
+                t += 1;
+                continue;
+            }
+            long a = right.nextNotch(t);
+            if (a < 0 || a >= sample) {
+                t = sample;
+                continue;
+            }
+            long end = Math.min(right.notchEnd(a), sample);
+            orbit._advances.add(a, end);
+            for (t = a; end > t; t++) {
+                if (doubleSteps && rotor.atNotch(x)) {
+                    orbit._notches.add(t, t + 1);
+                }
+                x = (x + 1) % size;
+            }
+        }
     }
     /** Set the plugboard to PLUGBOARD. */
     /** @param plugboard set up */private Permutation _plugboard;
     void setPlugboard(Permutation plugboard) {
         _plugboard = plugboard;
+        clearCache();
     }
     /** Returns the result of converting the input character C (as an
      *  index in the range 0..alphabet size - 1), after first advancing
      *  the machine. */
     int convert(int c) {
-        c = _plugboard.permute(c);
-        int numrots = _rotors.size();
-        for (int i = 1; _rotors.size() > i; i++) {
+        step();
+        _position += 1;
+        if (c >= 0 && _alphabet.size() > c) {
+            int[] substitution = substitution();
+            if (substitution != null) {
+                return substitution[c];
+            }
+        }
+        return path(c);
+    }
+
+    /** Advance my rotors as for one key press. */
+    private void step() {
+        int numrots = _rotors.length;
+        for (int i = 1; numrots > i; i++) {
             if (i == numrots - 1) {
-                _rotors.get(i).advance();
-            } else if (_rotors.get(i + 1).atNotch()) {
-                if (!(_rotors.get(i) instanceof FixedRotor
-                        || _rotors.get(i) instanceof Reflector)) {
-                    _rotors.get(i).advance();
+                _rotors[i].advance();
+            } else if (_rotors[i + 1].atNotch()) {
+                if (!(_rotors[i] instanceof FixedRotor
+                        || _rotors[i] instanceof Reflector)) {
+                    _rotors[i].advance();
                 }
-            } else if (_rotors.get(i).atNotch()) {
-                if (_rotors.get(i - 1) instanceof MovingRotor) {
-                    _rotors.get(i).advance();
+            } else if (_rotors[i].atNotch()) {
+                if (_rotors[i - 1] instanceof MovingRotor) {
+                    _rotors[i].advance();
                 }
             }
         }
-        for (int i = _rotors.size() - 1; i >= 0; i -= 1) {
-            c = _rotors.get(i).convertForward(c);
+    }
+
+    /** Return the conversion of C by my plugboard and rotors in their
+     *  current settings, without advancing them. */
+    private int path(int c) {
+        c = _plugboard.permute(c);
+        for (int i = _rotors.length - 1; i >= 0; i -= 1) {
+            c = _rotors[i].convertForward(c);
         }
-        for (int j = 1; _rotors.size()  > j; j++) {
-            c = _rotors.get(j).convertBackward(c);
+        for (int j = 1; _rotors.length > j; j++) {
+            c = _rotors[j].convertBackward(c);
         }
         c = _plugboard.permute(c);
         return c;
     }
 
+    /** Return the substitution performed by my plugboard and rotors in
+     *  their current settings, building it if it is not in my cache but
+     *  the settings have been noted in it, or null if the settings are
+     *  new (noting them), I have no cache, or my settings cannot be
+     *  packed into a key. */
+    private int[] substitution() {
+        if (_cacheSize == 0 || !_packable) {
+            return null;
+        }
+        long key = 0;
+        for (int i = 0; _rotors.length > i; i++) {
+            key = key * _alphabet.size() + _rotors[i].setting();
+        }
+        if (_cache == null) {
+            allocateCache();
+        }
+        int slot = (int) ((key * HASH_MULTIPLIER) >>> _cacheShift);
+        Entry entry = _cache[slot];
+        if (entry != null && entry._key == key) {
+            _hits += 1;
+            return entry._substitution;
+        }
+        if (_seen[slot] != key + 1) {
+            if (!_cacheShared && _seen[slot] == 0) {
+                _used[_usedCount] = slot;
+                _usedCount += 1;
+            }
+            _seen[slot] = key + 1;
+            _misses += 1;
+            return null;
+        }
+        int[] substitution = new int[_alphabet.size()];
+        for (int c = 0; substitution.length > c; c++) {
+            substitution[c] = path(c);
+        }
+        _cache[slot] = new Entry(key, substitution);
+        _builds += 1;
+        return substitution;
+    }
+
+    /** Give me an empty cache of _cacheSize slots, not shared with any
+     *  other machine. */
+    private void allocateCache() {
+        _cache = new Entry[_cacheSize];
+        _seen = new long[_cacheSize];
+        _used = new int[_cacheSize];
+        _usedCount = 0;
+        _cacheShared = false;
+    }
+
+    /** Discard the substitutions in my cache.  A cache shared with my
+     *  copies is left to them, and I get a new one when I next need it;
+     *  otherwise the slots used since it was last cleared are emptied,
+     *  so that new settings cost neither a new cache nor a pass over
+     *  every slot. */
+    private void clearCache() {
+        if (_cache == null || _cacheShared
+            || _cache.length != _cacheSize) {
+            _cache = null;
+            _seen = null;
+            _used = null;
+            return;
+        }
+        for (int i = 0; _usedCount > i; i++) {
+            _cache[_used[i]] = null;
+            _seen[_used[i]] = 0;
+        }
+        _usedCount = 0;
+    }
+
+    /** Return the number of slots in my cache of substitutions, which is
+     *  0 if I have none. */
+    int cacheSize() {
+        return _cacheSize;
+    }
+
+    /** Give me a cache of SIZE substitutions, rounded up to a power of two
+     *  no less than 2, or none if SIZE is 0, discarding the substitutions
+     *  cached. */
+    void setCacheSize(int size) {
+        if (size < 0) {
+            throw error("negative cache size");
+        }
+        _cacheSize =
+            size == 0 ? 0 : Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        _cacheShift = Long.numberOfLeadingZeros(_cacheSize - 1);
+        clearCache();
+    }
+
+    /** Return the number of characters I have converted with a
+     *  substitution found in my cache. */
+    long cacheHits() {
+        return _hits;
+    }
+
+    /** Return the number of substitutions I have built. */
+    long cacheBuilds() {
+        return _builds;
+    }
+
+    /** Return the number of characters I have converted in settings new
+     *  to my cache, without a substitution. */
+    long cacheMisses() {
+        return _misses;
+    }
+
+    /** Return the fraction of the characters converted with a cached
+     *  substitution, or 0 if none have been. */
+    double cacheHitRate() {
+        long total = _hits + _builds + _misses;
+        return total == 0 ? 0.0 : (double) _hits / total;
+    }
+
+    /** Reset cacheHits(), cacheBuilds() and cacheMisses() to 0. */
+    void resetCacheStatistics() {
+        _hits = _builds = _misses = 0;
+    }
 
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     String convert(String msg) {
+        StringBuilder translation = new StringBuilder(msg.length());
+        convert(msg, translation);
+        return translation.toString();
+    }
+
+    /** Append the encoding/decoding of IN to OUT, updating the state of
+     *  the rotors accordingly: each character of IN whose upper case is
+     *  in my alphabet is converted, and the others are skipped.  Nothing
+     *  is allocated for each character. */
+    void convert(CharSequence in, Appendable out) {
+        try {
+            for (int i = 0, n = in.length(); n > i; i++) {
+                int index = index(in.charAt(i));
+                if (index >= 0) {
+                    out.append(_chars[convert(index)]);
+                }
+            }
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+    }
 
-        String translation = "";
-        String msg1 = msg.toUpperCase();
-        for (int i = 0; msg.length() > i; i++) {
-            if (_alphabet.contains(msg1.charAt(i))) {
-                int newval = convert(_alphabet.toInt(msg1.charAt(i)));
-                String result = Character.toString(_alphabet.toChar(newval));
-                translation = translation + result;
+    /** Store the encoding/decoding of the LEN characters of IN starting
+     *  at OFF in OUT, starting at OUTOFF, as for convert(CharSequence,
+     *  Appendable), and return the number of characters stored.  OUT may
+     *  be IN, and OUTOFF may be OFF. */
+    int convert(char[] in, int off, int len, char[] out, int outOff) {
+        int j = outOff;
+        for (int i = off, end = off + len; end > i; i++) {
+            int index = index(in[i]);
+            if (index >= 0) {
+                out[j] = _chars[convert(index)];
+                j += 1;
             }
         }
-        return translation;
+        return j - outOff;
+    }
+
+    /** Store the encoding/decoding of the LEN bytes of IN starting at
+     *  OFF, taken as ISO-8859-1 characters, in OUT, starting at OUTOFF,
+     *  as for convert(char[], int, int, char[], int), and return the
+     *  number of bytes stored.  My alphabet must consist of characters
+     *  that are single bytes in ISO-8859-1. */
+    int convert(byte[] in, int off, int len, byte[] out, int outOff) {
+        if (!_byteAlphabet) {
+            throw error("alphabet has characters that are not single bytes");
+        }
+        int j = outOff;
+        for (int i = off, end = off + len; end > i; i++) {
+            int index = index((char) (in[i] & BYTE_MAX));
+            if (index >= 0) {
+                out[j] = _bytes[convert(index)];
+                j += 1;
+            }
+        }
+        return j - outOff;
+    }
+
+    /** A substitution in a cache, which may be shared by machines in
+     *  different threads: its fields are final, so a machine that finds
+     *  an entry in its cache finds it complete. */
+    private static class Entry {
+
+        /** The substitution SUBSTITUTION for the settings packed into
+         *  KEY. */
+        Entry(long key, int[] substitution) {
+            _key = key;
+            _substitution = substitution;
+        }
+
+        /** The packed settings. */
+        private final long _key;
+        /** The substitution for them. */
+        private final int[] _substitution;
     }
 
+    /** The motion of the rotor in one slot, which, together with the
+     *  rotors to its right, moves independently of the rotors to its
+     *  left.  Those rotors cycle with some period after some transient
+     *  number of key presses, and the rotor is described by the presses
+     *  during that time at which it advances and at which it is at a
+     *  notch.  The orbit of a rotor is found from that of the rotor to
+     *  its right by following the rotor through the presses at which its
+     *  neighbour is at a notch, and noting its setting each time the
+     *  neighbour completes a cycle: once a setting recurs, so does the
+     *  state of all the rotors.  The press at which a rotor is in a given
+     *  setting therefore takes a binary search rather than a step for
+     *  each press. */
+    private static class Orbit {
+
+        /** The orbit of a rotor at setting START with SIZE settings that
+         *  never moves. */
+        Orbit(int start, int size) {
+            _start = start;
+            _size = size;
+        }
+
+        /** Make the rotors cycle with period PERIOD after LEAD presses. */
+        void setCycle(long lead, long period) {
+            _transient = lead;
+            _period = period;
+        }
+
+        /** Return the setting of my rotor after N presses. */
+        int setting(long n) {
+            long moves;
+            if (_transient + _period >= n) {
+                moves = _advances.covered(n);
+            } else {
+                long cycle = _transient + _period;
+                long per = _advances.covered(cycle)
+                    - _advances.covered(_transient);
+                moves = _advances.covered(_transient)
+                    + (n - _transient) / _period % _size * per
+                    + _advances.covered(_transient
+                                        + (n - _transient) % _period)
+                    - _advances.covered(_transient);
+            }
+            return (int) ((_start + moves % _size) % _size);
+        }
+
+        /** Return the first press at or after T at which my rotor is at a
+         *  notch, or -1 if there is none. */
+        long nextNotch(long t) {
+            long cycle = _transient + _period;
+            if (cycle > t) {
+                int i = _notches.index(t);
+                if (_notches.size() > i) {
+                    return Math.max(t, _notches.start(i));
+                }
+                t = cycle;
+            }
+            long q = (t - _transient) / _period;
+            long r = (t - _transient) % _period;
+            int i = _notches.index(_transient + r);
+            if (_notches.size() > i) {
+                return Math.max(_transient + r, _notches.start(i))
+                    + q * _period;
+            }
+            i = _notches.index(_transient);
+            if (_notches.size() > i) {
+                return Math.max(_transient, _notches.start(i))
+                    + (q + 1) * _period;
+            }
+            return -1;
+        }
+
+        /** Return the first press after A, a press at which my rotor is at
+         *  a notch, at which it might no longer be. */
+        long notchEnd(long a) {
+            long cycle = _transient + _period;
+            if (cycle > a) {
+                return _notches.end(_notches.index(a));
+            }
+            long q = (a - _transient) / _period;
+            long r = (a - _transient) % _period;
+            return _notches.end(_notches.index(_transient + r)) + q * _period;
+        }
+
+        /** Setting of my rotor before the first press. */
+        private final int _start;
+        /** Number of settings of my rotor. */
+        private final int _size;
+        /** Number of presses before the rotors cycle, and the length of
+         *  the cycle. */
+        private long _transient, _period = 1;
+        /** The presses, before the end of the first cycle, at which my
+         *  rotor advances. */
+        private final Intervals _advances = new Intervals();
+        /** The presses, before the end of the first cycle, at which my
+         *  rotor is at a notch, if that matters to the rotor to its
+         *  left. */
+        private final Intervals _notches = new Intervals();
+    }
+
+    /** An ordered set of disjoint intervals of key presses. */
+    private static class Intervals {
+
+        /** Add the presses A up to (but not including) B, which all follow
+         *  those already present. */
+        void add(long a, long b) {
+            if (_count > 0 && _ends[_count - 1] == a) {
+                _ends[_count - 1] = b;
+                return;
+            }
+            if (_count == _starts.length) {
+                _starts = Arrays.copyOf(_starts, 2 * _count);
+                _ends = Arrays.copyOf(_ends, 2 * _count);
+                _before = Arrays.copyOf(_before, 2 * _count);
+            }
+            _before[_count] = _count == 0 ? 0
+                : _before[_count - 1] + _ends[_count - 1]
+                  - _starts[_count - 1];
+            _starts[_count] = a;
+            _ends[_count] = b;
+            _count += 1;
+        }
+
+        /** Return the number of intervals. */
+        int size() {
+            return _count;
+        }
+
+        /** Return the first press of interval I. */
+        long start(int i) {
+            return _starts[i];
+        }
+
+        /** Return the press just after interval I. */
+        long end(int i) {
+            return _ends[i];
+        }
+
+        /** Return the index of the first interval ending after T, or
+         *  size() if there is none. */
+        int index(long t) {
+            int lo = 0, hi = _count;
+            while (hi > lo) {
+                int mid = (lo + hi) >>> 1;
+                if (_ends[mid] > t) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+
+        /** Return the number of my presses before press T. */
+        long covered(long t) {
+            int i = index(t);
+            if (i == _count) {
+                return i == 0 ? 0 : _before[i - 1] + _ends[i - 1]
+                    - _starts[i - 1];
+            }
+            return _before[i] + Math.max(0, t - _starts[i]);
+        }
+
+        /** First press of each interval. */
+        private long[] _starts = new long[4];
+        /** Press after each interval. */
+        private long[] _ends = new long[4];
+        /** Number of presses in the intervals before each. */
+        private long[] _before = new long[4];
+        /** Number of intervals. */
+        private int _count;
+    }
+
+    /** Default number of slots in the cache of substitutions. */
+    static final int DEFAULT_CACHE_SIZE = 1 << 15;
+    /** Multiplier spreading keys over the cache slots: a slot is the top
+     *  bits of the product of a key and this. */
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** Number of characters in the table of their indices. */
+    private static final int ASCII = 128;
+    /** Largest character that is a single byte. */
+    private static final int BYTE_MAX = 0xFF;
+
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
+    /** The characters of my alphabet, by index. */
+    private final char[] _chars;
+    /** The characters of my alphabet as bytes, by index. */
+    private final byte[] _bytes;
+    /** True iff the characters of my alphabet are all single bytes. */
+    private boolean _byteAlphabet = true;
+    /** The values of index(C) for C < ASCII. */
+    private final int[] _ascii;
+    /** Number of slots in my cache (a power of two), or 0. */
+    private int _cacheSize = DEFAULT_CACHE_SIZE;
+    /** Shift taking the product of a key and HASH_MULTIPLIER to a slot. */
+    private int _cacheShift =
+        Long.numberOfLeadingZeros(DEFAULT_CACHE_SIZE - 1);
+    /** True iff the settings of my rotors can be packed into a long. */
+    private boolean _packable;
+    /** True iff one of my rotors is in more than one slot. */
+    private boolean _shared;
+    /** The entry in each slot of my cache, or null; null until a
+     *  substitution is first needed.  Shared with my copies. */
+    private Entry[] _cache;
+    /** One more than the key last noted in each slot of my cache, or 0.
+     *  Shared with my copies, which may overwrite one another's notes:
+     *  a lost note only delays building a substitution. */
+    private long[] _seen;
+    /** The slots of my cache used since it was last cleared, in the
+     *  first _usedCount entries, if it is not shared. */
+    private int[] _used;
+    /** Number of slots recorded in _used. */
+    private int _usedCount;
+    /** True iff my cache is, or has been, shared with a copy. */
+    private boolean _cacheShared;
+    /** Numbers of conversions using a cached substitution, of
+     *  substitutions built, and of conversions in new settings. */
+    private long _hits, _builds, _misses;
+    /** The settings of my rotors when they were inserted or last set. */
+    private int[] _origin;
+    /** The value of position(). */
+    private long _position;
+    /** The orbits of my rotors from _origin, indexed by slot, or null if
+     *  not yet found. */
+    private Orbit[] _orbits;
 }
@@ -0,0 +1,255 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Machine class.
+ *  @author keith pacana
+ */
+public class MachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a new machine made from the rotors of library(), holding
+     *  the rotors named by ROTORS at SETTING, with plugboard
+     *  PLUGBOARD. */
+    static Machine machine(String rotors, String setting, String plugboard) {
+        return machine(library(), rotors, setting, plugboard);
+    }
+
+    /** Return a new machine made from the rotors in LIBRARY, holding the
+     *  rotors named by ROTORS at SETTING, with plugboard PLUGBOARD. */
+    static Machine machine(ArrayList<Rotor> library, String rotors,
+                           String setting, String plugboard) {
+        String[] names = rotors.split(" ");
+        Machine m = new Machine(UPPER, names.length, names.length - 1,
+                                library);
+        m.insertRotors(names);
+        m.setRotors(setting);
+        m.setPlugboard(new Permutation(plugboard, UPPER));
+        return m;
+    }
+
+    /** Return the naval rotors, and rotors E and F that are always at a
+     *  notch. */
+    static ArrayList<Rotor> library() {
+        ArrayList<Rotor> all = new ArrayList<>();
+        String[] moving = { "I", "II", "III", "IV", "V" };
+        String[] notches = { "Q", "E", "V", "J", "Z" };
+        for (int i = 0; moving.length > i; i++) {
+            all.add(new MovingRotor(moving[i],
+                                    new Permutation(NAVALA.get(moving[i]),
+                                                    UPPER),
+                                    notches[i]));
+        }
+        for (String name : new String[] { "VI", "VII", "VIII" }) {
+            all.add(new MovingRotor(name,
+                                    new Permutation(NAVALA.get(name), UPPER),
+                                    "ZM"));
+        }
+        for (String name : new String[] { "Beta", "Gamma" }) {
+            all.add(new FixedRotor(name.toUpperCase(),
+                                   new Permutation(NAVALA.get(name), UPPER)));
+        }
+        for (String name : new String[] { "B", "C" }) {
+            all.add(new Reflector(name,
+                                  new Permutation(NAVALA.get(name), UPPER)));
+        }
+        for (String name : new String[] { "E", "F" }) {
+            all.add(new MovingRotor(name,
+                                    new Permutation(NAVALA.get("I"), UPPER),
+                                    ""));
+        }
+        return all;
+    }
+
+    /** A long message: the alphabet repeated. */
+    static final String LONG_MESSAGE = UPPER_STRING.repeat(1000);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkTrivial() {
+        Machine m = machine("B BETA I II III", "AAAA", "");
+        assertEquals("ILBDAAMTAZ", m.convert("Hello world"));
+        m = machine("B BETA I II III", "AAAA", "(AQ) (EP)");
+        assertEquals("IHBDQQMTQZ", m.convert("Hello world"));
+    }
+
+    @Test
+    public void checkCache() {
+        Machine plain = machine("B BETA III IV I", "AXLE", "(HQ) (EX)");
+        plain.setCacheSize(0);
+        String expected = plain.convert(LONG_MESSAGE);
+        assertEquals(0, plain.cacheBuilds());
+
+        Machine cached = machine("B BETA III IV I", "AXLE", "(HQ) (EX)");
+        assertEquals(expected, cached.convert(LONG_MESSAGE));
+        assertEquals(LONG_MESSAGE.length(),
+                     cached.cacheHits() + cached.cacheBuilds()
+                     + cached.cacheMisses());
+        cached.setRotors("AXLE");
+        cached.resetCacheStatistics();
+        assertEquals(expected, cached.convert(LONG_MESSAGE));
+        assertEquals(0, cached.cacheMisses());
+        assertTrue(cached.cacheBuilds() > 0);
+        cached.setRotors("AXLE");
+        cached.resetCacheStatistics();
+        assertEquals(expected, cached.convert(LONG_MESSAGE));
+        assertEquals(0, cached.cacheBuilds() + cached.cacheMisses());
+        assertEquals(1.0, cached.cacheHitRate(), 0.0);
+
+        Permutation plugboard = new Permutation("(HQ) (EX)", UPPER);
+        cached.setPlugboard(plugboard);
+        cached.setRotors("AXLE");
+        cached.resetCacheStatistics();
+        String start = LONG_MESSAGE.substring(0, 1000);
+        assertEquals(expected.substring(0, 1000), cached.convert(start));
+        assertEquals(0, cached.cacheHits() + cached.cacheBuilds());
+        Machine copy = cached.copy();
+        cached.insertRotors("B BETA III IV I".split(" "));
+        cached.setRotors("AXLE");
+        cached.setPlugboard(plugboard);
+        copy.setRotors("AXLE");
+        copy.resetCacheStatistics();
+        assertEquals(expected, cached.convert(LONG_MESSAGE));
+        assertEquals(expected.substring(0, 1000), copy.convert(start));
+        assertEquals(0, copy.cacheMisses());
+
+        Machine small = machine("B BETA III IV I", "AXLE", "(HQ) (EX)");
+        small.setCacheSize(3);
+        assertEquals(4, small.cacheSize());
+        assertEquals(expected, small.convert(LONG_MESSAGE));
+        assertTrue(small.cacheBuilds() + small.cacheMisses() > 4);
+    }
+
+    /** Machines whose rotors step in different ways: the usual three
+     *  rotors, with double steps; five moving rotors; rotors with two
+     *  notches; rotors always at a notch; and fewer rotors. */
+    static final String[][] STEPPING = {
+        { "B BETA III IV I", "AXLE" },
+        { "C II I V IV III", "QDVEU" },
+        { "B BETA VI VII VIII", "ZLMY" },
+        { "B E VI II III", "CZMD" },
+        { "B III F E II", "QAAE" },
+        { "B II E", "DQ" },
+        { "C GAMMA V", "AZ" },
+    };
+
+    @Test
+    public void checkSeek() {
+        int n = 3 * 26 * 26 * 26;
+        String msg = UPPER_STRING.repeat(n / 26) + "TESTSTEP";
+        for (String[] setup : STEPPING) {
+            Machine sequential = machine(setup[0], setup[1], "(AB)");
+            String expected = sequential.convert(msg);
+            assertEquals(msg.length(), sequential.position());
+            Machine m = machine(setup[0], setup[1], "(AB)");
+            for (int p = 0; n > p; p += p < 200 ? 1 : 311) {
+                m.seek(p);
+                assertEquals(p, m.position());
+                assertEquals(setup[0] + " at " + p,
+                             expected.substring(p, p + 8),
+                             m.convert(msg.substring(p, p + 8)));
+                assertEquals(p + 8, m.position());
+            }
+        }
+    }
+
+    @Test
+    public void checkSharedRotorSeek() {
+        Machine sequential = machine("B I E E", "QAZ", "");
+        String expected = sequential.convert(LONG_MESSAGE);
+        Machine m = machine("B I E E", "QAZ", "");
+        for (int p = 0; 2000 > p; p += 7) {
+            m.seek(p);
+            assertEquals(expected.substring(p, p + 8),
+                         m.convert(LONG_MESSAGE.substring(p, p + 8)));
+        }
+    }
+
+    @Test
+    public void checkDistantSeek() {
+        long far = 1_000_000_000_000_000L;
+        for (String[] setup : STEPPING) {
+            Machine m = machine(setup[0], setup[1], "");
+            m.seek(far);
+            String expected = m.convert(LONG_MESSAGE.substring(0, 1000));
+            m.seek(far + 600);
+            assertEquals(setup[0], expected.substring(600),
+                         m.convert(LONG_MESSAGE.substring(600, 1000)));
+            m.setRotors(setup[1]);
+            assertEquals(0, m.position());
+        }
+    }
+
+    @Test
+    public void checkSharedLibrary() {
+        ArrayList<Rotor> library = library();
+        Machine m1 = machine(library, "B BETA III IV I", "AXLE", "");
+        Machine m2 = machine(library, "B GAMMA I IV II", "QQQQ", "");
+        String expected1 = machine("B BETA III IV I", "AXLE", "")
+            .convert(LONG_MESSAGE);
+        String expected2 = machine("B GAMMA I IV II", "QQQQ", "")
+            .convert(LONG_MESSAGE);
+        StringBuilder out1 = new StringBuilder(),
+            out2 = new StringBuilder();
+        for (int i = 0; LONG_MESSAGE.length() > i; i += 100) {
+            String msg = LONG_MESSAGE.substring(i, i + 100);
+            out1.append(m1.convert(msg));
+            out2.append(m2.convert(msg));
+        }
+        assertEquals(expected1, out1.toString());
+        assertEquals(expected2, out2.toString());
+        for (Rotor rotor : library) {
+            assertEquals(rotor.name(), 0, rotor.setting());
+        }
+    }
+
+    @Test
+    public void checkStreaming() {
+        String msg = "Hello, world: \u017Fo long!";
+        String expected = machine("B BETA I II III", "AAAA", "(AQ) (EP)")
+            .convert(msg);
+        assertEquals(machine("B BETA I II III", "AAAA", "(AQ) (EP)")
+                     .convert("HELLOWORLDSOLONG"), expected);
+
+        Machine m = machine("B BETA I II III", "AAAA", "(AQ) (EP)");
+        StringBuilder out = new StringBuilder(">");
+        m.convert(new StringBuilder(msg), out);
+        assertEquals(">" + expected, out.toString());
+
+        m = machine("B BETA I II III", "AAAA", "(AQ) (EP)");
+        char[] chars = ("##" + msg + "##").toCharArray();
+        int n = m.convert(chars, 2, msg.length(), chars, 1);
+        assertEquals(expected.length(), n);
+        assertEquals(expected, new String(chars, 1, n));
+
+        m = machine("B BETA I II III", "AAAA", "(AQ) (EP)");
+        byte[] bytes = "Hello, world: so long!".getBytes();
+        byte[] converted = new byte[bytes.length];
+        n = m.convert(bytes, 0, bytes.length, converted, 0);
+        assertEquals(expected, new String(converted, 0, n));
+        assertEquals(expected.length(), m.position());
+    }
+
+    @Test
+    public void checkPlugboardChange() {
+        Machine m = machine("B BETA I II III", "AAAA", "");
+        m.convert("HELLOWORLD");
+        m.setRotors("AAAA");
+        m.setPlugboard(new Permutation("(AQ) (EP)", UPPER));
+        assertEquals("IHBDQQMTQZ", m.convert("HELLOWORLD"));
+    }
+
+}
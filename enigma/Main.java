@@ -4,9 +4,25 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static enigma.EnigmaException.*;
 
@@ -23,25 +39,94 @@ public final class Main {
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1.  These arguments may be preceded by
+     *  '--threads N', which converts messages on N threads (see
+     *  ParallelConverter), in batches of lines, and by '--chunk N',
+     *  which sets the number of characters each thread converts at a
+     *  time.  Alternatively, '--sections N' converts up to N of the
+     *  sections of input started by '*' lines at once, each with its own
+     *  machine, on N threads.  With '--mmap', ARGS[1] and ARGS[2] must
+     *  both be present, and the input file is mapped into memory and
+     *  converted straight to the output file (see MappedConverter).
+     *  Without '--threads' or '--sections', the standard input is read
+     *  and converted a block at a time, so that lines of any length may
+     *  be converted in constant space. */
     public static void main(String... args) {
         try {
             new Main(args).process();
             return;
         } catch (EnigmaException excp) {
-            System.err.printf("Error: %s%n", excp.getMessage());
+            if (excp.where() == null) {
+                System.err.printf("Error: %s%n", excp.getMessage());
+            } else {
+                System.err.printf("Error: %s (at %s)%n", excp.getMessage(),
+                                  excp.where());
+            }
         }
         System.exit(1);
     }
 
     /** Check ARGS and open the necessary files (see comment on main). */
     Main(String[] args) {
+        int threads = 1, chunk = ParallelConverter.DEFAULT_CHUNK_SIZE;
+        int sections = 1;
+        boolean mapped = false;
+        int k;
+        try {
+            for (k = 0; args.length > k && args[k].startsWith("--"); k++) {
+                if (args[k].equals("--threads")) {
+                    threads = Integer.parseInt(args[++k]);
+                } else if (args[k].equals("--chunk")) {
+                    chunk = Integer.parseInt(args[++k]);
+                } else if (args[k].equals("--sections")) {
+                    sections = Integer.parseInt(args[++k]);
+                } else if (args[k].equals("--mmap")) {
+                    mapped = true;
+                } else {
+                    throw error("unknown option: %s", args[k]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException
+                 | NumberFormatException excp) {
+            throw error("bad option value");
+        }
+        args = Arrays.copyOfRange(args, k, args.length);
         if (args.length < 1 || args.length > 3) {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
-        _config = getInput(args[0]);
+        if (threads > 1 && sections > 1) {
+            throw error("--threads and --sections may not both be used");
+        } else if (mapped && (threads > 1 || sections > 1)) {
+            throw error("--mmap may not be used with --threads or --sections");
+        } else if (mapped && args.length < 3) {
+            throw error("--mmap needs input and output files");
+        } else if (threads > 1) {
+            _converter = new ParallelConverter(threads, chunk);
+        } else if (sections > 1) {
+            _sections = Executors.newFixedThreadPool(sections, r -> {
+                Thread thread = new Thread(r, "enigma-section");
+                thread.setDaemon(true);
+                return thread;
+            });
+            _window = 2 * sections;
+        }
+        _configName = args[0];
+        _config = getTokens(args[0]);
+        if (mapped) {
+            _mapped = true;
+            _inputChannel = getChannel(args[1], StandardOpenOption.READ);
+            _outputChannel =
+                getChannel(args[2], StandardOpenOption.CREATE,
+                           StandardOpenOption.TRUNCATE_EXISTING,
+                           StandardOpenOption.WRITE);
+            return;
+        }
         if (args.length > 1) {
             _input = getInput(args[1]);
+        } else if (_converter == null && _sections == null) {
+            _inputChannel = Channels.newChannel(System.in);
+            _outputChannel = Channels.newChannel(System.out);
+            return;
         } else {
             _input = new Scanner(System.in);
         }
@@ -62,6 +147,17 @@ public final class Main {
         }
     }
 
+    /** Return a Tokenizer reading the contents of the file named NAME. */
+    private Tokenizer getTokens(String name) {
+        try {
+            byte[] contents = Files.readAllBytes(Paths.get(name));
+            return new Tokenizer(new String(contents,
+                                            Charset.defaultCharset()));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
     /** Return a PrintStream writing to the file named NAME. */
     private PrintStream getOutput(String name) {
         try {
@@ -71,6 +167,16 @@ public final class Main {
         }
     }
 
+    /** Return a channel for the file named NAME, opened with OPTIONS. */
+    private FileChannel getChannel(String name,
+                                   StandardOpenOption... options) {
+        try {
+            return FileChannel.open(Paths.get(name), options);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
      *  results to _output. */
@@ -78,23 +184,154 @@ public final class Main {
     /** set up machine and rotor. */
     private void process() {
         Machine lol = readConfig();
+        if (_inputChannel != null) {
+            Charset charset = Charset.defaultCharset();
+            if (MappedConverter.supports(_alphabet, charset)) {
+                processChannels(lol, charset);
+                return;
+            }
+            _input = new Scanner(_inputChannel);
+            _output =
+                new PrintStream(Channels.newOutputStream(_outputChannel));
+        }
         if (_input.hasNext("\\*")) {
             _input.next();
             setng = _input.nextLine();
+            if (_sections != null) {
+                processSections(setng);
+                return;
+            }
             setUp(lol, setng);
         } else {
             throw error("not initialized");
         }
         while (_input.hasNextLine()) {
             String msg = _input.nextLine();
-            if (msg.isEmpty()) {
-                _output.println(msg);
-            } else if (msg.startsWith("*")) {
+            if (msg.startsWith("*")) {
+                flush(lol);
                 setng = msg.substring(2).trim();
                 setUp(lol, setng);
+            } else if (_converter != null) {
+                _batch.add(msg);
+                _batchSize += msg.length();
+                if (_batchSize >= 2L * _converter.threads()
+                    * _converter.chunkSize()) {
+                    flush(lol);
+                }
+            } else if (msg.isEmpty()) {
+                _output.println(msg);
             } else {
-                printMessageLine(lol.convert(msg));
+                _converted.setLength(0);
+                lol.convert(msg, _converted);
+                printMessageLine(_converted);
+            }
+        }
+        flush(lol);
+    }
+
+    /** Convert _inputChannel into _outputChannel with LOL, whose
+     *  messages are encoded in CHARSET, mapping the input into memory
+     *  if _mapped. */
+    private void processChannels(Machine lol, Charset charset) {
+        MappedConverter converter =
+            new MappedConverter(lol, settings -> setUp(lol, settings),
+                                charset);
+        try {
+            if (_mapped) {
+                converter.convert((FileChannel) _inputChannel,
+                                  _outputChannel);
+            } else {
+                converter.stream(_inputChannel, _outputChannel);
+            }
+        } catch (IOException excp) {
+            throw error("could not convert input: %s", excp.getMessage());
+        } finally {
+            System.out.flush();
+        }
+    }
+
+    /** Apply the settings FIRST, and those on each '*' line after, to
+     *  the message lines that follow them in _input, converting the
+     *  sections so formed on the threads of _sections, each with a
+     *  machine of its own, and printing the results in order.  No more than
+     *  _window sections, or than one section and MAX_PENDING
+     *  characters, are held at once. */
+    private void processSections(String first) {
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        ArrayDeque<Long> sizes = new ArrayDeque<>();
+        long pendingSize = 0;
+        String settings = "* " + first;
+        ArrayList<String> lines = new ArrayList<>();
+        long size = 0;
+        while (true) {
+            String msg = _input.hasNextLine() ? _input.nextLine() : null;
+            if (msg != null && !msg.startsWith("*")) {
+                lines.add(msg);
+                size += msg.length();
+                continue;
+            }
+            while (!pending.isEmpty()
+                   && (pending.size() >= _window
+                       || pendingSize + size > MAX_PENDING)) {
+                _output.print(result(pending.poll()));
+                pendingSize -= sizes.poll();
+            }
+            String header = settings;
+            List<String> messages = lines;
+            pending.add(_sections.submit(() -> convertSection(header,
+                                                              messages)));
+            sizes.add(size);
+            pendingSize += size;
+            if (msg == null) {
+                break;
             }
+            settings = msg;
+            lines = new ArrayList<>();
+            size = 0;
+        }
+        while (!pending.isEmpty()) {
+            _output.print(result(pending.poll()));
+        }
+    }
+
+    /** Return the output for LINES converted by the current thread's
+     *  machine, set up according to the '*' line HEADER.  Each thread
+     *  keeps its machine from section to section, so that setting it up
+     *  only empties the parts of its cache that were used. */
+    private String convertSection(String header, List<String> lines) {
+        Machine machine = _sectionMachines.get();
+        setUp(machine, header.substring(2).trim());
+        StringBuilder out = new StringBuilder();
+        for (String line : lines) {
+            formatMessageLine(machine.convert(line), out);
+        }
+        return out.toString();
+    }
+
+    /** Return the result of the completed section conversion SECTION,
+     *  throwing the exception it threw, if any. */
+    private String result(Future<String> section) {
+        try {
+            return section.get();
+        } catch (InterruptedException excp) {
+            throw error("interrupted");
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw error("conversion failed: %s", excp.getCause());
+        }
+    }
+
+    /** Convert the message lines in _batch with M, print them, and empty
+     *  _batch. */
+    private void flush(Machine M) {
+        if (!_batch.isEmpty()) {
+            for (String line : _converter.convert(M, _batch)) {
+                printMessageLine(line);
+            }
+            _batch.clear();
+            _batchSize = 0;
         }
     }
 
@@ -115,10 +352,19 @@ public final class Main {
                 Rotor b = readRotor();
                 allrotors.add(b);
             }
-            return new Machine(_alphabet, numrotors, pawls, allrotors);
         } catch (NoSuchElementException excp) {
-            throw error("configuration file truncated");
+            throw error("configuration file truncated")
+                .at(configPosition(_config.mark()));
+        } catch (EnigmaException excp) {
+            throw excp.at(configPosition(_config.mark()));
         }
+        return new Machine(_alphabet, numrotors, pawls, allrotors);
+    }
+
+    /** Return a description of OFFSET in _config for error messages. */
+    private String configPosition(int offset) {
+        return String.format("%s of %s", _config.position(offset),
+                             _configName);
     }
 
     /** Return a rotor, reading its description from _config. */
@@ -126,18 +372,22 @@ public final class Main {
         try {
             String rotorname = _config.next();
             String moving = _config.next();
-            String cycles = "";
+            int description = _config.mark();
+            StringBuilder cycles = new StringBuilder();
             Permutation x;
-            int i = 0;
-            while (_config.hasNext("\\(.*")) {
+            while (_config.hasNext('(')) {
                 String a = _config.next();
-                if (a.contains(")")) {
-                    cycles = cycles + a;
+                if (a.indexOf(')') >= 0) {
+                    cycles.append(a);
                 } else {
                     throw error("bad conf");
                 }
             }
-            x = new Permutation(cycles, _alphabet);
+            try {
+                x = new Permutation(cycles.toString(), _alphabet);
+            } catch (EnigmaException excp) {
+                throw excp.at(configPosition(description));
+            }
             String m = Character.toString(moving.charAt(0));
             if (m.contentEquals("M")) {
                 MovingRotor movrot = new MovingRotor(rotorname, x,
@@ -150,7 +400,8 @@ public final class Main {
                 Reflector ref = new Reflector(rotorname, x);
                 return ref;
             } else {
-                throw error("no description");
+                throw error("no description")
+                    .at(configPosition(description));
             }
         } catch (NoSuchElementException excp) {
             throw error("bad rotor description");
@@ -159,41 +410,58 @@ public final class Main {
     /** Set M according to the specification given on SETTINGS,
      *  which must have the format specified in the assignment. */
     private void setUp(Machine M, String settings) {
-        Scanner y = new Scanner(settings);
+        Tokenizer y = new Tokenizer(settings);
         try {
             String[] a = new String[numrotors];
-            int nummoving;
             for (int i = 0; numrotors > i; i++) {
                 a[i] = y.next();
             }
-            boolean x = a[1].equals("BETA");
             M.insertRotors(a);
-            String cycles = "";
+            StringBuilder cycles = new StringBuilder();
             String setting = y.next();
             M.setRotors(setting);
-            while (y.hasNext("\\(.*")) {
-                cycles += y.next();
+            while (y.hasNext('(')) {
+                cycles.append(y.next());
             }
-            Permutation in = new Permutation(cycles, _alphabet);
+            Permutation in = new Permutation(cycles.toString(), _alphabet);
             M.setPlugboard(in);
         } catch (NoSuchElementException excp) {
-            throw error("bad rotor type");
+            throw error("bad rotor type")
+                .at(settingsPosition(y, settings));
+        } catch (EnigmaException excp) {
+            throw excp.at(settingsPosition(y, settings));
         }
     }
+    /** Return a description of the position of the last token read by
+     *  TOKENS from SETTINGS for error messages. */
+    private static String settingsPosition(Tokenizer tokens,
+                                           String settings) {
+        return String.format("column %d of settings '%s'",
+                             tokens.mark() + 1, settings);
+    }
+
     /** Print MSG in groups of five (except that the last group may
      *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        String z = "";
+    private void printMessageLine(CharSequence msg) {
+        _formatted.setLength(0);
+        formatMessageLine(msg, _formatted);
+        _output.append(_formatted);
+    }
+
+    /** Append MSG to OUT in groups of five, as printMessageLine prints
+     *  it, followed by a line separator. */
+    private static void formatMessageLine(CharSequence msg,
+                                          StringBuilder out) {
         int i = 5;
-        for (char x: msg.toCharArray()) {
+        for (int k = 0; msg.length() > k; k++) {
             if (i == 0) {
-                _output.print(" ");
+                out.append(' ');
                 i = 5;
             }
-            _output.print(x);
+            out.append(msg.charAt(k));
             i -= 1;
         }
-        _output.println();
+        out.append(System.lineSeparator());
     }
     /** Alphabet used in this machine. */
     private Alphabet _alphabet;
@@ -202,8 +470,48 @@ public final class Main {
     private Scanner _input;
 
     /** Source of machine configuration. */
-    private Scanner _config;
+    private Tokenizer _config;
+
+    /** Name of the configuration file. */
+    private String _configName;
 
     /** File for encoded/decoded messages. */
     private PrintStream _output;
+
+    /** Input and output converted by a MappedConverter, or null. */
+    private ReadableByteChannel _inputChannel;
+    /** Where output goes when _inputChannel is used. */
+    private WritableByteChannel _outputChannel;
+    /** True iff _inputChannel is a file to be mapped into memory. */
+    private boolean _mapped;
+
+    /** Converted message line, reused for each line. */
+    private final StringBuilder _converted = new StringBuilder();
+
+    /** Message line grouped for output, reused for each line. */
+    private final StringBuilder _formatted = new StringBuilder();
+
+    /** Converter used with '--threads', or null. */
+    private ParallelConverter _converter;
+
+    /** Message lines waiting to be converted by _converter. */
+    private final ArrayList<String> _batch = new ArrayList<>();
+
+    /** Number of characters in _batch. */
+    private long _batchSize;
+
+    /** Threads converting sections with '--sections', or null. */
+    private ExecutorService _sections;
+
+    /** The machine of each thread of _sections. */
+    private final ThreadLocal<Machine> _sectionMachines =
+        ThreadLocal.withInitial(() -> new Machine(_alphabet, numrotors,
+                                                  pawls, allrotors));
+
+    /** Largest number of sections held at once with '--sections'. */
+    private int _window;
+
+    /** Number of message characters beyond which no more sections are
+     *  read until earlier ones are printed. */
+    private static final long MAX_PENDING = 1L << 25;
 }
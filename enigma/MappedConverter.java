@@ -0,0 +1,400 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import static enigma.EnigmaException.*;
+
+/** Converts a file of settings and messages into a file of messages, as
+ *  Main does, without reading it line by line through a Scanner.  The
+ *  input is either mapped into memory a window at a time, or read from a
+ *  channel a block at a time, so that files and lines of any length may
+ *  be converted in constant space.  It is decoded a byte at a time by
+ *  a state machine that follows Scanner's rules for lines and tokens:
+ *  the input must start, after any whitespace, with a '*' token, whose
+ *  line gives the first settings; each later line starting with '*'
+ *  gives new settings; and each other line is a message, printed in
+ *  groups of five as by Main.printMessageLine.  As for a Scanner, the
+ *  input ends at the first byte that is not valid in its encoding.
+ *  Within a message, runs of ASCII bytes, which are the same characters
+ *  in each supported encoding, are converted straight from the input
+ *  buffer through a table of their indices, and only other bytes go
+ *  through the decoder.
+ *  The output is collected in a direct buffer and written to a
+ *  channel.
+ *  @author keith pacana
+ */
+class MappedConverter {
+
+    /** Number of bytes of input mapped at once. */
+    static final int WINDOW = 1 << 26;
+    /** Number of bytes of input read from a channel at a time. */
+    static final int BLOCK = 1 << 16;
+    /** Number of bytes of output written at once. */
+    static final int OUTPUT = 1 << 22;
+
+    /** A converter of input encoded in CHARSET (which must be supported)
+     *  that converts messages with MACHINE and passes the settings on
+     *  each '*' line (as Main reads them) to SETUP. */
+    MappedConverter(Machine machine, Consumer<String> setUp,
+                    Charset charset) {
+        if (!supports(machine.alphabet(), charset)) {
+            throw error("cannot map input in %s", charset);
+        }
+        _machine = machine;
+        _setUp = setUp;
+        _charset = charset;
+        Alphabet alphabet = machine.alphabet();
+        _bytes = new byte[alphabet.size()];
+        for (int i = 0; _bytes.length > i; i++) {
+            _bytes[i] = (byte) alphabet.toChar(i);
+        }
+        _separator = System.lineSeparator().getBytes(charset);
+        _indices = new int[ASCII];
+        for (char c = 0; ASCII > c; c++) {
+            _indices[c] =
+                c == '\n' || c == '\r' ? LINE_END : machine.index(c);
+        }
+    }
+
+    /** Return true iff input in CHARSET can be converted with a machine
+     *  whose alphabet is ALPHABET: CHARSET must be UTF-8, ISO-8859-1 or
+     *  US-ASCII, and the characters of ALPHABET must be ASCII. */
+    static boolean supports(Alphabet alphabet, Charset charset) {
+        if (!charset.equals(StandardCharsets.UTF_8)
+            && !charset.equals(StandardCharsets.ISO_8859_1)
+            && !charset.equals(StandardCharsets.US_ASCII)) {
+            return false;
+        }
+        for (int i = 0; alphabet.size() > i; i++) {
+            if (alphabet.toChar(i) >= ASCII) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Convert all of IN, mapping it into memory, and writing the
+     *  results to OUT.  Output is written up to the point of any
+     *  error. */
+    void convert(FileChannel in, WritableByteChannel out)
+        throws IOException {
+        _out = out;
+        _buffer = ByteBuffer.allocateDirect(OUTPUT);
+        try {
+            long size = in.size();
+            for (long pos = 0; size > pos && !_ended; pos += WINDOW) {
+                MappedByteBuffer window =
+                    in.map(FileChannel.MapMode.READ_ONLY, pos,
+                           Math.min(WINDOW, size - pos));
+                decode(window, window.limit());
+            }
+            finish();
+        } finally {
+            flush();
+        }
+    }
+
+    /** Convert all of IN, reading it a block at a time, and writing the
+     *  results to OUT.  The output of each block is written once it has
+     *  been converted, so that lines typed at a terminal are answered
+     *  as they are read.  Output is written up to the point of any
+     *  error. */
+    void stream(ReadableByteChannel in, WritableByteChannel out)
+        throws IOException {
+        _out = out;
+        _buffer = ByteBuffer.allocateDirect(OUTPUT);
+        ByteBuffer block = ByteBuffer.allocate(BLOCK);
+        try {
+            while (!_ended && in.read(block) >= 0) {
+                decode(block, block.position());
+                block.clear();
+                flush();
+            }
+            finish();
+        } finally {
+            flush();
+        }
+    }
+
+    /** Decode the first N bytes of BLOCK, stopping if the input ends. */
+    private void decode(ByteBuffer block, int n) {
+        for (int i = 0; n > i && !_ended; i++) {
+            if (_state == State.MESSAGE && _need == 0) {
+                i = message(block, i, n);
+                if (i == n) {
+                    break;
+                }
+            }
+            decode(block.get(i));
+        }
+    }
+
+    /** Convert the message in BLOCK from byte START up to byte N, the
+     *  end of the line, or the first byte that is not ASCII, whichever
+     *  comes first, and return the index of the byte it stops at. */
+    private int message(ByteBuffer block, int start, int n) {
+        int i;
+        for (i = start; n > i; i++) {
+            byte b = block.get(i);
+            if (b < 0) {
+                break;
+            }
+            int index = _indices[b];
+            if (index == LINE_END) {
+                break;
+            } else if (index >= 0) {
+                if (_count > 0 && _count % GROUP == 0) {
+                    put((byte) ' ');
+                }
+                put(_bytes[_machine.convert(index)]);
+                _count += 1;
+            }
+        }
+        return i;
+    }
+
+    /** Decode B, the next byte of input, ending the input if it is
+     *  malformed. */
+    private void decode(byte b) {
+        if (_charset.equals(StandardCharsets.ISO_8859_1)) {
+            accept((char) (b & BYTE));
+        } else if (b >= 0 && _need == 0) {
+            accept((char) b);
+        } else if (_charset.equals(StandardCharsets.US_ASCII)) {
+            _ended = true;
+        } else if (_need > 0 && (b & CONTINUATION_MASK) == CONTINUATION) {
+            _code = _code << CONTINUATION_BITS
+                | b & BYTE & ~CONTINUATION_MASK;
+            _need -= 1;
+            if (_need == 0) {
+                if (_code >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    accept(Character.highSurrogate(_code));
+                    accept(Character.lowSurrogate(_code));
+                } else {
+                    accept((char) _code);
+                }
+            }
+        } else if (_need > 0) {
+            _ended = true;
+        } else if ((b & TWO_MASK) == TWO) {
+            _code = b & BYTE & ~TWO_MASK;
+            _need = 1;
+        } else if ((b & THREE_MASK) == THREE) {
+            _code = b & BYTE & ~THREE_MASK;
+            _need = 2;
+        } else if ((b & FOUR_MASK) == FOUR) {
+            _code = b & BYTE & ~FOUR_MASK;
+            _need = 3;
+        } else {
+            _ended = true;
+        }
+    }
+
+    /** Process C, the next character of input. */
+    private void accept(char c) {
+        if (_afterReturn) {
+            _afterReturn = false;
+            if (c == '\n') {
+                return;
+            }
+        }
+        boolean end = c == '\n' || c == '\r' || c == '\u0085'
+            || c == '\u2028' || c == '\u2029';
+        _afterReturn = c == '\r';
+        switch (_state) {
+        case START:
+            if (c == '*') {
+                _state = State.STAR;
+            } else if (!Character.isWhitespace(c)) {
+                throw error("not initialized");
+            }
+            break;
+        case STAR:
+            if (!Character.isWhitespace(c)) {
+                throw error("not initialized");
+            }
+            _state = State.SETTINGS;
+            accept(c, end);
+            break;
+        default:
+            accept(c, end);
+            break;
+        }
+    }
+
+    /** Process C, a character after the first '*' token, which ends a
+     *  line iff END. */
+    private void accept(char c, boolean end) {
+        switch (_state) {
+        case SETTINGS:
+            if (end) {
+                settings();
+                _state = State.LINE;
+            } else {
+                _line.append(c);
+            }
+            break;
+        case LINE:
+            if (end) {
+                put(_separator);
+            } else if (c == '*') {
+                _line.append(c);
+                _state = State.SETTINGS;
+            } else {
+                _count = 0;
+                _state = State.MESSAGE;
+                accept(c, false);
+            }
+            break;
+        case MESSAGE:
+            if (end) {
+                put(_separator);
+                _state = State.LINE;
+            } else {
+                int index = _machine.index(c);
+                if (index >= 0) {
+                    if (_count > 0 && _count % GROUP == 0) {
+                        put((byte) ' ');
+                    }
+                    put(_bytes[_machine.convert(index)]);
+                    _count += 1;
+                }
+            }
+            break;
+        default:
+            throw new IllegalStateException();
+        }
+    }
+
+    /** Pass the settings in _line to _setUp, and clear _line. */
+    private void settings() {
+        String line = _line.toString();
+        _line.setLength(0);
+        if (_first) {
+            _first = false;
+            _setUp.accept(line);
+        } else {
+            _setUp.accept(line.substring(2).trim());
+        }
+    }
+
+    /** Finish converting at the end of the input. */
+    private void finish() {
+        switch (_state) {
+        case START:
+            throw error("not initialized");
+        case STAR:
+            throw new NoSuchElementException("No line found");
+        case SETTINGS:
+            settings();
+            break;
+        case MESSAGE:
+            put(_separator);
+            break;
+        default:
+            break;
+        }
+    }
+
+    /** Add B to the output. */
+    private void put(byte b) {
+        if (!_buffer.hasRemaining()) {
+            flush();
+        }
+        _buffer.put(b);
+    }
+
+    /** Add BYTES to the output. */
+    private void put(byte[] bytes) {
+        for (byte b : bytes) {
+            put(b);
+        }
+    }
+
+    /** Write the output collected. */
+    private void flush() {
+        _buffer.flip();
+        try {
+            while (_buffer.hasRemaining()) {
+                _out.write(_buffer);
+            }
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+        _buffer.clear();
+    }
+
+    /** The states of the converter. */
+    private enum State {
+        /** Before the first '*'. */
+        START,
+        /** Just after the first '*'. */
+        STAR,
+        /** In a line of settings. */
+        SETTINGS,
+        /** At the start of a line after the first. */
+        LINE,
+        /** In a message line. */
+        MESSAGE
+    }
+
+    /** Characters below this are ASCII. */
+    private static final int ASCII = 0x80;
+    /** Mask of the bits of a byte. */
+    private static final int BYTE = 0xFF;
+    /** UTF-8 continuation bytes: the bits that distinguish them, their
+     *  value, and the number of bits of the character they hold. */
+    private static final int CONTINUATION_MASK = 0xC0, CONTINUATION = 0x80,
+        CONTINUATION_BITS = 6;
+    /** The first bytes of UTF-8 sequences of two, three and four bytes:
+     *  the bits that distinguish each, and their values. */
+    private static final int TWO_MASK = 0xE0, TWO = 0xC0,
+        THREE_MASK = 0xF0, THREE = 0xE0, FOUR_MASK = 0xF8, FOUR = 0xF0;
+    /** Marks the characters that end a line in _indices. */
+    private static final int LINE_END = -2;
+    /** Number of letters in a group of output. */
+    private static final int GROUP = 5;
+
+    /** The machine converting messages. */
+    private final Machine _machine;
+    /** Applies settings lines. */
+    private final Consumer<String> _setUp;
+    /** The encoding of the input. */
+    private final Charset _charset;
+    /** The characters of the alphabet, as bytes. */
+    private final byte[] _bytes;
+    /** The line separator, as bytes. */
+    private final byte[] _separator;
+    /** The index in the alphabet of each ASCII character in a message
+     *  (as for Machine.index), or LINE_END if it ends a line. */
+    private final int[] _indices;
+
+    /** Where the output goes. */
+    private WritableByteChannel _out;
+    /** Output not yet written. */
+    private ByteBuffer _buffer;
+    /** Current state. */
+    private State _state = State.START;
+    /** True iff the settings line being read is the first. */
+    private boolean _first = true;
+    /** The settings line being read. */
+    private final StringBuilder _line = new StringBuilder();
+    /** The number of letters converted on the current message line. */
+    private long _count;
+    /** True iff the last character was a carriage return. */
+    private boolean _afterReturn;
+    /** True iff the input has ended early, at a malformed byte. */
+    private boolean _ended;
+    /** The bits of the UTF-8 character being decoded, and the number of
+     *  bytes still needed. */
+    private int _code, _need;
+}
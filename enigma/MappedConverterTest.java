@@ -0,0 +1,192 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static enigma.MachineTest.machine;
+
+/** The suite of all JUnit tests for the MappedConverter class.
+ *  @author keith pacana
+ */
+public class MappedConverterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /** Settings lines passed on by the last call to convert. */
+    private List<String> settings = new ArrayList<>();
+
+    /** Return the output of converting INPUT, encoded in CHARSET, with
+     *  MACHINE, recording its settings lines in SETTINGS. */
+    private String convert(Machine machine, byte[] input, Charset charset)
+        throws IOException {
+        settings.clear();
+        File in = File.createTempFile("enigma", ".inp");
+        File out = File.createTempFile("enigma", ".out");
+        try {
+            Files.write(in.toPath(), input);
+            try (FileChannel inChannel = FileChannel.open(in.toPath());
+                 FileChannel outChannel =
+                     FileChannel.open(out.toPath(),
+                                      StandardOpenOption.WRITE)) {
+                new MappedConverter(machine, settings::add, charset)
+                    .convert(inChannel, outChannel);
+            }
+            return new String(Files.readAllBytes(out.toPath()), charset);
+        } finally {
+            in.delete();
+            out.delete();
+        }
+    }
+
+    /** Return the output of converting INPUT, encoded in CHARSET, with
+     *  MACHINE, reading it a few bytes at a time from a channel, and
+     *  recording its settings lines in SETTINGS. */
+    private String stream(Machine machine, byte[] input, Charset charset)
+        throws IOException {
+        settings.clear();
+        ByteArrayInputStream in = new ByteArrayInputStream(input) {
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3));
+            }
+
+            @Override
+            public int available() {
+                return 0;
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MappedConverter(machine, settings::add, charset)
+            .stream(Channels.newChannel(in), Channels.newChannel(out));
+        return new String(out.toByteArray(), charset);
+    }
+
+    /** Return MSG in groups of five, followed by a line separator. */
+    private static String group(String msg) {
+        StringBuilder result = new StringBuilder();
+        for (int k = 0; msg.length() > k; k++) {
+            if (k > 0 && k % 5 == 0) {
+                result.append(' ');
+            }
+            result.append(msg.charAt(k));
+        }
+        return result.append(System.lineSeparator()).toString();
+    }
+
+    @Test
+    public void checkLines() throws IOException {
+        String input = "\n * first settings\r\nhello world\r\n\r\n"
+            + "abcdefghijk\rxy\n*  NEXT  \n12 .. 34\nlast";
+        Machine mapped = machine("B BETA III IV I", "AXLE", "(QT)");
+        Machine sequential = machine("B BETA III IV I", "AXLE", "(QT)");
+        String expected = group(sequential.convert("helloworld"))
+            + System.lineSeparator()
+            + group(sequential.convert("abcdefghijk"))
+            + group(sequential.convert("xy"))
+            + System.lineSeparator()
+            + group(sequential.convert("last"));
+        assertEquals(expected,
+                     convert(mapped, input.getBytes(StandardCharsets.UTF_8),
+                             StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList(" first settings", "NEXT"), settings);
+        assertEquals(sequential.position(), mapped.position());
+        assertEquals(expected,
+                     stream(machine("B BETA III IV I", "AXLE", "(QT)"),
+                            input.getBytes(StandardCharsets.UTF_8),
+                            StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList(" first settings", "NEXT"), settings);
+    }
+
+    @Test
+    public void checkStreamedLongLine() throws IOException {
+        String msg = MachineTest.LONG_MESSAGE.toLowerCase();
+        Machine sequential = machine("B BETA III IV I", "AXLE", "");
+        assertEquals(group(sequential.convert(msg)),
+                     stream(machine("B BETA III IV I", "AXLE", ""),
+                            ("* S\r\n" + msg)
+                            .getBytes(StandardCharsets.UTF_8),
+                            StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void checkEncodings() throws IOException {
+        String input = "* S\nx\u017Fy\u0085ab\u2028cd\u00E9e\n";
+        Machine sequential = machine("B BETA III IV I", "AXLE", "");
+        String expected = group(sequential.convert("x\u017Fy"))
+            + group(sequential.convert("ab"))
+            + group(sequential.convert("cde"));
+        assertEquals(expected,
+                     convert(machine("B BETA III IV I", "AXLE", ""),
+                             input.getBytes(StandardCharsets.UTF_8),
+                             StandardCharsets.UTF_8));
+        assertEquals(expected,
+                     stream(machine("B BETA III IV I", "AXLE", ""),
+                            input.getBytes(StandardCharsets.UTF_8),
+                            StandardCharsets.UTF_8));
+        sequential = machine("B BETA III IV I", "AXLE", "");
+        expected = group(sequential.convert("xy"))
+            + group(sequential.convert("ab?cd\u00E9e"));
+        assertEquals(expected,
+                     convert(machine("B BETA III IV I", "AXLE", ""),
+                             "* S\nxy\u0085ab?cd\u00E9e\n"
+                             .getBytes(StandardCharsets.ISO_8859_1),
+                             StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void checkMixedMessage() throws IOException {
+        StringBuilder msg = new StringBuilder();
+        for (int k = 0; 2000 > k; k++) {
+            msg.append(k % 7 == 0 ? "\u017F" : k % 5 == 0 ? ". " : "")
+                .append((char) ('a' + k % 26));
+        }
+        String input = "* S\r\n" + msg + "\r\n" + msg + "\n";
+        Machine sequential = machine("B BETA III IV I", "AXLE", "");
+        String expected = group(sequential.convert(msg.toString()))
+            + group(sequential.convert(msg.toString()));
+        assertEquals(expected,
+                     convert(machine("B BETA III IV I", "AXLE", ""),
+                             input.getBytes(StandardCharsets.UTF_8),
+                             StandardCharsets.UTF_8));
+        assertEquals(expected,
+                     stream(machine("B BETA III IV I", "AXLE", ""),
+                            input.getBytes(StandardCharsets.UTF_8),
+                            StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void checkMalformed() throws IOException {
+        byte[] input = {'*', ' ', 'S', '\n', 'a', 'b', (byte) 0xFF, 'c'};
+        Machine sequential = machine("B BETA III IV I", "AXLE", "");
+        assertEquals(group(sequential.convert("ab")),
+                     convert(machine("B BETA III IV I", "AXLE", ""),
+                             input, StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkNotInitialized() throws IOException {
+        convert(machine("B BETA III IV I", "AXLE", ""),
+                "  *B BETA III IV I AXLE\nhello\n"
+                .getBytes(StandardCharsets.US_ASCII),
+                StandardCharsets.US_ASCII);
+    }
+
+}
@@ -13,34 +13,50 @@ class MovingRotor extends Rotor {
      *  alphabet).
      */
     private String _notches;
+    /** Whether each setting is at a notch, shared with my copies. */
+    private final boolean[] _atNotch;
     /**
     * @param name name of rotor
     * @param perm permutation of rotor
     * @param notches # of notches
     */
     MovingRotor(String name, Permutation perm, String notches) {
+        this(name, perm, notches, notchTable(perm.alphabet(), notches));
+    }
+
+    /** A rotor named NAME with permutation PERM and notches NOTCHES,
+     *  whose notched settings are those true in AT_NOTCH. */
+    private MovingRotor(String name, Permutation perm, String notches,
+                        boolean[] atNotch) {
         super(name, perm);
         _notches = notches;
+        _atNotch = atNotch;
     }
 
-    @Override
-    boolean atNotch() {
-        char setting2char = alphabet().toChar(setting());
-        boolean outcome = false;
-        if (_notches.equals("")) {
-            return true;
-        } else {
-            for (int i = 0; _notches.length() > i; i++) {
-                if (setting2char == (_notches.charAt(i))) {
-                    outcome = true;
-                }
-            }
+    /** Return a table indexed by setting in ALPHABET that is true at
+     *  each notch in NOTCHES, or at every setting if NOTCHES is empty. */
+    private static boolean[] notchTable(Alphabet alphabet, String notches) {
+        boolean[] table = new boolean[alphabet.size()];
+        for (int posn = 0; table.length > posn; posn++) {
+            table[posn] = notches.isEmpty()
+                || notches.indexOf(alphabet.toChar(posn)) >= 0;
         }
-        return outcome;
+        return table;
+    }
+
+    @Override
+    boolean atNotch(int posn) {
+        return _atNotch[posn];
     }
 
     @Override
     void advance() {
         set(setting() + 1);
     }
+
+    @Override
+    Rotor copy() {
+        return copyTo(new MovingRotor(name(), permutation(), _notches,
+                                      _atNotch));
+    }
 }
@@ -57,4 +57,52 @@ public class MovingRotorTest {
         assertEquals(1, x);
     }
 
+    @Test
+    public void checkSettings() {
+        for (String name : NAVALA_MAP.keySet()) {
+            setRotor(name, NAVALA, "");
+            checkRotor(name + "(A)", UPPER_STRING, NAVALA_MAP.get(name));
+            rotor.set('B');
+            checkRotor(name + "(B)", UPPER_STRING, NAVALB_MAP.get(name));
+            rotor.set(25);
+            checkRotor(name + "(Z)", UPPER_STRING, NAVALZ_MAP.get(name));
+        }
+    }
+
+    @Test
+    public void checkWithoutTables() {
+        int limit = Rotor.maxTableSize();
+        Rotor.setMaxTableSize(0);
+        try {
+            checkSettings();
+        } finally {
+            Rotor.setMaxTableSize(limit);
+        }
+    }
+
+    @Test
+    public void checkCopies() {
+        for (String name : NAVALA_MAP.keySet()) {
+            setRotor(name, NAVALA, "");
+            Rotor original = rotor;
+            original.set('B');
+            rotor = original.copy();
+            checkRotor(name + " copy(B)", UPPER_STRING, NAVALB_MAP.get(name));
+            rotor.set(25);
+            checkRotor(name + " copy(Z)", UPPER_STRING, NAVALZ_MAP.get(name));
+            int limit = Rotor.maxTableSize();
+            Rotor.setMaxTableSize(0);
+            try {
+                rotor = original.copy();
+                rotor.set(0);
+                checkRotor(name + " copy(A)", UPPER_STRING,
+                           NAVALA_MAP.get(name));
+            } finally {
+                Rotor.setMaxTableSize(limit);
+            }
+            rotor = original;
+            checkRotor(name + "(B)", UPPER_STRING, NAVALB_MAP.get(name));
+        }
+    }
+
 }
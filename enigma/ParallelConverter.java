@@ -0,0 +1,254 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static enigma.EnigmaException.*;
+
+/** Converts messages with a Machine on several threads.  The characters
+ *  of a batch of message lines are divided into chunks of about the same
+ *  size, without regard to line boundaries.  The letters in each chunk
+ *  are first counted in parallel, which gives the position in the stream
+ *  of letters at which each chunk starts.  Each chunk is then converted
+ *  in parallel by a copy of the machine advanced to that position by
+ *  Machine.seek, and the converted letters are put back together line by
+ *  line.  The result, and the state in which the machine is left, are
+ *  those of converting the lines one after another.
+ *  @author keith pacana
+ */
+class ParallelConverter {
+
+    /** Default number of characters in a chunk. */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /** A converter using THREADS threads and chunks of CHUNKSIZE
+     *  characters. */
+    ParallelConverter(int threads, int chunkSize) {
+        if (threads < 1 || chunkSize < 1) {
+            throw error("bad thread count or chunk size");
+        }
+        _threads = threads;
+        _chunkSize = chunkSize;
+        _pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "enigma-converter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Return the number of threads I use. */
+    int threads() {
+        return _threads;
+    }
+
+    /** Return the number of characters in one of my chunks. */
+    int chunkSize() {
+        return _chunkSize;
+    }
+
+    /** Returns the encoding/decoding of MSG by MACHINE, updating the
+     *  state of its rotors accordingly, as MACHINE.convert(MSG) would. */
+    String convert(Machine machine, String msg) {
+        return convert(machine, Collections.singletonList(msg)).get(0);
+    }
+
+    /** Returns the encodings/decodings of LINES by MACHINE, in order,
+     *  updating the state of its rotors accordingly, as converting each
+     *  with MACHINE.convert in turn would.  Machines that cannot seek
+     *  quickly, and batches of no more than one chunk, are converted in
+     *  the calling thread. */
+    List<String> convert(Machine machine, List<String> lines) {
+        long total = 0;
+        for (String line : lines) {
+            total += line.length();
+        }
+        List<String> result = new ArrayList<>(lines.size());
+        if (!machine.canSeek() || _threads == 1 || _chunkSize >= total) {
+            for (String line : lines) {
+                result.add(machine.convert(line));
+            }
+            return result;
+        }
+
+        List<Chunk> chunks = split(lines);
+        List<Callable<Void>> tasks = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            chunk._machine = machine.copy();
+            tasks.add(() -> {
+                chunk.count(lines);
+                return null;
+            });
+        }
+        run(tasks);
+
+        int[] letters = new int[lines.size()];
+        long position = machine.position();
+        for (Chunk chunk : chunks) {
+            chunk._position = position;
+            chunk._firstOffset = letters[chunk._firstLine];
+            for (int i = 0; chunk._counts.length > i; i++) {
+                letters[chunk._firstLine + i] += chunk._counts[i];
+                position += chunk._counts[i];
+            }
+        }
+        char[][] converted = new char[lines.size()][];
+        for (int i = 0; converted.length > i; i++) {
+            converted[i] = new char[letters[i]];
+        }
+        tasks.clear();
+        for (Chunk chunk : chunks) {
+            tasks.add(() -> {
+                chunk.convert(lines, converted);
+                return null;
+            });
+        }
+        run(tasks);
+
+        machine.seek(position);
+        for (char[] line : converted) {
+            result.add(new String(line));
+        }
+        return result;
+    }
+
+    /** Stop my threads.  I may not be used afterwards. */
+    void shutdown() {
+        _pool.shutdown();
+    }
+
+    /** Return LINES divided into chunks of _chunkSize characters (the
+     *  last may be shorter). */
+    private List<Chunk> split(List<String> lines) {
+        List<Chunk> chunks = new ArrayList<>();
+        Chunk chunk = null;
+        int room = 0;
+        for (int i = 0; lines.size() > i; i++) {
+            int length = lines.get(i).length(), pos = 0;
+            do {
+                if (chunk == null) {
+                    chunk = new Chunk(i, pos);
+                    room = _chunkSize;
+                }
+                int take = Math.min(room, length - pos);
+                pos += take;
+                room -= take;
+                if (room == 0) {
+                    chunk.end(i, pos);
+                    chunks.add(chunk);
+                    chunk = null;
+                }
+            } while (length > pos);
+        }
+        if (chunk != null) {
+            chunk.end(lines.size() - 1, lines.get(lines.size() - 1).length());
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /** Run TASKS on my threads, and return when all have finished. */
+    private void run(List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> done : _pool.invokeAll(tasks)) {
+                done.get();
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw error("conversion interrupted");
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw error("conversion failed: %s", excp.getCause());
+        }
+    }
+
+    /** The characters of a batch of lines from character _from of line
+     *  _firstLine up to (not including) character _to of line
+     *  _lastLine. */
+    private static class Chunk {
+
+        /** A chunk starting at character FROM of line FIRSTLINE. */
+        Chunk(int firstLine, int from) {
+            _firstLine = firstLine;
+            _from = from;
+        }
+
+        /** End me before character TO of line LASTLINE. */
+        void end(int lastLine, int to) {
+            _lastLine = lastLine;
+            _to = to;
+            _counts = new int[lastLine - _firstLine + 1];
+        }
+
+        /** Count the letters I hold of each of LINES. */
+        void count(List<String> lines) {
+            for (int i = _firstLine; _lastLine >= i; i++) {
+                String line = lines.get(i);
+                int n = 0;
+                for (int k = start(i); end(i, line) > k; k++) {
+                    if (_machine.index(line.charAt(k)) >= 0) {
+                        n += 1;
+                    }
+                }
+                _counts[i - _firstLine] = n;
+            }
+        }
+
+        /** Convert the letters I hold of each of LINES into the
+         *  corresponding element of CONVERTED. */
+        void convert(List<String> lines, char[][] converted) {
+            Alphabet alphabet = _machine.alphabet();
+            _machine.seek(_position);
+            for (int i = _firstLine; _lastLine >= i; i++) {
+                String line = lines.get(i);
+                char[] out = converted[i];
+                int j = i == _firstLine ? _firstOffset : 0;
+                for (int k = start(i); end(i, line) > k; k++) {
+                    int index = _machine.index(line.charAt(k));
+                    if (index >= 0) {
+                        out[j] = alphabet.toChar(_machine.convert(index));
+                        j += 1;
+                    }
+                }
+            }
+        }
+
+        /** Return the index in line I of my first character in it. */
+        private int start(int i) {
+            return i == _firstLine ? _from : 0;
+        }
+
+        /** Return the index just after my last character in LINE, which
+         *  is line I. */
+        private int end(int i, String line) {
+            return i == _lastLine ? _to : line.length();
+        }
+
+        /** My first line and the index of my first character in it. */
+        private final int _firstLine, _from;
+        /** My last line and the index after my last character in it. */
+        private int _lastLine, _to;
+        /** The number of letters I hold of each of my lines. */
+        private int[] _counts;
+        /** The position in the stream of letters of my first letter. */
+        private long _position;
+        /** The number of letters of my first line before mine. */
+        private int _firstOffset;
+        /** The machine converting me. */
+        private Machine _machine;
+    }
+
+    /** Number of threads. */
+    private final int _threads;
+    /** Number of characters in a chunk. */
+    private final int _chunkSize;
+    /** The threads. */
+    private final ExecutorService _pool;
+}
@@ -0,0 +1,97 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static enigma.MachineTest.machine;
+
+/** The suite of all JUnit tests for the ParallelConverter class.
+ *  @author keith pacana
+ */
+public class ParallelConverterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /** Return N random lines of up to LENGTH characters, some empty and
+     *  some without letters, made with RANDOM. */
+    private static List<String> lines(int n, int length, Random random) {
+        String chars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ"
+            + " .,0123456789";
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; n > i; i++) {
+            StringBuilder line = new StringBuilder();
+            int len = random.nextInt(4) == 0 ? 0 : random.nextInt(length);
+            for (int k = 0; len > k; k++) {
+                line.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            lines.add(random.nextInt(10) == 0 ? "12 .. 34" : line.toString());
+        }
+        return lines;
+    }
+
+    @Test
+    public void checkAgainstSequential() {
+        Random random = new Random(42);
+        ParallelConverter converter = new ParallelConverter(3, 97);
+        try {
+            for (String[] setup : MachineTest.STEPPING) {
+                Machine sequential = machine(setup[0], setup[1], "(QT)");
+                Machine parallel = machine(setup[0], setup[1], "(QT)");
+                for (int batch = 0; 4 > batch; batch++) {
+                    List<String> lines = lines(50, 400, random);
+                    List<String> expected = new ArrayList<>();
+                    for (String line : lines) {
+                        expected.add(sequential.convert(line));
+                    }
+                    assertEquals(setup[0], expected,
+                                 converter.convert(parallel, lines));
+                    assertEquals(sequential.position(), parallel.position());
+                }
+                assertEquals(sequential.convert("AFTERWARDS"),
+                             parallel.convert("AFTERWARDS"));
+            }
+        } finally {
+            converter.shutdown();
+        }
+    }
+
+    @Test
+    public void checkLongLine() {
+        ParallelConverter converter = new ParallelConverter(4, 1000);
+        try {
+            String msg = MachineTest.LONG_MESSAGE.toLowerCase();
+            Machine sequential = machine("B BETA III IV I", "AXLE", "");
+            Machine parallel = machine("B BETA III IV I", "AXLE", "");
+            assertEquals(sequential.convert(msg),
+                         converter.convert(parallel, msg));
+            assertEquals(Arrays.asList("", ""),
+                         converter.convert(parallel,
+                                           Arrays.asList("", "")));
+        } finally {
+            converter.shutdown();
+        }
+    }
+
+    @Test
+    public void checkCopy() {
+        Machine m = machine("B BETA III IV I", "AXLE", "(AB)");
+        m.convert("SOMELETTERS");
+        Machine copy = m.copy();
+        assertEquals(m.position(), copy.position());
+        String expected = m.convert("HELLOWORLD");
+        assertEquals(expected, copy.convert("HELLOWORLD"));
+        copy.seek(0);
+        m.seek(0);
+        assertEquals(m.convert("HELLOWORLD"), copy.convert("HELLOWORLD"));
+    }
+
+}
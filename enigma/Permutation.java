@@ -1,10 +1,12 @@
 package enigma;
 
 import static enigma.EnigmaException.*;
-import java.util.HashMap;
-import java.util.Map;
+
 /** Represents a permutation of a range of integers starting at 0 corresponding
- *  to the characters of an alphabet.
+ *  to the characters of an alphabet.  The cycles are compiled when the
+ *  permutation is created into forward and inverse tables indexed by
+ *  alphabet index, so that applying it (or its inverse) to an index is a
+ *  single array access.
  *  @author keith pacana
  */
 class Permutation {
@@ -13,38 +15,65 @@ class Permutation {
      *  form "(cccc) (cc) ..." where the c's are characters in ALPHABET, which
      *  is interpreted as a permutation in cycle notation.  Characters not
      *  included in any cycle map to themselves. Whitespace is ignored. */
-    /** @param intialize cycles */private Map<Character, Character> _cycles;
-    /** @param intialize cycles inverse */
-    private Map<Character, Character> _cyclesinv;
-     /**
+    /**
     * @param cycles string of cycles
     * @param alphabet characters */
     Permutation(String cycles, Alphabet alphabet) {
         _alphabet = alphabet;
-        String[] cyc = cycles.replaceAll("\\)", "").split("\\(");
-        _cycles = new HashMap<Character, Character>(_alphabet.size());
-        _cyclesinv = new HashMap<Character, Character>(_alphabet.size());
-        for (int i = 1; cyc.length > i; i++) {
-            for (int j = 0; cyc[i].length() > j; j++) {
-                if (j == cyc[i].length() - 1) {
-                    _cycles.put(cyc[i].charAt(j), cyc[i].charAt(0));
-                    _cyclesinv.put(cyc[i].charAt(0), cyc[i].charAt(j));
-                } else {
-                    _cycles.put(cyc[i].charAt(j), cyc[i].charAt(j + 1));
-                    _cyclesinv.put(cyc[i].charAt(j + 1), cyc[i].charAt(j));
-                }
+        int n = alphabet.size();
+        _forward = new int[n];
+        _inverse = new int[n];
+        for (int i = 0; n > i; i++) {
+            _forward[i] = _inverse[i] = i;
+        }
+        _cycled = new boolean[n];
+        StringBuilder cycle = null;
+        for (int k = 0; cycles.length() > k; k++) {
+            char c = cycles.charAt(k);
+            if (Character.isWhitespace(c)) {
+                continue;
+            } else if (c == '(' && cycle == null) {
+                cycle = new StringBuilder();
+            } else if (c == ')' && cycle != null) {
+                addCycle(cycle.toString());
+                cycle = null;
+            } else if (cycle != null && c != '(' && c != ')') {
+                cycle.append(c);
+            } else {
+                throw error("malformed cycles: %s", cycles);
             }
         }
-
-    }
-    /** returns cycles. */
-    public Map<Character, Character> getcycles() {
-        return _cycles;
+        if (cycle != null) {
+            throw error("malformed cycles: %s", cycles);
+        }
+        _cycled = null;
     }
+
     /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
      *  c0c1...cm. */
     private void addCycle(String cycle) {
+        int m = cycle.length();
+        for (int j = 0; m > j; j++) {
+            int from = index(cycle.charAt(j));
+            int to = index(cycle.charAt((j + 1) % m));
+            if (_cycled[from]) {
+                throw error("'%c' appears in more than one cycle",
+                            cycle.charAt(j));
+            }
+            _cycled[from] = true;
+            _forward[from] = to;
+            _inverse[to] = from;
+        }
     }
+
+    /** Return the index of C, which must be in my alphabet. */
+    private int index(char c) {
+        if (!_alphabet.contains(c)) {
+            throw error("'%c' is not in the alphabet", c);
+        }
+        return _alphabet.toInt(c);
+    }
+
     /** returns alphabet. */
     public Alphabet getalphabet() {
         return _alphabet;
@@ -61,39 +90,41 @@ class Permutation {
 
     /** Returns the size of the alphabet I permute. */
     int size() {
-        return _alphabet.size();
+        return _forward.length;
     }
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        char ind = _alphabet.toChar(p);
-        return _alphabet.toInt(permute(ind));
+        if (p < 0 || p >= _forward.length) {
+            p = wrap(p);
+        }
+        return _forward[p];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        char ind = _alphabet.toChar(c);
-        return  _alphabet.toInt(invert(ind));
+        if (c < 0 || c >= _inverse.length) {
+            c = wrap(c);
+        }
+        return _inverse[c];
     }
 
     /** Return the result of applying this permutation to the index of P
      *  in ALPHABET, and converting the result to a character of ALPHABET. */
     char permute(char p) {
-        if (_cycles.containsKey(p)) {
-            return _cycles.get(p);
-        } else {
+        if (!_alphabet.contains(p)) {
             return p;
         }
+        return _alphabet.toChar(_forward[_alphabet.toInt(p)]);
     }
 
     /** Return the result of applying the inverse of this permutation to C. */
     char invert(char c) {
-        if (_cyclesinv.containsKey(c)) {
-            return _cyclesinv.get(c);
-        } else {
+        if (!_alphabet.contains(c)) {
             return c;
         }
+        return _alphabet.toChar(_inverse[_alphabet.toInt(c)]);
     }
 
     /** Return the alphabet used to initialize this Permutation. */
@@ -104,9 +135,20 @@ class Permutation {
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
+        for (int i = 0; _forward.length > i; i++) {
+            if (_forward[i] == i) {
+                return false;
+            }
+        }
         return true;
     }
     /** Alphabet of this permutation. */
     private Alphabet _alphabet;
+    /** The image of each index. */
+    private final int[] _forward;
+    /** The preimage of each index. */
+    private final int[] _inverse;
+    /** Marks the indices already placed in a cycle, while the cycles are
+     *  being added; null afterwards. */
+    private boolean[] _cycled;
 }
-
@@ -47,4 +47,40 @@ public class PermutationTest {
         checkPerm("identity", UPPER_STRING, UPPER_STRING);
     }
 
+    @Test
+    public void checkNavalA() {
+        for (String name : NAVALA_MAP.keySet()) {
+            perm = new Permutation(NAVALA.get(name), UPPER);
+            checkPerm(name, UPPER_STRING, NAVALA_MAP.get(name));
+        }
+    }
+
+    @Test
+    public void checkWrap() {
+        perm = new Permutation(NAVALA.get("I"), UPPER);
+        assertEquals(perm.permute(0), perm.permute(26));
+        assertEquals(perm.invert(25), perm.invert(-1));
+    }
+
+    @Test
+    public void checkDerangement() {
+        assertTrue(new Permutation(NAVALA.get("B"), UPPER).derangement());
+        assertTrue(new Permutation(NAVALA.get("VII"), UPPER).derangement());
+        assertFalse(new Permutation(NAVALA.get("I"), UPPER).derangement());
+        assertFalse(new Permutation("", UPPER).derangement());
+        Alphabet digits = new Alphabet("012345");
+        assertTrue(new Permutation("(01) (23) (45)", digits).derangement());
+        assertFalse(new Permutation("(123) (45)", digits).derangement());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkNotInAlphabet() {
+        new Permutation("(AB) (C1)", UPPER);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkRepeated() {
+        new Permutation("(ABC) (DA)", UPPER);
+    }
+
 }
@@ -14,6 +14,11 @@ class Reflector extends FixedRotor {
         set(0);
     }
 
+    @Override
+    Rotor copy() {
+        return copyTo(new Reflector(name(), permutation()));
+    }
+
     @Override
     void set(int posn) {
         if (posn != 0) {
@@ -2,7 +2,14 @@ package enigma;
 
 import static enigma.EnigmaException.*;
 
-/** Superclass that represents a rotor in the enigma machine.
+/** Superclass that represents a rotor in the enigma machine.  The first
+ *  time a rotor converts a character or is copied, if its alphabet has
+ *  no more than maxTableSize() characters, it builds tables of its
+ *  conversions at every setting, so that each later conversion is a
+ *  single array access; a rotor with a larger alphabet computes each
+ *  conversion from its permutation.  The tables take 8 * size() *
+ *  size() bytes, and are shared by a rotor and all its copies, which
+ *  differ only in their settings.
  *  @author keith pacana
  */
 class Rotor {
@@ -57,6 +64,7 @@ class Rotor {
     /** Set setting() to POSN.  */
     void set(int posn) {
         _setting = _permutation.wrap(posn);
+        _row = _setting * size();
     }
 
     /** Set setting() to character CPOSN. */
@@ -67,6 +75,11 @@ class Rotor {
     /** Return the conversion of P (an integer in the range 0..size()-1)
      *  according to my permutation. */
     int convertForward(int p) {
+        if (_forward != null && p >= 0 && p < _size) {
+            return _forward[_row + p];
+        } else if (buildTables() && p >= 0 && p < _size) {
+            return _forward[_row + p];
+        }
         int newposn = _permutation.wrap(p + _setting);
         int convert = _permutation.permute(newposn);
         int nextposn = _permutation.wrap(convert - _setting);
@@ -76,15 +89,93 @@ class Rotor {
     /** Return the conversion of E (an integer in the range 0..size()-1)
      *  according to the inverse of my permutation. */
     int convertBackward(int e) {
+        if (_backward != null && e >= 0 && e < _size) {
+            return _backward[_row + e];
+        } else if (buildTables() && e >= 0 && e < _size) {
+            return _backward[_row + e];
+        }
         int newposn = _permutation.wrap(e + _setting);
         int convert = _permutation.invert(newposn);
         int nextposn = _permutation.wrap(convert - _setting);
         return nextposn;
     }
 
+    /** Build my conversion tables, if they have not been built and my
+     *  alphabet is small enough, and return true iff they exist. */
+    private boolean buildTables() {
+        if (_forward != null) {
+            return true;
+        }
+        Tables tables = tables();
+        if (tables == null) {
+            return false;
+        }
+        use(tables);
+        return true;
+    }
+
+    /** Return my conversion tables, building them if they have not been
+     *  built and my alphabet is small enough, or null if they do not
+     *  exist.  A rotor may be copied in several threads at once: each
+     *  then finds complete tables, though more than one may build
+     *  them. */
+    private Tables tables() {
+        Tables tables = _tables;
+        if (tables == null && size() <= _maxTableSize) {
+            tables = new Tables(_permutation);
+            _tables = tables;
+        }
+        return tables;
+    }
+
+    /** Convert with TABLES from now on. */
+    private void use(Tables tables) {
+        _tables = tables;
+        _size = tables._size;
+        _backward = tables._backward;
+        _forward = tables._forward;
+    }
+
+    /** Return the largest alphabet size for which rotors build
+     *  conversion tables. */
+    static int maxTableSize() {
+        return _maxTableSize;
+    }
+
+    /** Make rotors that have not yet built conversion tables build them
+     *  only if their alphabets have at most SIZE characters. */
+    static void setMaxTableSize(int size) {
+        _maxTableSize = size;
+    }
+
+    /** Return a new rotor like me, at my setting, that moves
+     *  independently of me. */
+    Rotor copy() {
+        return copyTo(new Rotor(_name, _permutation));
+    }
+
+    /** Give ROTOR, a new rotor with my name and permutation, my setting
+     *  and my conversion tables, building them first if need be, and
+     *  return it. */
+    final Rotor copyTo(Rotor rotor) {
+        rotor._setting = _setting;
+        rotor._row = _row;
+        Tables tables = tables();
+        if (tables != null) {
+            rotor.use(tables);
+        }
+        return rotor;
+    }
+
     /** Returns true iff I am positioned to allow the rotor to my left
      *  to advance. */
     boolean atNotch() {
+        return atNotch(_setting);
+    }
+
+    /** Returns true iff I would be positioned to allow the rotor to my
+     *  left to advance at setting POSN. */
+    boolean atNotch(int posn) {
         return false;
     }
 
@@ -103,4 +194,50 @@ class Rotor {
     /** The permutation implemnted by this rotor in its 0 position. */
     private Permutation _permutation;
 
+    /** Default largest alphabet size for conversion tables (each rotor's
+     *  tables then take at most 128 KiB). */
+    static final int DEFAULT_MAX_TABLE_SIZE = 128;
+    /** Largest alphabet size for conversion tables. */
+    private static volatile int _maxTableSize = DEFAULT_MAX_TABLE_SIZE;
+
+    /** The conversion tables of a rotor at every setting.  Their fields
+     *  are final, so a rotor copied in one thread from a rotor whose
+     *  tables were built in another finds them complete. */
+    private static class Tables {
+
+        /** The tables of a rotor with permutation PERM. */
+        Tables(Permutation perm) {
+            int n = perm.size();
+            _size = n;
+            _forward = new int[n * n];
+            _backward = new int[n * n];
+            for (int s = 0; n > s; s++) {
+                for (int p = 0; n > p; p++) {
+                    _forward[s * n + p] = perm.wrap(perm.permute(p + s) - s);
+                    _backward[s * n + p] = perm.wrap(perm.invert(p + s) - s);
+                }
+            }
+        }
+
+        /** Size of the alphabet. */
+        private final int _size;
+        /** Forward conversions, indexed by setting * size + input. */
+        private final int[] _forward;
+        /** Backward conversions, indexed like _forward. */
+        private final int[] _backward;
+    }
+
+    /** My conversion tables, shared with my original and copies, or null
+     *  if not built. */
+    private Tables _tables;
+    /** Forward conversions, indexed by setting * size() + input, or
+     *  null if not built. */
+    private int[] _forward;
+    /** Backward conversions, indexed like _forward. */
+    private int[] _backward;
+    /** Size of my alphabet once the tables are built, else 0. */
+    private int _size;
+    /** Index in the tables of the row for my setting. */
+    private int _row;
+
 }
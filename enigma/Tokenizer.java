@@ -0,0 +1,122 @@
+package enigma;
+
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/** Reads the tokens of a configuration file or settings line in a single
+ *  pass, without regular expressions.  Tokens are separated by
+ *  whitespace, and lines end as they do for a Scanner, so that next,
+ *  nextInt and nextLine return what the Scanner methods of those names
+ *  would, and throw the same exceptions when nothing suitable remains.
+ *  The offset of the last token read is kept, and converted to a line
+ *  and column for error messages only when asked for.
+ *  @author keith pacana
+ */
+class Tokenizer {
+
+    /** A tokenizer reading TEXT from its start. */
+    Tokenizer(CharSequence text) {
+        _text = text;
+    }
+
+    /** Return true iff another token remains. */
+    boolean hasNext() {
+        skipWhitespace();
+        return _text.length() > _pos;
+    }
+
+    /** Return true iff another token remains, and it starts with C. */
+    boolean hasNext(char c) {
+        return hasNext() && _text.charAt(_pos) == c;
+    }
+
+    /** Return the next token. */
+    String next() {
+        if (!hasNext()) {
+            _mark = _pos;
+            throw new NoSuchElementException();
+        }
+        _mark = _pos;
+        while (_text.length() > _pos
+               && !Character.isWhitespace(_text.charAt(_pos))) {
+            _pos += 1;
+        }
+        return _text.subSequence(_mark, _pos).toString();
+    }
+
+    /** Return the next token, which must be a decimal integer. */
+    int nextInt() {
+        String token = next();
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException excp) {
+            throw new InputMismatchException(token);
+        }
+    }
+
+    /** Return the rest of the current line, not including its end, and
+     *  skip past its end. */
+    String nextLine() {
+        _mark = _pos;
+        if (_pos >= _text.length()) {
+            throw new NoSuchElementException();
+        }
+        while (_text.length() > _pos && !lineEnd(_text.charAt(_pos))) {
+            _pos += 1;
+        }
+        String line = _text.subSequence(_mark, _pos).toString();
+        if (_text.length() > _pos) {
+            _pos += 1;
+            if (_text.charAt(_pos - 1) == '\r' && _text.length() > _pos
+                && _text.charAt(_pos) == '\n') {
+                _pos += 1;
+            }
+        }
+        return line;
+    }
+
+    /** Return the offset in my text of the start of the last token or
+     *  line read, or of where the one that was not found would have
+     *  started. */
+    int mark() {
+        return _mark;
+    }
+
+    /** Return the position of OFFSET in my text as "line L, column C",
+     *  numbering from 1. */
+    String position(int offset) {
+        int line = 1, start = 0;
+        for (int k = 0; offset > k; k++) {
+            char c = _text.charAt(k);
+            if (lineEnd(c) && !(c == '\n' && k > 0
+                                && _text.charAt(k - 1) == '\r')) {
+                line += 1;
+            }
+            if (lineEnd(c)) {
+                start = k + 1;
+            }
+        }
+        return String.format("line %d, column %d", line, offset - start + 1);
+    }
+
+    /** Advance past any whitespace. */
+    private void skipWhitespace() {
+        while (_text.length() > _pos
+               && Character.isWhitespace(_text.charAt(_pos))) {
+            _pos += 1;
+        }
+    }
+
+    /** Return true iff C ends a line. */
+    private static boolean lineEnd(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085'
+            || c == '\u2028' || c == '\u2029';
+    }
+
+    /** The text read. */
+    private final CharSequence _text;
+    /** The offset of the next character to read. */
+    private int _pos;
+    /** The offset returned by mark(). */
+    private int _mark;
+}
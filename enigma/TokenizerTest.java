@@ -0,0 +1,79 @@
+package enigma;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/** The suite of all JUnit tests for the Tokenizer class.
+ *  @author keith pacana
+ */
+public class TokenizerTest {
+
+    /** A configuration with blank lines and \r\n line ends. */
+    private static final String CONFIG =
+        "ABC DE\r\n 2 1\r\n\r\n  R1 R (AB)\n\tR2 MB (AC) (D)  \r\n";
+
+    @Test
+    public void checkAgainstScanner() {
+        Tokenizer tokens = new Tokenizer(CONFIG);
+        Scanner scanner = new Scanner(CONFIG);
+        assertEquals(scanner.nextLine(), tokens.nextLine());
+        assertEquals(scanner.nextInt(), tokens.nextInt());
+        assertEquals(scanner.nextInt(), tokens.nextInt());
+        while (scanner.hasNext()) {
+            assertTrue(tokens.hasNext());
+            assertEquals(scanner.hasNext("\\(.*"), tokens.hasNext('('));
+            assertEquals(scanner.next(), tokens.next());
+        }
+        assertFalse(tokens.hasNext());
+        assertFalse(tokens.hasNext('('));
+    }
+
+    @Test
+    public void checkPositions() {
+        Tokenizer tokens = new Tokenizer(CONFIG);
+        assertEquals("line 1, column 1", tokens.position(tokens.mark()));
+        tokens.nextLine();
+        tokens.nextInt();
+        tokens.nextInt();
+        assertEquals("R1", tokens.next());
+        assertEquals("line 4, column 3", tokens.position(tokens.mark()));
+        tokens.next();
+        tokens.next();
+        assertEquals("R2", tokens.next());
+        assertEquals("line 5, column 2", tokens.position(tokens.mark()));
+        try {
+            while (true) {
+                tokens.next();
+            }
+        } catch (NoSuchElementException excp) {
+            assertEquals("line 6, column 1", tokens.position(tokens.mark()));
+        }
+    }
+
+    @Test
+    public void checkLines() {
+        Tokenizer tokens = new Tokenizer("one\rtwo\u2028\nthree");
+        assertEquals("one", tokens.nextLine());
+        assertEquals("two", tokens.nextLine());
+        assertEquals("", tokens.nextLine());
+        assertEquals("three", tokens.nextLine());
+        assertEquals("line 4, column 1", tokens.position(tokens.mark()));
+    }
+
+    @Test(expected = InputMismatchException.class)
+    public void checkBadInt() {
+        new Tokenizer(" x 5").nextInt();
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void checkEmptyLine() {
+        Tokenizer tokens = new Tokenizer("ABC\n");
+        tokens.nextLine();
+        tokens.nextLine();
+    }
+
+}
@@ -0,0 +1,78 @@
+package ataxx;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * An NnueEvaluator.Kernel using the (incubating) Vector API.  It is
+ * found by NnueEvaluator at run time when this directory's classes are
+ * on the class path and the jdk.incubator.vector module has been added
+ * (see the Makefile).  Entries beyond the last whole vector are handled
+ * by scalar loops.
+ *
+ * @author Keith Pacana
+ */
+class VectorKernel implements NnueEvaluator.Kernel {
+
+    @Override
+    public void add(short[] acc, short[] w, int off, int n) {
+        int i;
+        for (i = 0; i < SHORTS.loopBound(n); i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, acc, i)
+                .add(ShortVector.fromArray(SHORTS, w, off + i))
+                .intoArray(acc, i);
+        }
+        for (; i < n; i += 1) {
+            acc[i] += w[off + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] acc, short[] w, int off, int n) {
+        int i;
+        for (i = 0; i < SHORTS.loopBound(n); i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, acc, i)
+                .sub(ShortVector.fromArray(SHORTS, w, off + i))
+                .intoArray(acc, i);
+        }
+        for (; i < n; i += 1) {
+            acc[i] -= w[off + i];
+        }
+    }
+
+    @Override
+    public int clippedDot(short[] acc, short[] w, int off, int n) {
+        IntVector sum = IntVector.zero(INTS);
+        int i;
+        for (i = 0; i < SHORTS.loopBound(n); i += SHORTS.length()) {
+            ShortVector a = ShortVector.fromArray(SHORTS, acc, i)
+                .max((short) 0).min((short) NnueEvaluator.CLIP);
+            ShortVector b = ShortVector.fromArray(SHORTS, w, off + i);
+            for (int part = 0; part < PARTS; part += 1) {
+                IntVector wa = (IntVector)
+                    a.convertShape(VectorOperators.S2I, INTS, part);
+                IntVector wb = (IntVector)
+                    b.convertShape(VectorOperators.S2I, INTS, part);
+                sum = sum.add(wa.mul(wb));
+            }
+        }
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i += 1) {
+            result += Math.max(0, Math.min(NnueEvaluator.CLIP, acc[i]))
+                * w[off + i];
+        }
+        return result;
+    }
+
+    /** Species of the int16 vectors. */
+    private static final VectorSpecies<Short> SHORTS =
+        ShortVector.SPECIES_PREFERRED;
+    /** Species of the int32 vectors, of the same size. */
+    private static final VectorSpecies<Integer> INTS =
+        IntVector.SPECIES_PREFERRED;
+    /** Number of int vectors per short vector. */
+    private static final int PARTS = SHORTS.length() / INTS.length();
+
+}